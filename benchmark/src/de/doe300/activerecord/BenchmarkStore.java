@@ -0,0 +1,66 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord;
+
+import java.sql.DriverManager;
+import javax.annotation.Nonnull;
+
+/**
+ * The record-stores the benchmarks are run against
+ *
+ * @author doe300
+ */
+public enum BenchmarkStore
+{
+	/**
+	 * The in-memory store, measuring the overhead of the extensions without any database access
+	 */
+	MEMORY
+	{
+		@Override
+		public RecordCore createCore() throws Exception
+		{
+			return RecordCore.newMemoryStore( "benchmark" );
+		}
+	},
+	/**
+	 * The in-memory HSQLDB database, as used by the tests
+	 */
+	HSQLDB
+	{
+		@Override
+		public RecordCore createCore() throws Exception
+		{
+			return RecordCore.fromDatabase( DriverManager.getConnection( "jdbc:hsqldb:mem:benchmark", "sa", ""), true);
+		}
+	};
+
+	/**
+	 * @return a new record-core for this store
+	 * @throws Exception 
+	 */
+	@Nonnull
+	public abstract RecordCore createCore() throws Exception;
+}
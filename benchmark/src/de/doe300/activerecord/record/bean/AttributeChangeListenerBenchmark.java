@@ -0,0 +1,123 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import de.doe300.activerecord.BenchmarkStore;
+import de.doe300.activerecord.RecordCore;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the allocations per set of an int-attribute of the generated JavaBeanRecord with PropertyChangeListeners
+ * and AttributeChangeListeners.
+ * 
+ * Run with the GC-profiler (<code>-prof gc</code>), the value of <code>gc.alloc.rate.norm</code> is the number of bytes 
+ * allocated per set. The record-store only accepts objects, so every set allocates at least the Integer written to the
+ * store. With only AttributeChangeListeners registered, the notification itself does not allocate.
+ *
+ * @author doe300
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class AttributeChangeListenerBenchmark
+{
+	/**
+	 * The kind of listener registered
+	 */
+	public enum ListenerType
+	{
+		NONE,
+		PROPERTY_CHANGE_LISTENER,
+		ATTRIBUTE_CHANGE_LISTENER
+	}
+	
+	@Param({"NONE", "PROPERTY_CHANGE_LISTENER", "ATTRIBUTE_CHANGE_LISTENER"})
+	public ListenerType listenerType;
+	
+	private RecordCore core;
+	private TestJavaBeanRecordBean record;
+	private int age;
+
+	@Setup
+	public void setUp(final Blackhole blackhole) throws Exception
+	{
+		core = BenchmarkStore.MEMORY.createCore();
+		core.createTable( TestJavaBeanRecord.class);
+		record = core.getBase( TestJavaBeanRecordBean.class).createRecord();
+		record.setAge( 0 );
+		switch(listenerType)
+		{
+			case PROPERTY_CHANGE_LISTENER:
+				record.addPropertyChangeListener( blackhole::consume );
+				break;
+			case ATTRIBUTE_CHANGE_LISTENER:
+				record.addAttributeChangeListener( new AttributeChangeListener()
+				{
+					@Override
+					public void onChange( JavaBeanRecord record, String attributeName, Object oldValue, Object newValue )
+					{
+						blackhole.consume( newValue );
+					}
+
+					@Override
+					public void onIntChange( JavaBeanRecord record, String attributeName, int oldValue, int newValue )
+					{
+						blackhole.consume( newValue );
+					}
+				});
+				break;
+		}
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception
+	{
+		core.dropTable( TestJavaBeanRecord.class);
+	}
+
+	@Benchmark
+	public void set()
+	{
+		//make sure, the value actually changes
+		++age;
+		record.setAge( age );
+	}
+}
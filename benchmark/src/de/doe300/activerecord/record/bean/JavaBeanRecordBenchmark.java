@@ -0,0 +1,129 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import de.doe300.activerecord.BenchmarkStore;
+import de.doe300.activerecord.RecordBase;
+import de.doe300.activerecord.RecordCore;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the set/get-throughput of the POJO-, the generated and the proxied JavaBeanRecord with a varying number of
+ * listeners
+ *
+ * @author doe300
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class JavaBeanRecordBenchmark
+{
+	/**
+	 * The type of record-implementation
+	 */
+	public enum RecordImplementation
+	{
+		POJO(TestJavaBeanPOJO.class),
+		GENERATED(TestJavaBeanRecordBean.class),
+		PROXY(TestJavaBeanRecord.class);
+		
+		private final Class<? extends TestJavaBeanRecord> recordType;
+
+		private RecordImplementation( final Class<? extends TestJavaBeanRecord> recordType )
+		{
+			this.recordType = recordType;
+		}
+	}
+	
+	@Param({"MEMORY", "HSQLDB"})
+	public BenchmarkStore store;
+	
+	@Param({"POJO", "GENERATED", "PROXY"})
+	public RecordImplementation implementation;
+	
+	@Param({"0", "1", "16"})
+	public int listenerCount;
+	
+	private RecordCore core;
+	private TestJavaBeanRecord record;
+	private int age;
+
+	@Setup
+	public void setUp(final Blackhole blackhole) throws Exception
+	{
+		core = store.createCore();
+		core.createTable( TestJavaBeanRecord.class);
+		final RecordBase<? extends TestJavaBeanRecord> base = core.getBase( implementation.recordType,
+				new PropertyChangeProxyHandler(Collections.emptySet()));
+		record = base.createRecord();
+		for(int i = 0; i < listenerCount; i++)
+		{
+			record.addPropertyChangeListener( blackhole::consume );
+		}
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception
+	{
+		core.dropTable( TestJavaBeanRecord.class);
+	}
+
+	@Benchmark
+	public void set()
+	{
+		//make sure, the value actually changes
+		record.setAge( age++ );
+	}
+
+	@Benchmark
+	public int get()
+	{
+		return record.getAge();
+	}
+
+	@Benchmark
+	public String setGet()
+	{
+		record.setName( Integer.toString( age++ ));
+		return record.getName();
+	}
+}
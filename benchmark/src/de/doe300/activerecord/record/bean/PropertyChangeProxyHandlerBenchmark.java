@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import de.doe300.activerecord.BenchmarkStore;
+import de.doe300.activerecord.RecordBase;
+import de.doe300.activerecord.RecordCore;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the cost of the listener-lookup in {@link PropertyChangeProxyHandler} depending on the number of live
+ * records registered with the handler
+ *
+ * @author doe300
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class PropertyChangeProxyHandlerBenchmark
+{
+	@Param({"MEMORY", "HSQLDB"})
+	public BenchmarkStore store;
+	
+	@Param({"1", "1000", "100000"})
+	public int liveRecords;
+	
+	private RecordCore core;
+	//keeps the records strongly reachable, so they stay registered
+	private final List<TestJavaBeanRecord> records = new ArrayList<>(100000);
+	private TestJavaBeanRecord record;
+	private TestJavaBeanRecord recordWithoutListeners;
+	private PropertyChangeListener listener;
+	private int age;
+
+	@Setup
+	public void setUp(final Blackhole blackhole) throws Exception
+	{
+		core = store.createCore();
+		core.createTable( TestJavaBeanRecord.class);
+		listener = blackhole::consume;
+		final RecordBase<TestJavaBeanRecord> base = core.getBase( TestJavaBeanRecord.class, new PropertyChangeProxyHandler(Collections.emptySet()));
+		for(int i = 0; i < liveRecords; i++)
+		{
+			final TestJavaBeanRecord r = base.createRecord();
+			r.addPropertyChangeListener( listener );
+			records.add( r );
+		}
+		record = records.get( records.size() - 1);
+		recordWithoutListeners = base.createRecord();
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception
+	{
+		records.clear();
+		core.dropTable( TestJavaBeanRecord.class);
+	}
+
+	@Benchmark
+	public void setWithListener()
+	{
+		record.setAge( age++ );
+	}
+
+	@Benchmark
+	public void setWithoutListener()
+	{
+		recordWithoutListeners.setAge( age++ );
+	}
+
+	@Benchmark
+	public void removeAddListener()
+	{
+		final TestJavaBeanRecord r = records.get( age++ % records.size());
+		r.removePropertyChangeListener( listener );
+		r.addPropertyChangeListener( listener );
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import de.doe300.activerecord.record.ActiveRecord;
+import java.beans.PropertyChangeListener;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the dispatch of the proxied {@link JavaBeanRecord}-methods in {@link PropertyChangeProxyHandler}, always 
+ * via the code of the handler itself and with the {@link Method}-instances passed by a real proxy.
+ * 
+ * <ul>
+ * <li><code>handlesMethod</code>: the check, whether the handler implements the method</li>
+ * <li><code>invoke</code>: resolving the method and executing it, for a record without listeners</li>
+ * <li><code>handler</code>: the complete <code>handlesMethod</code>- and <code>invoke</code>-call, as executed by the
+ * record-handler</li>
+ * <li><code>proxy</code>: the call of the method on the proxied record, including the overhead of the proxy</li>
+ * </ul>
+ *
+ * @author doe300
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ProxyMethodDispatchBenchmark
+{
+	/**
+	 * The proxied method called
+	 */
+	public enum InvokedMethod
+	{
+		FIRE_PROPERTY_CHANGE,
+		ADD_ATTRIBUTE_LISTENER,
+		REMOVE_ATTRIBUTE_LISTENER;
+	}
+	
+	@Param({"FIRE_PROPERTY_CHANGE", "ADD_ATTRIBUTE_LISTENER", "REMOVE_ATTRIBUTE_LISTENER"})
+	public InvokedMethod invokedMethod;
+	
+	private PropertyChangeProxyHandler proxyHandler;
+	private TestJavaBeanRecord record;
+	private PropertyChangeListener listener;
+	private Method method;
+	private Object[] args;
+	//whether the next call of the proxy only captures the Method-instance passed
+	private boolean capturing;
+
+	@Setup
+	public void setUp()
+	{
+		proxyHandler = new PropertyChangeProxyHandler(Collections.emptySet());
+		record = ( TestJavaBeanRecord ) Proxy.newProxyInstance( ProxyMethodDispatchBenchmark.class.getClassLoader(), 
+				new Class<?>[]{TestJavaBeanRecord.class}, (Object proxy, Method m, Object[] a) -> 
+		{
+			if(capturing)
+			{
+				method = m;
+				return null;
+			}
+			if(proxyHandler.handlesMethod( (ActiveRecord) proxy, m, a ))
+			{
+				return proxyHandler.invoke( (ActiveRecord) proxy, null, m, a );
+			}
+			throw new UnsupportedOperationException(m.getName());
+		});
+		listener = (evt) -> {};
+		capturing = true;
+		proxy();
+		capturing = false;
+		switch(invokedMethod)
+		{
+			case FIRE_PROPERTY_CHANGE:
+				args = new Object[]{"age", 1, 2};
+				break;
+			default:
+				args = new Object[]{"age", listener};
+		}
+	}
+
+	@Benchmark
+	public boolean handlesMethod()
+	{
+		return proxyHandler.handlesMethod( record, method, args );
+	}
+
+	@Benchmark
+	public Object invoke()
+	{
+		return proxyHandler.invoke( record, null, method, args );
+	}
+
+	@Benchmark
+	public Object handler()
+	{
+		if(!proxyHandler.handlesMethod( record, method, args ))
+		{
+			return null;
+		}
+		return proxyHandler.invoke( record, null, method, args );
+	}
+
+	@Benchmark
+	public TestJavaBeanRecord proxy()
+	{
+		switch(invokedMethod)
+		{
+			case FIRE_PROPERTY_CHANGE:
+				record.firePropertyChange( "age", 1, 2);
+				break;
+			case ADD_ATTRIBUTE_LISTENER:
+				record.addPropertyChangeListener( "age", listener);
+				break;
+			case REMOVE_ATTRIBUTE_LISTENER:
+				record.removePropertyChangeListener( "age", listener);
+				break;
+		}
+		return record;
+	}
+}
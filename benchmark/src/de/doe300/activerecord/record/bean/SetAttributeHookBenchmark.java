@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import de.doe300.activerecord.BenchmarkStore;
+import de.doe300.activerecord.RecordCore;
+import de.doe300.activerecord.record.ActiveRecord;
+import java.beans.PropertyChangeListener;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the setter of a proxied record against a real record-store, depending on the listeners registered. 
+ * 
+ * The setter only reads the old value from the record-store, if a listener is notified about the attribute written, 
+ * otherwise it only writes the new value. The reads of the old value are counted in the auxiliary counter 
+ * <code>oldValueReads</code>, so the store round-trips saved can be compared to the throughput of the setter.
+ *
+ * @author doe300
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SetAttributeHookBenchmark
+{
+	/**
+	 * The listeners registered when writing the attribute "age"
+	 */
+	public enum Listeners
+	{
+		/**
+		 * No listener at all, the old value is not read
+		 */
+		NONE,
+		/**
+		 * A listener of the record for another attribute, the old value is not read
+		 */
+		OTHER_ATTRIBUTE,
+		/**
+		 * A listener of the record for the attribute written
+		 */
+		ATTRIBUTE,
+		/**
+		 * A global listener for all records
+		 */
+		GLOBAL,
+		/**
+		 * A global listener removed from the record written, the old value is not read
+		 */
+		GLOBAL_EXCLUDED;
+	}
+	
+	/**
+	 * The store round-trips counted per iteration
+	 */
+	@State(Scope.Thread)
+	@AuxCounters
+	public static class StoreAccesses
+	{
+		public long oldValueReads;
+
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			oldValueReads = 0;
+		}
+	}
+	
+	@Param({"MEMORY", "HSQLDB"})
+	public BenchmarkStore store;
+	
+	@Param({"NONE", "OTHER_ATTRIBUTE", "ATTRIBUTE", "GLOBAL", "GLOBAL_EXCLUDED"})
+	public Listeners listeners;
+	
+	private RecordCore core;
+	private TestJavaBeanRecord record;
+	private int age;
+	//the counters of the running iteration
+	private StoreAccesses accesses;
+
+	@Setup
+	public void setUp(final Blackhole blackhole) throws Exception
+	{
+		core = store.createCore();
+		core.createTable( TestJavaBeanRecord.class);
+		final PropertyChangeProxyHandler handler = new PropertyChangeProxyHandler(Collections.emptySet())
+		{
+			@Override
+			protected Object getOldValue( ActiveRecord record, String attributeName )
+			{
+				++accesses.oldValueReads;
+				return super.getOldValue( record, attributeName );
+			}
+		};
+		record = core.getBase( TestJavaBeanRecord.class, handler ).createRecord();
+		final PropertyChangeListener listener = blackhole::consume;
+		switch(listeners)
+		{
+			case OTHER_ATTRIBUTE:
+				record.addPropertyChangeListener( "name", listener );
+				break;
+			case ATTRIBUTE:
+				record.addPropertyChangeListener( "age", listener );
+				break;
+			case GLOBAL:
+				handler.addGlobalListener( listener );
+				break;
+			case GLOBAL_EXCLUDED:
+				handler.addGlobalListener( listener );
+				record.removePropertyChangeListener( listener );
+				break;
+			default:
+				break;
+		}
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception
+	{
+		core.dropTable( TestJavaBeanRecord.class);
+	}
+
+	@Benchmark
+	public void set(final StoreAccesses accesses)
+	{
+		this.accesses = accesses;
+		//make sure, the value actually changes
+		record.setAge( age++ );
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.javafx;
+
+import de.doe300.activerecord.BenchmarkStore;
+import de.doe300.activerecord.RecordCore;
+import de.doe300.activerecord.record.bean.PropertyChangeProxyHandler;
+import de.doe300.activerecord.record.bean.TestJavaBeanRecord;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.Property;
+import javafx.beans.property.SimpleObjectProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares get/set/bind of {@link AttributeProperty} with the plain {@link SimpleObjectProperty}
+ *
+ * @author doe300
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class AttributePropertyBenchmark
+{
+	/**
+	 * The type of property to measure
+	 */
+	public enum PropertyType
+	{
+		SIMPLE,
+		ATTRIBUTE,
+		ATTRIBUTE_CACHING
+	}
+	
+	@Param({"MEMORY", "HSQLDB"})
+	public BenchmarkStore store;
+	
+	@Param({"SIMPLE", "ATTRIBUTE", "ATTRIBUTE_CACHING"})
+	public PropertyType propertyType;
+	
+	private RecordCore core;
+	private ObjectProperty<String> property;
+	private Property<String> source;
+	private int counter;
+
+	@Setup
+	public void setUp() throws Exception
+	{
+		core = store.createCore();
+		core.createTable( TestJavaBeanRecord.class);
+		final TestJavaBeanRecord record = core.getBase( TestJavaBeanRecord.class, new PropertyChangeProxyHandler(Collections.emptySet())).createRecord();
+		switch(propertyType)
+		{
+			case SIMPLE:
+				property = new SimpleObjectProperty<>();
+				break;
+			case ATTRIBUTE:
+				property = new AttributeProperty<>(record, "name", String.class);
+				break;
+			case ATTRIBUTE_CACHING:
+				property = new AttributeProperty<>(record, "name", String.class, true);
+				break;
+		}
+		source = new SimpleObjectProperty<>();
+	}
+	
+	@TearDown
+	public void tearDown() throws Exception
+	{
+		property.unbind();
+		core.dropTable( TestJavaBeanRecord.class);
+	}
+
+	@Benchmark
+	public String get()
+	{
+		return property.get();
+	}
+
+	@Benchmark
+	public void set()
+	{
+		property.set( Integer.toString( counter++ ));
+	}
+
+	@Benchmark
+	public String bindAndUpdate()
+	{
+		property.bind( source );
+		source.setValue( Integer.toString( counter++ ));
+		property.unbind();
+		return property.get();
+	}
+}
@@ -26,18 +26,61 @@ package de.doe300.activerecord.record.bean;
 
 import de.doe300.activerecord.pojo.AbstractActiveRecord;
 import de.doe300.activerecord.pojo.POJOBase;
+import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.beans.PropertyChangeSupport;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Predicate;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 /**
- *
+ * Base class for POJO-records supporting PropertyChangeListeners.
+ * 
+ * The listener-storage is only allocated when the first listener is added, so records without listeners neither pay
+ * for the storage nor for notifying.
+ * 
+ * Record-types annotated with {@link SkipUnchangedWrites} don't write values equal to the current value.
+ * 
+ * {@link AttributeChangeListener AttributeChangeListeners} are notified without creating an event-object. Together
+ * with the primitive setters (e.g. {@link #setIntProperty(java.lang.String, int) }), changes are delivered without 
+ * boxing the values for the notification, as long as no PropertyChangeListener is registered for the attribute. The 
+ * value written to the record-store is still boxed, since the store only accepts objects.
+ * 
+ * In write-behind mode or within a {@link WriteBehindScope}, written values are kept as pending changes and served for
+ * reads of this record, until they are written to the record-store at once by {@link #flushChanges() }. If flushing
+ * fails, the changes stay pending and are retried: by the next flush or, outside of write-behind mode and scopes, by
+ * the next write, which writes its value together with the pending changes. Until the pending changes are written or 
+ * {@link #discardChanges() discarded}, such a write re-throws the error of the record-store.
+ * 
  * @author doe300
  */
 public class AbstractJavaBeanRecord extends AbstractActiveRecord implements JavaBeanRecord
 {
-	private final PropertyChangeSupport support;
+	private static final AtomicReferenceFieldUpdater<AbstractJavaBeanRecord, PropertyChangeListenerList> LISTENERS_UPDATER
+			= AtomicReferenceFieldUpdater.newUpdater( AbstractJavaBeanRecord.class, PropertyChangeListenerList.class, "listeners");
+	private static final ClassValue<Boolean> SKIP_UNCHANGED_WRITES = new ClassValue<Boolean>()
+	{
+		@Override
+		protected Boolean computeValue( Class<?> type )
+		{
+			return type.isAnnotationPresent( SkipUnchangedWrites.class );
+		}
+	};
+	private static final AtomicReferenceFieldUpdater<AbstractJavaBeanRecord, AttributeChangeListener[]> ATTRIBUTE_LISTENERS_UPDATER
+			= AtomicReferenceFieldUpdater.newUpdater( AbstractJavaBeanRecord.class, AttributeChangeListener[].class, "attributeChangeListeners");
+	private static final AttributeChangeListener[] NO_ATTRIBUTE_LISTENERS = new AttributeChangeListener[0];
+	private volatile PropertyChangeListenerList listeners;
+	private volatile AttributeChangeListener[] attributeChangeListeners = NO_ATTRIBUTE_LISTENERS;
+	//guarded by this, null while there are no pending changes
+	private volatile Map<String, Object> pendingValues;
+	private volatile boolean writeBehind;
 
 	/**
 	 * @param primaryKey
@@ -46,40 +89,589 @@ public class AbstractJavaBeanRecord extends AbstractActiveRecord implements Java
 	protected AbstractJavaBeanRecord( int primaryKey, POJOBase<?> base )
 	{
 		super( primaryKey, base );
-		support = new PropertyChangeSupport(this);
 	}
 
 	@Override
 	public void addPropertyChangeListener( PropertyChangeListener listener )
 	{
-		//to make sure, listener is only added once
-		support.removePropertyChangeListener( listener );
-		support.addPropertyChangeListener( listener );
+		if(listener != null)
+		{
+			//the list makes sure, listener is only added once
+			getOrCreateListeners().add( listener );
+		}
+	}
+
+	@Override
+	public void addPropertyChangeListener( String attributeName, PropertyChangeListener listener )
+	{
+		if(listener != null)
+		{
+			getOrCreateListeners().add( attributeName, listener );
+		}
+	}
+
+	@Override
+	public void addPropertyChangeListener( Predicate<String> attributeFilter, PropertyChangeListener listener )
+	{
+		if(listener != null)
+		{
+			getOrCreateListeners().add( attributeFilter, listener );
+		}
 	}
 
 	@Override
 	public void removePropertyChangeListener( PropertyChangeListener listener )
 	{
-		support.removePropertyChangeListener( listener );
+		final PropertyChangeListenerList list = listeners;
+		if(list != null)
+		{
+			list.remove( listener );
+		}
+	}
+
+	@Override
+	public void removePropertyChangeListener( String attributeName, PropertyChangeListener listener )
+	{
+		final PropertyChangeListenerList list = listeners;
+		if(list != null)
+		{
+			list.remove( attributeName, listener );
+		}
+	}
+
+	/**
+	 * Adds a listener notified about changes of all attributes with typed callbacks, if it is not already contained
+	 * 
+	 * @param listener the listener to add
+	 */
+	public void addAttributeChangeListener(@Nullable final AttributeChangeListener listener)
+	{
+		if(listener == null)
+		{
+			return;
+		}
+		AttributeChangeListener[] current;
+		AttributeChangeListener[] updated;
+		do
+		{
+			current = attributeChangeListeners;
+			if(Arrays.asList( current ).contains( listener ))
+			{
+				return;
+			}
+			updated = Arrays.copyOf( current, current.length + 1);
+			updated[current.length] = listener;
+		}
+		while(!ATTRIBUTE_LISTENERS_UPDATER.compareAndSet( this, current, updated));
+	}
+
+	/**
+	 * @param listener the listener to remove
+	 */
+	public void removeAttributeChangeListener(@Nullable final AttributeChangeListener listener)
+	{
+		AttributeChangeListener[] current;
+		AttributeChangeListener[] updated;
+		do
+		{
+			current = attributeChangeListeners;
+			final int index = Arrays.asList( current ).indexOf( listener );
+			if(index < 0)
+			{
+				return;
+			}
+			if(current.length == 1)
+			{
+				updated = NO_ATTRIBUTE_LISTENERS;
+			}
+			else
+			{
+				updated = new AttributeChangeListener[current.length - 1];
+				System.arraycopy( current, 0, updated, 0, index);
+				System.arraycopy( current, index + 1, updated, index, current.length - index - 1);
+			}
+		}
+		while(!ATTRIBUTE_LISTENERS_UPDATER.compareAndSet( this, current, updated));
 	}
 
 	@Override
 	public void firePropertyChange( String attributeName, Object oldValue, Object newValue )
 	{
-		support.firePropertyChange( attributeName, oldValue, newValue );
+		final PropertyChangeListenerList list = listeners;
+		final boolean notifyListeners = list != null && list.hasListeners( attributeName );
+		if(!notifyListeners && attributeChangeListeners.length == 0)
+		{
+			return;
+		}
+		if(PropertyChangeBatch.collect( this, attributeName, oldValue, newValue, this::deliverChange))
+		{
+			//delivered when the batch is closed
+			return;
+		}
+		if(notifyListeners)
+		{
+			list.fire( this, attributeName, oldValue, newValue );
+		}
+		notifyAttributeChangeListeners( attributeName, oldValue, newValue, !notifyListeners );
+	}
+
+	private void deliverChange(@Nonnull final PropertyChangeEvent event)
+	{
+		final PropertyChangeListenerList list = listeners;
+		final boolean notifyListeners = list != null && list.hasListeners( event.getPropertyName() );
+		if(notifyListeners)
+		{
+			list.fire( event );
+		}
+		notifyAttributeChangeListeners( event.getPropertyName(), event.getOldValue(), event.getNewValue(), !notifyListeners );
+	}
+
+	private void notifyAttributeChangeListeners(@Nonnull final String attributeName, @Nullable final Object oldValue, 
+			@Nullable final Object newValue, final boolean countEvent)
+	{
+		final AttributeChangeListener[] typedListeners = attributeChangeListeners;
+		if(typedListeners.length == 0 || (oldValue != null && newValue != null && oldValue.equals( newValue)))
+		{
+			return;
+		}
+		if(countEvent)
+		{
+			countEvent();
+		}
+		for(final AttributeChangeListener l : typedListeners)
+		{
+			l.onChange( this, attributeName, oldValue, newValue );
+		}
+	}
+
+	private static void countEvent()
+	{
+		final ChangeMetricsCollector metrics = ChangeMetrics.getCollector();
+		if(metrics != null)
+		{
+			metrics.eventFired();
+		}
+	}
+
+	@Nonnull
+	private PropertyChangeListenerList getOrCreateListeners()
+	{
+		final PropertyChangeListenerList list = listeners;
+		if(list != null)
+		{
+			return list;
+		}
+		LISTENERS_UPDATER.compareAndSet( this, null, new PropertyChangeListenerList());
+		return listeners;
+	}
+
+	/**
+	 * @return whether all writes to this record are deferred until {@link #flushChanges() } is called
+	 */
+	public boolean isWriteBehind()
+	{
+		return writeBehind;
+	}
+
+	/**
+	 * Enables or disables the write-behind mode. 
+	 * Disabling the write-behind mode flushes all pending changes.
+	 * 
+	 * @param writeBehind whether to defer all writes to this record
+	 */
+	public void setWriteBehind(final boolean writeBehind)
+	{
+		this.writeBehind = writeBehind;
+		if(!writeBehind)
+		{
+			flushChanges();
+		}
+	}
+
+	/**
+	 * @return whether this record has changes not yet written to the record-store
+	 */
+	public boolean isDirty()
+	{
+		return pendingValues != null;
+	}
+
+	/**
+	 * @return the names of the attributes with changes not yet written to the record-store
+	 */
+	@Nonnull
+	public synchronized Set<String> getDirtyAttributes()
+	{
+		final Map<String, Object> pending = pendingValues;
+		if(pending == null)
+		{
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet( new LinkedHashSet<>(pending.keySet()));
+	}
+
+	/**
+	 * Writes all pending changes of this record to the record-store with a single write of the changed attributes.
+	 * If writing fails, all changes are kept pending and the exception of the record-store is re-thrown. The changes 
+	 * are retried by the next flush or by the next write outside of write-behind mode and {@link WriteBehindScope}, 
+	 * until they are written or {@link #discardChanges() discarded}.
+	 */
+	public synchronized void flushChanges()
+	{
+		final Map<String, Object> pending = pendingValues;
+		if(pending == null)
+		{
+			return;
+		}
+		//the pending changes are only discarded after the write succeeded, the store only gets a copy to not modify them
+		getBase().getStore().setValues( getBase(), getPrimaryKey(), new LinkedHashMap<>(pending) );
+		pendingValues = null;
+	}
+
+	/**
+	 * Discards all pending changes of this record, e.g. after they failed to be written. The listeners notified about
+	 * the changes are not notified again.
+	 */
+	public synchronized void discardChanges()
+	{
+		pendingValues = null;
+	}
+
+	/**
+	 * Reads the value of an attribute, serving pending changes.
+	 * Unlike {@link #getProperty(java.lang.String, java.lang.Class) }, this can be used by other classes mapping the 
+	 * attributes of this record, e.g. properties.
+	 * 
+	 * @param <T> the type of the attribute
+	 * @param name the name of the attribute
+	 * @param type the type of the attribute
+	 * @return the current value of the attribute
+	 */
+	@Nullable
+	public <T> T readAttribute(@Nonnull final String name, @Nonnull final Class<T> type)
+	{
+		return getProperty( name, type );
+	}
+
+	/**
+	 * Writes the value of an attribute, deferring the write in write-behind mode or within a {@link WriteBehindScope}.
+	 * Unlike {@link #setProperty(java.lang.String, java.lang.Object) }, no listeners of this record are notified.
+	 * 
+	 * If changes are still pending after a failed flush, the value is written together with them, so it is not 
+	 * overridden by them later. If this fails again, all changes stay pending and the exception is re-thrown.
+	 * 
+	 * @param name the name of the attribute
+	 * @param value the new value
+	 */
+	public void writeAttribute(@Nonnull final String name, @Nullable final Object value)
+	{
+		if(isDeferringWrites())
+		{
+			deferWrite( name, value );
+			return;
+		}
+		if(pendingValues != null)
+		{
+			//retry the changes of a failed flush
+			deferWrite( name, value );
+			flushChanges();
+			return;
+		}
+		super.setProperty( name, value );
+	}
+
+	private boolean isDeferringWrites()
+	{
+		return writeBehind || WriteBehindScope.isScopeActive();
+	}
+
+	private void deferWrite(@Nonnull final String name, @Nullable final Object value)
+	{
+		synchronized(this)
+		{
+			Map<String, Object> pending = pendingValues;
+			if(pending == null)
+			{
+				pending = new LinkedHashMap<>(8);
+			}
+			pending.put( name, value );
+			pendingValues = pending;
+		}
+		WriteBehindScope.register( this );
+	}
+
+	@Override
+	protected <T> T getProperty(@Nonnull final String name, @Nonnull final Class<T> type)
+	{
+		if(pendingValues != null)
+		{
+			synchronized(this)
+			{
+				final Map<String, Object> pending = pendingValues;
+				if(pending != null && pending.containsKey( name ))
+				{
+					return type.cast( pending.get( name ));
+				}
+			}
+		}
+		return super.getProperty( name, type );
 	}
 
 	@Override
 	protected void setProperty(@Nonnull final String name, @Nullable final Object value)
 	{
-		if(!support.hasListeners( name ))
+		final PropertyChangeListenerList list = listeners;
+		final boolean notify = (list != null && list.hasListeners( name )) || attributeChangeListeners.length > 0;
+		final boolean skipUnchanged = SKIP_UNCHANGED_WRITES.get( getClass());
+		if(!notify && !skipUnchanged)
 		{
 			//don't get old value, if nothing will bo notified
-			super.setProperty( name, value );
+			writeAttribute( name, value );
 			return;
 		}
-		final Object oldValue = getProperty( name, Object.class );
-		super.setProperty( name, value );
-		firePropertyChange( name, oldValue, value);
+		final Object oldValue = readOldValue( name, notify );
+		writeAndNotify( name, oldValue, value, notify, skipUnchanged );
+	}
+
+	/**
+	 * Sets the value of an int-attribute. 
+	 * {@link AttributeChangeListener AttributeChangeListeners} are notified via 
+	 * {@link AttributeChangeListener#onIntChange(de.doe300.activerecord.record.bean.JavaBeanRecord, java.lang.String, int, int) }
+	 * without boxing the values for the notification.
+	 * 
+	 * @param name the name of the attribute
+	 * @param value the new value
+	 */
+	protected void setIntProperty(@Nonnull final String name, final int value)
+	{
+		setPrimitiveProperty( name, PrimitiveType.INT, value );
+	}
+
+	/**
+	 * Sets the value of a long-attribute. 
+	 * {@link AttributeChangeListener AttributeChangeListeners} are notified via 
+	 * {@link AttributeChangeListener#onLongChange(de.doe300.activerecord.record.bean.JavaBeanRecord, java.lang.String, long, long) }
+	 * without boxing the values for the notification.
+	 * 
+	 * @param name the name of the attribute
+	 * @param value the new value
+	 */
+	protected void setLongProperty(@Nonnull final String name, final long value)
+	{
+		setPrimitiveProperty( name, PrimitiveType.LONG, value );
+	}
+
+	/**
+	 * Sets the value of a double-attribute. 
+	 * {@link AttributeChangeListener AttributeChangeListeners} are notified via 
+	 * {@link AttributeChangeListener#onDoubleChange(de.doe300.activerecord.record.bean.JavaBeanRecord, java.lang.String, double, double) }
+	 * without boxing the values for the notification.
+	 * 
+	 * @param name the name of the attribute
+	 * @param value the new value
+	 */
+	protected void setDoubleProperty(@Nonnull final String name, final double value)
+	{
+		//same semantics as Double#equals
+		setPrimitiveProperty( name, PrimitiveType.DOUBLE, Double.doubleToLongBits( value ) );
+	}
+
+	/**
+	 * Sets the value of a boolean-attribute. 
+	 * {@link AttributeChangeListener AttributeChangeListeners} are notified via 
+	 * {@link AttributeChangeListener#onBooleanChange(de.doe300.activerecord.record.bean.JavaBeanRecord, java.lang.String, boolean, boolean) }
+	 * without boxing the values for the notification.
+	 * 
+	 * @param name the name of the attribute
+	 * @param value the new value
+	 */
+	protected void setBooleanProperty(@Nonnull final String name, final boolean value)
+	{
+		setPrimitiveProperty( name, PrimitiveType.BOOLEAN, value ? 1 : 0 );
+	}
+
+	/**
+	 * Compares the new with the old value, writes it and notifies the primitive callbacks.
+	 * The values are passed as the bits of the primitive value, so they are only boxed for the record-store.
+	 * 
+	 * @param name the name of the attribute
+	 * @param type the primitive type of the attribute
+	 * @param bits the new value, as encoded by the type
+	 */
+	private void setPrimitiveProperty(@Nonnull final String name, @Nonnull final PrimitiveType type, final long bits)
+	{
+		if(!isPrimitiveDispatch( name ))
+		{
+			setProperty( name, type.box( bits ) );
+			return;
+		}
+		final boolean skipUnchanged = SKIP_UNCHANGED_WRITES.get( getClass());
+		final Object oldValue = readOldValue( name, true );
+		if(!type.isInstance( oldValue ))
+		{
+			writeAndNotify( name, oldValue, type.box( bits ), true, skipUnchanged);
+			return;
+		}
+		final long oldBits = type.toBits( oldValue );
+		if(oldBits == bits && skipUnchanged)
+		{
+			return;
+		}
+		//the record-store only accepts objects
+		writeAttribute( name, type.box( bits ) );
+		if(oldBits != bits)
+		{
+			countEvent();
+			for(final AttributeChangeListener l : attributeChangeListeners)
+			{
+				type.fire( l, this, name, oldBits, bits );
+			}
+		}
+	}
+
+	/**
+	 * @param name the name of the attribute to set
+	 * @return whether the change can be delivered to the primitive callbacks of the AttributeChangeListeners. 
+	 * PropertyChangeListeners and batches require boxed values anyway
+	 */
+	private boolean isPrimitiveDispatch(@Nonnull final String name)
+	{
+		final PropertyChangeListenerList list = listeners;
+		return attributeChangeListeners.length > 0 && (list == null || !list.hasListeners( name )) && 
+				!PropertyChangeBatch.isBatchActive();
+	}
+
+	@Nullable
+	private Object readOldValue(@Nonnull final String name, final boolean notify)
+	{
+		final ChangeMetricsCollector metrics = ChangeMetrics.getCollector();
+		if(notify && metrics != null)
+		{
+			metrics.oldValueRead();
+		}
+		//the old value is the pending value, if any
+		return getProperty( name, Object.class );
+	}
+
+	private void writeAndNotify(@Nonnull final String name, @Nullable final Object oldValue, @Nullable final Object value,
+			final boolean notify, final boolean skipUnchanged)
+	{
+		if(skipUnchanged && Objects.equals( oldValue, value))
+		{
+			return;
+		}
+		writeAttribute( name, value );
+		if(notify)
+		{
+			firePropertyChange( name, oldValue, value);
+		}
+	}
+
+	/**
+	 * The primitive types with typed callbacks in {@link AttributeChangeListener}. The values are encoded as the bits of
+	 * a long, which are equal for equal values
+	 */
+	private enum PrimitiveType
+	{
+		INT(Integer.class)
+		{
+			@Override
+			Object box( long bits )
+			{
+				return ( int ) bits;
+			}
+
+			@Override
+			long toBits( Object value )
+			{
+				return ( Integer ) value;
+			}
+
+			@Override
+			void fire( AttributeChangeListener listener, JavaBeanRecord record, String name, long oldBits, long bits )
+			{
+				listener.onIntChange( record, name, ( int ) oldBits, ( int ) bits );
+			}
+		},
+		LONG(Long.class)
+		{
+			@Override
+			Object box( long bits )
+			{
+				return bits;
+			}
+
+			@Override
+			long toBits( Object value )
+			{
+				return ( Long ) value;
+			}
+
+			@Override
+			void fire( AttributeChangeListener listener, JavaBeanRecord record, String name, long oldBits, long bits )
+			{
+				listener.onLongChange( record, name, oldBits, bits );
+			}
+		},
+		DOUBLE(Double.class)
+		{
+			@Override
+			Object box( long bits )
+			{
+				return Double.longBitsToDouble( bits );
+			}
+
+			@Override
+			long toBits( Object value )
+			{
+				return Double.doubleToLongBits( ( Double ) value );
+			}
+
+			@Override
+			void fire( AttributeChangeListener listener, JavaBeanRecord record, String name, long oldBits, long bits )
+			{
+				listener.onDoubleChange( record, name, Double.longBitsToDouble( oldBits ), Double.longBitsToDouble( bits ) );
+			}
+		},
+		BOOLEAN(Boolean.class)
+		{
+			@Override
+			Object box( long bits )
+			{
+				return bits != 0;
+			}
+
+			@Override
+			long toBits( Object value )
+			{
+				return ( Boolean ) value ? 1 : 0;
+			}
+
+			@Override
+			void fire( AttributeChangeListener listener, JavaBeanRecord record, String name, long oldBits, long bits )
+			{
+				listener.onBooleanChange( record, name, oldBits != 0, bits != 0 );
+			}
+		};
+		
+		private final Class<?> boxedType;
+
+		private PrimitiveType(@Nonnull final Class<?> boxedType)
+		{
+			this.boxedType = boxedType;
+		}
+
+		boolean isInstance(@Nullable final Object value)
+		{
+			return boxedType.isInstance( value );
+		}
+
+		@Nonnull
+		abstract Object box(long bits);
+
+		abstract long toBits(@Nonnull Object value);
+
+		abstract void fire(@Nonnull AttributeChangeListener listener, @Nonnull JavaBeanRecord record, @Nonnull String name,
+				long oldBits, long bits);
 	}
 }
@@ -0,0 +1,340 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package de.doe300.activerecord.record.bean;
+
+import de.doe300.activerecord.record.ActiveRecord;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nonnull;
+
+/**
+ * PropertyChangeListener delivering the events asynchronously to another listener.
+ * 
+ * Events are queued per record and handed to the {@link Executor}, so events of the same record are delivered in the
+ * order they were fired, while events of different records may be delivered in parallel.
+ * The executor can be any executor, e.g. a thread-pool or (on Java 21+) a virtual-thread-per-task executor.
+ * 
+ * Every record-queue is bounded, the {@link OverflowPolicy} determines what happens if the queue is full.
+ * NOTE: With {@link OverflowPolicy#BLOCK}, the delegate listener must not change the record it is notified about, or
+ * it may block itself.
+ * 
+ * If the executor rejects the delivery-task, e.g. because it is shut down or saturated, the pending events are 
+ * delivered on the thread which tried to submit the task, so the queue never stalls.
+ * 
+ * @author doe300
+ */
+public class AsyncPropertyChangeListener implements PropertyChangeListener
+{
+	/**
+	 * The maximum number of events delivered in one task, before the remaining events are re-submitted to the executor
+	 */
+	private static final int MAX_EVENTS_PER_TASK = 64;
+	
+	private final PropertyChangeListener delegate;
+	private final Executor executor;
+	private final int queueCapacity;
+	private final OverflowPolicy overflowPolicy;
+	private final RecordRegistry<EventQueue> recordQueues;
+	//queue for all events not originating from a record
+	private final EventQueue otherQueue;
+
+	/**
+	 * @param delegate the listener to notify
+	 * @param executor the executor to deliver the events on
+	 * @param queueCapacity the maximum number of pending events per record
+	 * @param overflowPolicy the policy to apply if a queue is full
+	 */
+	public AsyncPropertyChangeListener(@Nonnull final PropertyChangeListener delegate, @Nonnull final Executor executor,
+			final int queueCapacity, @Nonnull final OverflowPolicy overflowPolicy)
+	{
+		if(queueCapacity < 1)
+		{
+			throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+		}
+		this.delegate = delegate;
+		this.executor = executor;
+		this.queueCapacity = queueCapacity;
+		this.overflowPolicy = overflowPolicy;
+		this.recordQueues = new RecordRegistry<>();
+		this.otherQueue = new EventQueue();
+	}
+
+	@Override
+	public void propertyChange( PropertyChangeEvent evt )
+	{
+		final EventQueue queue;
+		if(evt.getSource() instanceof ActiveRecord)
+		{
+			queue = recordQueues.computeIfAbsent( ( ActiveRecord ) evt.getSource(), (final ActiveRecord r) -> new EventQueue());
+		}
+		else
+		{
+			queue = otherQueue;
+		}
+		if(queue.offer( evt ))
+		{
+			queue.schedule();
+		}
+	}
+
+	/**
+	 * @return the listener events are delivered to
+	 */
+	@Nonnull
+	public PropertyChangeListener getDelegate()
+	{
+		return delegate;
+	}
+
+	/**
+	 * Applies the non-blocking overflow-policies to a full queue
+	 * 
+	 * @param events the full queue
+	 * @param event the new event
+	 * @param overflowPolicy the policy to apply, {@link OverflowPolicy#COALESCE} or {@link OverflowPolicy#DROP_OLDEST}
+	 * @return whether the event still needs to be added
+	 */
+	static boolean dropOrCoalesce(@Nonnull final ArrayDeque<PropertyChangeEvent> events, @Nonnull final PropertyChangeEvent event,
+			@Nonnull final OverflowPolicy overflowPolicy)
+	{
+		if(overflowPolicy == OverflowPolicy.COALESCE && event.getPropertyName() != null)
+		{
+			//the last pending event for this attribute
+			int index = -1;
+			int i = 0;
+			for(final PropertyChangeEvent pending : events)
+			{
+				if(event.getPropertyName().equals( pending.getPropertyName()))
+				{
+					index = i;
+				}
+				++i;
+			}
+			if(index >= 0)
+			{
+				//replaces the pending event at its position by rotating the queue once
+				final int size = events.size();
+				for(i = 0; i < size; ++i)
+				{
+					final PropertyChangeEvent pending = events.pollFirst();
+					events.addLast( i != index ? pending : new PropertyChangeEvent(event.getSource(), 
+							event.getPropertyName(), pending.getOldValue(), event.getNewValue()));
+				}
+				return false;
+			}
+			//fall back to dropping the oldest event
+		}
+		events.pollFirst();
+		return true;
+	}
+
+	/**
+	 * Policy what to do with a new event, if the queue of the record is full
+	 */
+	public static enum OverflowPolicy
+	{
+		/**
+		 * Blocks the thread firing the event until there is space in the queue
+		 */
+		BLOCK,
+		/**
+		 * Drops the oldest event pending for this record
+		 */
+		DROP_OLDEST,
+		/**
+		 * Merges the event with the pending event of the same attribute, keeping the old value of the pending and the new
+		 * value of the new event. The merged event keeps the position of the pending event in the queue.
+		 * If no event for this attribute is pending, the oldest event is dropped
+		 */
+		COALESCE
+	}
+
+	/**
+	 * Bounded queue of the events of a single record, which is also the task delivering these events.
+	 * Must not reference the record, so it can be stored in a {@link RecordRegistry}
+	 */
+	private final class EventQueue implements Runnable
+	{
+		private final ArrayDeque<PropertyChangeEvent> events;
+		private final ReentrantLock lock;
+		private final Condition notFull;
+		private boolean scheduled;
+
+		EventQueue()
+		{
+			this.events = new ArrayDeque<>(Math.min( queueCapacity, 16));
+			this.lock = new ReentrantLock();
+			this.notFull = lock.newCondition();
+			this.scheduled = false;
+		}
+
+		/**
+		 * @param event the event to enqueue
+		 * @return whether this queue needs to be scheduled for execution
+		 */
+		boolean offer(@Nonnull final PropertyChangeEvent event)
+		{
+			lock.lock();
+			try
+			{
+				if(events.size() >= queueCapacity && !makeSpace( event ))
+				{
+					//event was coalesced with a pending one
+					return false;
+				}
+				events.addLast( event );
+				if(scheduled)
+				{
+					return false;
+				}
+				scheduled = true;
+				return true;
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Applies the overflow-policy
+		 * 
+		 * @param event the new event
+		 * @return whether the event still needs to be added
+		 */
+		private boolean makeSpace(@Nonnull final PropertyChangeEvent event)
+		{
+			switch(overflowPolicy)
+			{
+				case BLOCK:
+					boolean interrupted = false;
+					while(events.size() >= queueCapacity)
+					{
+						try
+						{
+							notFull.await();
+						}
+						catch ( final InterruptedException ex )
+						{
+							interrupted = true;
+						}
+					}
+					if(interrupted)
+					{
+						Thread.currentThread().interrupt();
+					}
+					return true;
+				default:
+					return dropOrCoalesce( events, event, overflowPolicy );
+			}
+		}
+
+		/**
+		 * Submits this queue to the executor, after {@link #offer(java.beans.PropertyChangeEvent) } returned 
+		 * <code>true</code>
+		 */
+		void schedule()
+		{
+			if(!submit())
+			{
+				//the queue is still marked as scheduled, so no other thread delivers its events meanwhile
+				run();
+			}
+		}
+
+		@Override
+		public void run()
+		{
+			while(deliverEvents())
+			{
+				//give other records a chance, the queue is still marked as scheduled
+				if(submit())
+				{
+					return;
+				}
+				//otherwise the events are delivered on this thread
+			}
+		}
+
+		/**
+		 * @return whether the task was accepted by the executor
+		 */
+		private boolean submit()
+		{
+			try
+			{
+				executor.execute( this );
+				return true;
+			}
+			catch(final RejectedExecutionException ex)
+			{
+				return false;
+			}
+		}
+
+		/**
+		 * @return whether there are still events to deliver
+		 */
+		private boolean deliverEvents()
+		{
+			for(int i = 0; i < MAX_EVENTS_PER_TASK; ++i)
+			{
+				final PropertyChangeEvent event;
+				lock.lock();
+				try
+				{
+					event = events.pollFirst();
+					if(event == null)
+					{
+						scheduled = false;
+						return false;
+					}
+					notFull.signal();
+				}
+				finally
+				{
+					lock.unlock();
+				}
+				try
+				{
+					delegate.propertyChange( event );
+				}
+				catch(final RuntimeException ex)
+				{
+					//don't stop delivering the following events
+					final Thread thread = Thread.currentThread();
+					thread.getUncaughtExceptionHandler().uncaughtException( thread, ex );
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Listener for attribute-changes of {@link AbstractJavaBeanRecord AbstractJavaBeanRecords} with typed callbacks.
+ * 
+ * In contrast to {@link java.beans.PropertyChangeListener}, no event-object is created and primitive values are not 
+ * boxed: changes written via the primitive setters of {@link AbstractJavaBeanRecord} are delivered to the primitive 
+ * callbacks without allocating for the notification, as long as no PropertyChangeListener is registered for the 
+ * attribute and no {@link PropertyChangeBatch} is open. Otherwise, and for all other changes, 
+ * {@link #onChange(JavaBeanRecord, String, Object, Object) } is called. The value written to the record-store is boxed 
+ * in any case.
+ * 
+ * The primitive callbacks default to boxing the values and calling {@link #onChange(JavaBeanRecord, String, Object, Object) }.
+ * 
+ * @author doe300
+ * @see AbstractJavaBeanRecord#addAttributeChangeListener(de.doe300.activerecord.record.bean.AttributeChangeListener) 
+ */
+@FunctionalInterface
+public interface AttributeChangeListener
+{
+	/**
+	 * @param record the changed record
+	 * @param attributeName the name of the changed attribute
+	 * @param oldValue the old value
+	 * @param newValue the new value
+	 */
+	public void onChange(@Nonnull final JavaBeanRecord record, @Nonnull final String attributeName, 
+			@Nullable final Object oldValue, @Nullable final Object newValue);
+
+	/**
+	 * @param record the changed record
+	 * @param attributeName the name of the changed attribute
+	 * @param oldValue the old value
+	 * @param newValue the new value
+	 */
+	public default void onIntChange(@Nonnull final JavaBeanRecord record, @Nonnull final String attributeName, 
+			final int oldValue, final int newValue)
+	{
+		onChange( record, attributeName, oldValue, newValue );
+	}
+
+	/**
+	 * @param record the changed record
+	 * @param attributeName the name of the changed attribute
+	 * @param oldValue the old value
+	 * @param newValue the new value
+	 */
+	public default void onLongChange(@Nonnull final JavaBeanRecord record, @Nonnull final String attributeName, 
+			final long oldValue, final long newValue)
+	{
+		onChange( record, attributeName, oldValue, newValue );
+	}
+
+	/**
+	 * @param record the changed record
+	 * @param attributeName the name of the changed attribute
+	 * @param oldValue the old value
+	 * @param newValue the new value
+	 */
+	public default void onDoubleChange(@Nonnull final JavaBeanRecord record, @Nonnull final String attributeName, 
+			final double oldValue, final double newValue)
+	{
+		onChange( record, attributeName, oldValue, newValue );
+	}
+
+	/**
+	 * @param record the changed record
+	 * @param attributeName the name of the changed attribute
+	 * @param oldValue the old value
+	 * @param newValue the new value
+	 */
+	public default void onBooleanChange(@Nonnull final JavaBeanRecord record, @Nonnull final String attributeName, 
+			final boolean oldValue, final boolean newValue)
+	{
+		onChange( record, attributeName, oldValue, newValue );
+	}
+}
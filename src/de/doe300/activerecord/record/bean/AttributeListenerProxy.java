@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeListenerProxy;
+import java.util.Objects;
+import javax.annotation.Nonnull;
+
+/**
+ * Proxy for a listener registered for a single attribute, used by the default implementations of 
+ * {@link JavaBeanRecord}.
+ * 
+ * Listener-lists supporting {@link PropertyChangeListenerProxy} (as {@link java.beans.PropertyChangeSupport}) register 
+ * the listener for the attribute, other lists register the proxy itself, which then only forwards the changes of the
+ * attribute. Proxies for the same attribute and listener are equal, so the listener can be removed with a new proxy.
+ *
+ * @author doe300
+ */
+final class AttributeListenerProxy extends PropertyChangeListenerProxy
+{
+	AttributeListenerProxy(@Nonnull final String attributeName, @Nonnull final PropertyChangeListener listener)
+	{
+		super(attributeName, listener);
+	}
+
+	@Override
+	public void propertyChange( PropertyChangeEvent evt )
+	{
+		if(getPropertyName().equals( evt.getPropertyName()))
+		{
+			super.propertyChange( evt );
+		}
+	}
+
+	@Override
+	public boolean equals( Object obj )
+	{
+		if(this == obj)
+		{
+			return true;
+		}
+		if(!(obj instanceof AttributeListenerProxy))
+		{
+			return false;
+		}
+		final AttributeListenerProxy other = ( AttributeListenerProxy ) obj;
+		return getPropertyName().equals( other.getPropertyName()) && getListener().equals( other.getListener());
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Objects.hash( getPropertyName(), getListener());
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+/**
+ * Interfaces for publishing change-events with back-pressure.
+ * 
+ * These interfaces mirror the Reactive Streams interfaces (<code>java.util.concurrent.Flow</code> on Java 9+) with the
+ * same method-signatures and semantics, so they can be adapted to any reactive library with a single method-reference
+ * per interface.
+ *
+ * @author doe300
+ * @see PropertyChangePublisher
+ */
+public final class ChangeFlow
+{
+	private ChangeFlow()
+	{
+	}
+
+	/**
+	 * A producer of items, which are received by its subscribers
+	 * 
+	 * @param <T> the type of the items
+	 */
+	@FunctionalInterface
+	public static interface Publisher<T>
+	{
+		/**
+		 * Adds the subscriber. The subscriber is notified via {@link Subscriber#onSubscribe(ChangeFlow.Subscription)}
+		 * before receiving any item.
+		 * 
+		 * @param subscriber the subscriber to add
+		 */
+		public void subscribe(Subscriber<? super T> subscriber);
+	}
+
+	/**
+	 * A receiver of items. The methods of a subscriber are never called concurrently.
+	 * 
+	 * @param <T> the type of the items
+	 */
+	public static interface Subscriber<T>
+	{
+		/**
+		 * Called before any other method for the given subscription.
+		 * No items are received until they are {@link Subscription#request(long) requested}
+		 * 
+		 * @param subscription the new subscription
+		 */
+		public void onSubscribe(Subscription subscription);
+
+		/**
+		 * Called with the next item, only if requested
+		 * 
+		 * @param item the next item
+		 */
+		public void onNext(T item);
+
+		/**
+		 * Called when the subscription is terminated with an error. No other method is called afterwards.
+		 * 
+		 * @param throwable the error
+		 */
+		public void onError(Throwable throwable);
+
+		/**
+		 * Called when the subscription is completed. No other method is called afterwards.
+		 */
+		public void onComplete();
+	}
+
+	/**
+	 * The link between a publisher and a subscriber
+	 */
+	public static interface Subscription
+	{
+		/**
+		 * Adds the given number of items to the demand of the subscriber. {@link Long#MAX_VALUE} requests an unbounded
+		 * number of items.
+		 * 
+		 * @param n the number of additional items to receive, must be positive
+		 */
+		public void request(long n);
+
+		/**
+		 * Stops receiving items. Items already delivered may still be received.
+		 */
+		public void cancel();
+	}
+}
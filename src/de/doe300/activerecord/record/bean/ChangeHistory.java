@@ -0,0 +1,476 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import de.doe300.activerecord.record.ActiveRecord;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Objects;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Undo/redo-history of the attribute-changes of records, recorded as {@link PropertyChangeListener}.
+ * 
+ * Every change is stored as delta of a single attribute in a set of parallel arrays used as ring-buffer, so no object 
+ * is retained per change except for the old and new value. Consecutive changes of the same attribute within the 
+ * merge-window are merged into a single change, e.g. typing into a text-field. If the capacity is reached, the oldest 
+ * changes are dropped.
+ * 
+ * Undoing and redoing writes the value to the record (respecting the write-behind mode of 
+ * {@link AbstractJavaBeanRecord AbstractJavaBeanRecords}) and fires the change to the listeners of the record, so 
+ * other listeners and bound properties are updated. Proxied records are written via their setter of the attribute, so 
+ * their proxy-handlers see the write. The value is written and the change fired without holding the lock of this 
+ * history. The history must be notified synchronously, changes fired on the undoing or redoing thread are not recorded 
+ * until the write is finished or, within a {@link PropertyChangeBatch}, until the batch is closed.
+ * 
+ * <pre>
+ * ChangeHistory history = new ChangeHistory();
+ * record.addPropertyChangeListener(history);
+ * record.setName("Adam");
+ * history.undo();
+ * </pre>
+ * 
+ * @author doe300
+ */
+public class ChangeHistory implements PropertyChangeListener
+{
+	/**
+	 * The default maximum number of changes stored
+	 */
+	public static final int DEFAULT_CAPACITY = 1000;
+	/**
+	 * The default time in milliseconds, consecutive changes of the same attribute are merged within
+	 */
+	public static final long DEFAULT_MERGE_WINDOW = 1000;
+	private static final int INITIAL_SIZE = 16;
+
+	private final int capacity;
+	private final long mergeWindowNanos;
+	//parallel ring-buffers, the change with the logical index i is stored at (start + i) % length
+	private ActiveRecord[] records;
+	private String[] attributeNames;
+	private Object[] oldValues;
+	private Object[] newValues;
+	private long[] timestamps;
+	private int start;
+	//number of changes stored
+	private int size;
+	//number of changes applied, the changes from position to size can be redone
+	private int position;
+	private boolean mergeable;
+	//set for the thread writing an undone or redone change
+	private final ThreadLocal<Boolean> applying = new ThreadLocal<>();
+
+	/**
+	 * Creates a history with the {@link #DEFAULT_CAPACITY default capacity} and 
+	 * {@link #DEFAULT_MERGE_WINDOW default merge-window}
+	 */
+	public ChangeHistory()
+	{
+		this(DEFAULT_CAPACITY, DEFAULT_MERGE_WINDOW);
+	}
+
+	/**
+	 * @param capacity the maximum number of changes to store
+	 * @param mergeWindowMillis the time in milliseconds, consecutive changes of the same attribute are merged within.
+	 * Set to zero to disable merging
+	 */
+	public ChangeHistory(final int capacity, final long mergeWindowMillis)
+	{
+		if(capacity <= 0)
+		{
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		if(mergeWindowMillis < 0)
+		{
+			throw new IllegalArgumentException("Merge-window must not be negative: " + mergeWindowMillis);
+		}
+		this.capacity = capacity;
+		this.mergeWindowNanos = mergeWindowMillis * 1_000_000L;
+		final int length = Math.min( capacity, INITIAL_SIZE );
+		this.records = new ActiveRecord[length];
+		this.attributeNames = new String[length];
+		this.oldValues = new Object[length];
+		this.newValues = new Object[length];
+		this.timestamps = new long[length];
+	}
+
+	@Override
+	public void propertyChange( PropertyChangeEvent evt )
+	{
+		if(applying.get() != null || !(evt.getSource() instanceof ActiveRecord) || evt.getPropertyName() == null)
+		{
+			return;
+		}
+		record(( ActiveRecord ) evt.getSource(), evt.getPropertyName(), evt.getOldValue(), evt.getNewValue());
+	}
+
+	/**
+	 * Records the change of an attribute, dropping all changes which could be redone
+	 * 
+	 * @param record the changed record
+	 * @param attributeName the name of the changed attribute
+	 * @param oldValue the old value
+	 * @param newValue the new value
+	 */
+	public synchronized void record(@Nonnull final ActiveRecord record, @Nonnull final String attributeName, 
+			@Nullable final Object oldValue, @Nullable final Object newValue)
+	{
+		if(Objects.equals( oldValue, newValue))
+		{
+			return;
+		}
+		//a new change discards the redo-history
+		truncate( position );
+		final long now = System.nanoTime();
+		if(mergeable && size > 0)
+		{
+			final int last = index( size - 1 );
+			if(records[last] == record && attributeNames[last].equals( attributeName) && 
+					now - timestamps[last] <= mergeWindowNanos)
+			{
+				newValues[last] = newValue;
+				timestamps[last] = now;
+				if(Objects.equals( oldValues[last], newValue))
+				{
+					//changed back to the original value
+					truncate( size - 1 );
+					mergeable = false;
+				}
+				return;
+			}
+		}
+		if(size == capacity)
+		{
+			//drop the oldest change
+			clear( start );
+			start = index( 1 );
+			--size;
+		}
+		else if(size == records.length)
+		{
+			grow();
+		}
+		final int index = index( size );
+		records[index] = record;
+		attributeNames[index] = attributeName;
+		oldValues[index] = oldValue;
+		newValues[index] = newValue;
+		timestamps[index] = now;
+		++size;
+		position = size;
+		mergeable = mergeWindowNanos > 0;
+	}
+
+	/**
+	 * Stops merging the next change with the previous change, e.g. when the input-focus changes
+	 */
+	public synchronized void markBoundary()
+	{
+		mergeable = false;
+	}
+
+	/**
+	 * @return whether there is a change to undo
+	 */
+	public synchronized boolean canUndo()
+	{
+		return position > 0;
+	}
+
+	/**
+	 * @return whether there is an undone change to redo
+	 */
+	public synchronized boolean canRedo()
+	{
+		return position < size;
+	}
+
+	/**
+	 * @return the number of changes which can be undone
+	 */
+	public synchronized int getUndoCount()
+	{
+		return position;
+	}
+
+	/**
+	 * @return the number of changes which can be redone
+	 */
+	public synchronized int getRedoCount()
+	{
+		return size - position;
+	}
+
+	/**
+	 * @return the maximum number of changes stored
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * Reverts the last applied change by writing the old value
+	 * 
+	 * @return whether a change was undone
+	 */
+	public boolean undo()
+	{
+		final ActiveRecord record;
+		final String attributeName;
+		final Object currentValue;
+		final Object value;
+		synchronized(this)
+		{
+			if(position == 0)
+			{
+				return false;
+			}
+			final int index = index( position - 1 );
+			record = records[index];
+			attributeName = attributeNames[index];
+			currentValue = newValues[index];
+			value = oldValues[index];
+			--position;
+			mergeable = false;
+		}
+		apply( record, attributeName, currentValue, value );
+		return true;
+	}
+
+	/**
+	 * Re-applies the last undone change by writing the new value
+	 * 
+	 * @return whether a change was redone
+	 */
+	public boolean redo()
+	{
+		final ActiveRecord record;
+		final String attributeName;
+		final Object currentValue;
+		final Object value;
+		synchronized(this)
+		{
+			if(position == size)
+			{
+				return false;
+			}
+			final int index = index( position );
+			record = records[index];
+			attributeName = attributeNames[index];
+			currentValue = oldValues[index];
+			value = newValues[index];
+			++position;
+			mergeable = false;
+		}
+		apply( record, attributeName, currentValue, value );
+		return true;
+	}
+
+	/**
+	 * Removes all changes from this history
+	 */
+	public synchronized void clear()
+	{
+		truncate( 0 );
+		start = 0;
+	}
+
+	private void apply(@Nonnull final ActiveRecord record, @Nonnull final String attributeName, 
+			@Nullable final Object currentValue, @Nullable final Object value)
+	{
+		if(applying.get() != null)
+		{
+			//already suppressed by an earlier change applied within the open batch
+			writeValue( record, attributeName, currentValue, value );
+			return;
+		}
+		applying.set( Boolean.TRUE);
+		boolean deferred = false;
+		try
+		{
+			writeValue( record, attributeName, currentValue, value );
+			//the changes fired are delivered when the batch is closed, so they are suppressed until then
+			deferred = PropertyChangeBatch.afterClose( applying::remove );
+		}
+		finally
+		{
+			if(!deferred)
+			{
+				applying.remove();
+			}
+		}
+	}
+
+	/**
+	 * Writes the value of an attribute through the record and fires the change, as if it was set by the application. 
+	 * {@link AbstractJavaBeanRecord AbstractJavaBeanRecords} are written via 
+	 * {@link AbstractJavaBeanRecord#writeAttribute(java.lang.String, java.lang.Object) }, so pending changes and 
+	 * write-behind are respected. Other records are written via the public setter of the attribute, if any, so their 
+	 * proxy-handlers are invoked, or directly into the record-store otherwise.
+	 * 
+	 * @param record the record to write
+	 * @param attributeName the name of the attribute
+	 * @param currentValue the current value of the attribute, fired as old value
+	 * @param value the value to write
+	 */
+	public static void writeValue(@Nonnull final ActiveRecord record, @Nonnull final String attributeName, 
+			@Nullable final Object currentValue, @Nullable final Object value)
+	{
+		if(record instanceof AbstractJavaBeanRecord)
+		{
+			//does not notify the listeners of the record
+			(( AbstractJavaBeanRecord ) record).writeAttribute( attributeName, value );
+		}
+		else if(invokeSetter( record, attributeName, value ))
+		{
+			//the proxy-handlers of the record already fired the change
+			return;
+		}
+		else
+		{
+			record.getBase().getStore().setValue( record.getBase(), record.getPrimaryKey(), attributeName, value);
+		}
+		if(record instanceof JavaBeanRecord)
+		{
+			(( JavaBeanRecord ) record).firePropertyChange( attributeName, currentValue, value );
+		}
+	}
+
+	/**
+	 * Writes the value via the public setter of the attribute, e.g. <code>setName</code> for the attribute "name"
+	 * 
+	 * @return whether a setter accepting the value was found
+	 */
+	private static boolean invokeSetter(@Nonnull final ActiveRecord record, @Nonnull final String attributeName, 
+			@Nullable final Object value)
+	{
+		final String setterName = "set" + Character.toUpperCase( attributeName.charAt( 0)) + attributeName.substring( 1);
+		for(final Method method : record.getClass().getMethods())
+		{
+			if(!method.getName().equals( setterName ) || method.getParameterCount() != 1)
+			{
+				continue;
+			}
+			final Class<?> parameterType = method.getParameterTypes()[0];
+			if(value == null ? parameterType.isPrimitive() : 
+					!MethodType.methodType( parameterType ).wrap().returnType().isInstance( value ))
+			{
+				continue;
+			}
+			try
+			{
+				method.invoke( record, value );
+				return true;
+			}
+			catch(final IllegalAccessException ex)
+			{
+				throw new IllegalStateException("Failed to invoke setter: " + method, ex);
+			}
+			catch(final InvocationTargetException ex)
+			{
+				if(ex.getCause() instanceof RuntimeException)
+				{
+					throw ( RuntimeException ) ex.getCause();
+				}
+				if(ex.getCause() instanceof Error)
+				{
+					throw ( Error ) ex.getCause();
+				}
+				throw new IllegalStateException("Failed to invoke setter: " + method, ex.getCause());
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Drops all changes from the given logical index on
+	 * 
+	 * @param newSize the new number of changes
+	 */
+	private void truncate(final int newSize)
+	{
+		for(int i = newSize; i < size; ++i)
+		{
+			clear( index( i ));
+		}
+		size = newSize;
+		position = Math.min( position, newSize );
+	}
+
+	private void clear(final int index)
+	{
+		//release the references for the garbage-collector
+		records[index] = null;
+		attributeNames[index] = null;
+		oldValues[index] = null;
+		newValues[index] = null;
+	}
+
+	private int index(final int logicalIndex)
+	{
+		return (start + logicalIndex) % records.length;
+	}
+
+	private void grow()
+	{
+		final int oldLength = records.length;
+		final int length = Math.min( capacity, oldLength * 2 );
+		records = unwrap( records, oldLength, length );
+		attributeNames = unwrap( attributeNames, oldLength, length );
+		oldValues = unwrap( oldValues, oldLength, length );
+		newValues = unwrap( newValues, oldLength, length );
+		final long[] newTimestamps = new long[length];
+		for(int i = 0; i < size; ++i)
+		{
+			newTimestamps[i] = timestamps[(start + i) % oldLength];
+		}
+		timestamps = newTimestamps;
+		start = 0;
+	}
+
+	/**
+	 * @return a copy of the ring-buffer with the given length starting with the first change
+	 */
+	private <T> T[] unwrap(@Nonnull final T[] buffer, final int oldLength, final int length)
+	{
+		final T[] result = Arrays.copyOf( buffer, length );
+		for(int i = 0; i < size; ++i)
+		{
+			result[i] = buffer[(start + i) % oldLength];
+		}
+		for(int i = size; i < length; ++i)
+		{
+			result[i] = null;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Static holder for the {@link ChangeMetricsCollector} used by the change-notification.
+ * 
+ * No metrics are collected by default, the hot paths then only check a single volatile field.
+ *
+ * @author doe300
+ */
+public final class ChangeMetrics
+{
+	/**
+	 * The name the {@link DefaultChangeMetricsCollector} is registered with in the platform MBean server
+	 */
+	public static final String MBEAN_NAME = "de.doe300.activerecord.record.bean:type=ChangeMetrics";
+	
+	private static volatile ChangeMetricsCollector collector;
+	private static final Set<PropertyChangeProxyHandler> HANDLERS = Collections.synchronizedSet( Collections.newSetFromMap(
+			new WeakHashMap<>(4)));
+
+	private ChangeMetrics()
+	{
+	}
+
+	/**
+	 * @return the current collector or <code>null</code>, if no metrics are collected
+	 */
+	@Nullable
+	public static ChangeMetricsCollector getCollector()
+	{
+		return collector;
+	}
+
+	/**
+	 * @param metricsCollector the new collector, <code>null</code> disables collecting metrics
+	 */
+	public static void setCollector(@Nullable final ChangeMetricsCollector metricsCollector)
+	{
+		collector = metricsCollector;
+	}
+
+	/**
+	 * Creates a new {@link DefaultChangeMetricsCollector}, registers it in the platform MBean server (replacing any
+	 * previously registered one) and sets it as the current collector
+	 * 
+	 * @return the new collector
+	 * @throws JMException if the registration fails
+	 * @see #MBEAN_NAME
+	 */
+	@Nonnull
+	public static synchronized DefaultChangeMetricsCollector enableDefaultMetrics() throws JMException
+	{
+		final DefaultChangeMetricsCollector metrics = new DefaultChangeMetricsCollector();
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName name = new ObjectName(MBEAN_NAME);
+		if(server.isRegistered( name ))
+		{
+			server.unregisterMBean( name );
+		}
+		server.registerMBean( metrics, name );
+		collector = metrics;
+		return metrics;
+	}
+
+	/**
+	 * @return the number of records with listeners held by all live {@link PropertyChangeProxyHandler}s
+	 */
+	public static int getRegisteredRecordCount()
+	{
+		int count = 0;
+		synchronized(HANDLERS)
+		{
+			for(final PropertyChangeProxyHandler handler : HANDLERS)
+			{
+				count += handler.getRegisteredRecordCount();
+			}
+		}
+		return count;
+	}
+
+	static void registerHandler(@Nonnull final PropertyChangeProxyHandler handler)
+	{
+		HANDLERS.add( handler );
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import java.beans.PropertyChangeListener;
+import javax.annotation.Nonnull;
+
+/**
+ * SPI for collecting metrics about the change-notification.
+ * 
+ * The methods are called on the hot paths of setting attributes and notifying listeners and must therefore be cheap
+ * and thread-safe.
+ *
+ * @author doe300
+ * @see ChangeMetrics#setCollector(ChangeMetricsCollector) 
+ * @see DefaultChangeMetricsCollector
+ */
+public interface ChangeMetricsCollector
+{
+	/**
+	 * Called for every event delivered to the listeners
+	 */
+	public void eventFired();
+
+	/**
+	 * Called every time, the old value of an attribute is read from the record-store only to fire a change-event
+	 */
+	public void oldValueRead();
+
+	/**
+	 * Called after a listener was notified
+	 * 
+	 * @param listener the notified listener
+	 * @param durationNanos the time in nanoseconds the listener took to handle the event
+	 */
+	public void listenerNotified(@Nonnull final PropertyChangeListener listener, final long durationNanos);
+}
@@ -0,0 +1,191 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import java.beans.PropertyChangeListener;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nonnull;
+
+/**
+ * Default metrics-collector using {@link LongAdder}s for the counters and a latency-histogram per listener-class.
+ * 
+ * The listeners are grouped by their class-name, so collecting metrics does not keep any listener alive.
+ *
+ * @author doe300
+ * @see ChangeMetrics#enableDefaultMetrics() 
+ */
+public class DefaultChangeMetricsCollector implements ChangeMetricsCollector, DefaultChangeMetricsCollectorMBean
+{
+	private final LongAdder firedEvents = new LongAdder();
+	private final LongAdder oldValueReads = new LongAdder();
+	private final ConcurrentMap<String, LatencyHistogram> listenerLatencies = new ConcurrentHashMap<>(16);
+
+	@Override
+	public void eventFired()
+	{
+		firedEvents.increment();
+	}
+
+	@Override
+	public void oldValueRead()
+	{
+		oldValueReads.increment();
+	}
+
+	@Override
+	public void listenerNotified( PropertyChangeListener listener, long durationNanos )
+	{
+		final String name = listener.getClass().getName();
+		LatencyHistogram histogram = listenerLatencies.get( name );
+		if(histogram == null)
+		{
+			histogram = listenerLatencies.computeIfAbsent( name, (final String n) -> new LatencyHistogram());
+		}
+		histogram.record( durationNanos );
+	}
+
+	@Override
+	public long getFiredEvents()
+	{
+		return firedEvents.sum();
+	}
+
+	@Override
+	public long getOldValueReads()
+	{
+		return oldValueReads.sum();
+	}
+
+	@Override
+	public int getRegisteredRecords()
+	{
+		return ChangeMetrics.getRegisteredRecordCount();
+	}
+
+	@Override
+	public String[] getListenerNames()
+	{
+		return listenerLatencies.keySet().toArray( new String[0]);
+	}
+
+	@Override
+	public long getListenerNotifications( String listenerName )
+	{
+		final LatencyHistogram histogram = listenerLatencies.get( listenerName );
+		return histogram == null ? 0 : histogram.getCount();
+	}
+
+	@Override
+	public double getListenerMeanNanos( String listenerName )
+	{
+		final LatencyHistogram histogram = listenerLatencies.get( listenerName );
+		return histogram == null ? 0 : histogram.getMean();
+	}
+
+	@Override
+	public long getListenerPercentileNanos( String listenerName, double percentile )
+	{
+		final LatencyHistogram histogram = listenerLatencies.get( listenerName );
+		return histogram == null ? 0 : histogram.getPercentile( percentile );
+	}
+
+	@Override
+	public void reset()
+	{
+		firedEvents.reset();
+		oldValueReads.reset();
+		listenerLatencies.clear();
+	}
+
+	/**
+	 * Lock-free histogram with power-of-two buckets, bucket <code>i</code> counts the durations in the range
+	 * [2<sup>i-1</sup>, 2<sup>i</sup>)
+	 */
+	static final class LatencyHistogram
+	{
+		private final LongAdder[] buckets = new LongAdder[Long.SIZE + 1];
+		private final LongAdder totalNanos = new LongAdder();
+
+		LatencyHistogram()
+		{
+			for(int i = 0; i < buckets.length; i++)
+			{
+				buckets[i] = new LongAdder();
+			}
+		}
+
+		void record(final long durationNanos)
+		{
+			final long duration = Math.max( 0, durationNanos);
+			buckets[Long.SIZE - Long.numberOfLeadingZeros( duration )].increment();
+			totalNanos.add( duration );
+		}
+
+		long getCount()
+		{
+			long count = 0;
+			for(final LongAdder bucket : buckets)
+			{
+				count += bucket.sum();
+			}
+			return count;
+		}
+
+		double getMean()
+		{
+			final long count = getCount();
+			return count == 0 ? 0 : totalNanos.sum() / ( double ) count;
+		}
+
+		long getPercentile(final double percentile)
+		{
+			final long[] counts = new long[buckets.length];
+			long total = 0;
+			for(int i = 0; i < counts.length; i++)
+			{
+				counts[i] = buckets[i].sum();
+				total += counts[i];
+			}
+			final long threshold = ( long ) Math.ceil( total * Math.min( 100, Math.max( 0, percentile)) / 100.0);
+			long accumulated = 0;
+			for(int i = 0; i < counts.length; i++)
+			{
+				accumulated += counts[i];
+				if(accumulated >= threshold && counts[i] > 0)
+				{
+					return getUpperBound( i );
+				}
+			}
+			return 0;
+		}
+
+		private static long getUpperBound(final int bucket)
+		{
+			return bucket >= Long.SIZE - 1 ? Long.MAX_VALUE : 1L << bucket;
+		}
+	}
+}
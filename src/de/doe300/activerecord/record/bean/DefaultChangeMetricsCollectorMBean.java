@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+/**
+ * JMX-interface of the {@link DefaultChangeMetricsCollector}
+ *
+ * @author doe300
+ */
+public interface DefaultChangeMetricsCollectorMBean
+{
+	/**
+	 * @return the number of change-events fired
+	 */
+	public long getFiredEvents();
+
+	/**
+	 * @return the number of old values read from the record-store to fire change-events
+	 */
+	public long getOldValueReads();
+
+	/**
+	 * @return the number of records with listeners held by all live proxy-handlers
+	 */
+	public int getRegisteredRecords();
+
+	/**
+	 * @return the class-names of all listeners notified so far
+	 */
+	public String[] getListenerNames();
+
+	/**
+	 * @param listenerName the class-name of the listener
+	 * @return the number of notifications of the listener
+	 */
+	public long getListenerNotifications(String listenerName);
+
+	/**
+	 * @param listenerName the class-name of the listener
+	 * @return the mean time in nanoseconds the listener took to handle an event
+	 */
+	public double getListenerMeanNanos(String listenerName);
+
+	/**
+	 * @param listenerName the class-name of the listener
+	 * @param percentile the percentile in the range [0, 100]
+	 * @return the upper bound in nanoseconds of the given percentile of the listener's latencies
+	 */
+	public long getListenerPercentileNanos(String listenerName, double percentile);
+
+	/**
+	 * Resets all counters and histograms
+	 */
+	public void reset();
+}
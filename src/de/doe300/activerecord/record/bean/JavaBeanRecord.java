@@ -26,6 +26,7 @@ package de.doe300.activerecord.record.bean;
 
 import de.doe300.activerecord.record.ActiveRecord;
 import java.beans.PropertyChangeListener;
+import java.util.function.Predicate;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -44,6 +45,55 @@ public interface JavaBeanRecord extends ActiveRecord
 	 */
     public void removePropertyChangeListener(@Nullable final PropertyChangeListener listener);
 	
+	/**
+	 * Adds a listener which is only notified about changes of the given attribute.
+	 * The old value of an attribute is only read, if any listener is registered for this attribute.
+	 * 
+	 * The default implementation adds a {@link java.beans.PropertyChangeListenerProxy} for the attribute, which only
+	 * forwards the changes of this attribute.
+	 * 
+	 * @param attributeName the name of the attribute to listen to
+	 * @param listener the listener to add
+	 */
+	public default void addPropertyChangeListener(@Nonnull final String attributeName, @Nullable final PropertyChangeListener listener)
+	{
+		if(listener != null)
+		{
+			addPropertyChangeListener( new AttributeListenerProxy(attributeName, listener));
+		}
+	}
+	
+	/**
+	 * The default implementation removes the proxy added by the default implementation of 
+	 * {@link #addPropertyChangeListener(java.lang.String, java.beans.PropertyChangeListener) }.
+	 * 
+	 * @param attributeName the name of the attribute the listener was added for
+	 * @param listener the listener to remove
+	 */
+	public default void removePropertyChangeListener(@Nonnull final String attributeName, @Nullable final PropertyChangeListener listener)
+	{
+		if(listener != null)
+		{
+			removePropertyChangeListener( new AttributeListenerProxy(attributeName, listener));
+		}
+	}
+	
+	/**
+	 * Adds a listener which is only notified about changes of the attributes accepted by the filter.
+	 * The listener can be removed via {@link #removePropertyChangeListener(java.beans.PropertyChangeListener) }
+	 * 
+	 * The default implementation throws an {@link UnsupportedOperationException}, since a listener wrapped with the
+	 * filter could not be removed via the listener itself.
+	 * 
+	 * @param attributeFilter the filter for the names of the attributes to listen to
+	 * @param listener the listener to add
+	 * @throws UnsupportedOperationException if the record does not support filtered listeners
+	 */
+	public default void addPropertyChangeListener(@Nonnull final Predicate<String> attributeFilter, @Nullable final PropertyChangeListener listener)
+	{
+		throw new UnsupportedOperationException("Filtered listeners are not supported by " + getClass().getName());
+	}
+	
 	/**
 	 * Fires a change-event to notify all registered listeners
 	 * 
@@ -0,0 +1,380 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import de.doe300.activerecord.pojo.POJOBase;
+import java.beans.Introspector;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Generated;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Annotation-processor to generate implementations for {@link JavaBeanRecord} interfaces annotated with
+ * {@link GenerateJavaBean}.
+ * 
+ * Every abstract getter (<code>getX()</code>, <code>isX()</code>) and setter (<code>setX(value)</code>) of the
+ * interface is implemented by reading from or writing to the record-store via {@link AbstractJavaBeanRecord}, which
+ * also notifies the registered listeners.
+ * 
+ * The annotations configuring the record-type (e.g. {@link de.doe300.activerecord.record.RecordType}) are copied from 
+ * the interface to the generated class, so both are mapped to the same table.
+ *
+ * @author doe300
+ * @see GenerateJavaBean
+ */
+@SupportedSourceVersion( SourceVersion.RELEASE_8 )
+@SupportedAnnotationTypes( "de.doe300.activerecord.record.bean.GenerateJavaBean" )
+public class JavaBeanRecordGenerator extends AbstractProcessor
+{
+	private static final String ATTRIBUTE_ANNOTATION = "de.doe300.activerecord.record.attributes.Attribute";
+	private static final String RECORD_ANNOTATIONS_PACKAGE = "de.doe300.activerecord.";
+	//annotations triggering the generation of code for the interface, which must not be repeated for the class
+	private static final String GENERATION_ANNOTATIONS_PACKAGE = "de.doe300.activerecord.record.attributes.generation.";
+	
+	private final Set<String> processedElements = new HashSet<>( 10 );
+	private final DateFormat ISO_8601_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+
+	@Override
+	public boolean process( Set<? extends TypeElement> annotations, RoundEnvironment roundEnv )
+	{
+		roundEnv.getElementsAnnotatedWith( GenerateJavaBean.class ).forEach( (final Element e) ->
+		{
+			if(e.getKind() != ElementKind.INTERFACE)
+			{
+				processingEnv.getMessager().printMessage( Diagnostic.Kind.ERROR, "Only interfaces can be annotated with "
+						+ GenerateJavaBean.class.getSimpleName(), e );
+				return;
+			}
+			processRecordType( ( TypeElement ) e );
+		} );
+		return true;
+	}
+
+	private void processRecordType( @Nonnull final TypeElement recordTypeElement )
+	{
+		if ( !processedElements.add( recordTypeElement.getQualifiedName().toString() ) )
+		{
+			return;
+		}
+		final TypeMirror beanRecordType = processingEnv.getElementUtils().getTypeElement( JavaBeanRecord.class.
+				getCanonicalName()).asType();
+		if(!processingEnv.getTypeUtils().isAssignable( recordTypeElement.asType(), beanRecordType))
+		{
+			processingEnv.getMessager().printMessage( Diagnostic.Kind.ERROR, "Type '" + recordTypeElement.getSimpleName()
+					+ "' does not extend " + JavaBeanRecord.class.getSimpleName(), recordTypeElement );
+			return;
+		}
+
+		final String generatedFileName = recordTypeElement.getSimpleName() + "Bean";
+		try
+		{
+			final StringBuilder methods = new StringBuilder(2000);
+			for(final ExecutableElement method : ElementFilter.methodsIn( processingEnv.getElementUtils().getAllMembers(
+					recordTypeElement)))
+			{
+				if(!method.getModifiers().contains( Modifier.ABSTRACT ) || isImplementedByBase( method, beanRecordType ))
+				{
+					continue;
+				}
+				final String generatedMethod = generateMethod( method );
+				if(generatedMethod == null)
+				{
+					processingEnv.getMessager().printMessage( Diagnostic.Kind.ERROR, "Method '" + method.getSimpleName()
+							+ "' is neither a getter nor a setter and can't be implemented", recordTypeElement );
+					return;
+				}
+				methods.append( generatedMethod );
+			}
+
+			final JavaFileObject destFile = processingEnv.getFiler().createSourceFile( recordTypeElement.getQualifiedName()
+					+ "Bean", recordTypeElement );
+			try (Writer writer = destFile.openWriter())
+			{
+				writer.append( "package " );
+				writer.append( processingEnv.getElementUtils().getPackageOf( recordTypeElement ).getQualifiedName().
+						toString() );
+				writer.append( ";\n" );
+
+				writer.append( "import " ).append( AbstractJavaBeanRecord.class.getCanonicalName() ).append( ";\n" );
+				writer.append( "import " ).append( POJOBase.class.getCanonicalName() ).append( ";\n" );
+				writer.append( "import ").append( Generated.class.getCanonicalName()).append( ";\n");
+				writer.append( "\n");
+
+				writer.append( "@Generated(value = {\"").append( getClass().getCanonicalName()).append( "\"}, date = \"")
+						.append( ISO_8601_DATE_FORMAT.format( new Date())).append( "\")\n");
+				writer.append( generateRecordAnnotations( recordTypeElement ));
+				writer.append( "public class " ).append( generatedFileName ).append( " extends " ).
+						append( AbstractJavaBeanRecord.class.getSimpleName() ).append( " implements " ).
+						append( recordTypeElement.getQualifiedName() );
+				writer.append( " {\n\n" );
+
+				//public TypeBean(final int primaryKey, final POJOBase<?> base) {
+				writer.append( "\tpublic ").append( generatedFileName).append( "(final int primaryKey, final " ).
+						append( POJOBase.class.getSimpleName()).append( "<?> base) {\n");
+				//super(primaryKey, base);
+				writer.append( "\t\tsuper(primaryKey, base);\n");
+				//}
+				writer.append( "\t}\n\n");
+
+				writer.append( methods );
+				writer.append( "}" );
+			}
+			processingEnv.getMessager().printMessage( Diagnostic.Kind.NOTE, "Generated: " + processingEnv.
+					getElementUtils().getPackageOf( recordTypeElement ).getQualifiedName().toString() + '.'
+					+ generatedFileName, recordTypeElement );
+		}
+		catch ( IOException ex )
+		{
+			processingEnv.getMessager().printMessage( Diagnostic.Kind.ERROR, ex.getMessage(), recordTypeElement );
+		}
+	}
+
+	/**
+	 * Copies the annotations of the record-type, e.g. <code>@RecordType</code>, which determine the table and 
+	 * behavior of the record. Only the annotations of ActiveRecord itself, which are retained at run-time, are copied.
+	 * 
+	 * @param recordTypeElement the interface the class is generated for
+	 * @return the annotations to add to the generated class
+	 */
+	@Nonnull
+	private String generateRecordAnnotations(@Nonnull final TypeElement recordTypeElement)
+	{
+		final StringBuilder sb = new StringBuilder(200);
+		for(final AnnotationMirror annotation : recordTypeElement.getAnnotationMirrors())
+		{
+			final TypeElement annotationElement = ( TypeElement ) annotation.getAnnotationType().asElement();
+			final String annotationType = annotationElement.getQualifiedName().toString();
+			final Retention retention = annotationElement.getAnnotation( Retention.class);
+			if(!annotationType.startsWith( RECORD_ANNOTATIONS_PACKAGE) || annotationType.startsWith( 
+					GENERATION_ANNOTATIONS_PACKAGE) || retention == null || retention.value() != RetentionPolicy.RUNTIME)
+			{
+				continue;
+			}
+			//@Annotation(key = value, ...)
+			sb.append( "@").append( annotationType);
+			if(!annotation.getElementValues().isEmpty())
+			{
+				sb.append( "(");
+				boolean first = true;
+				for(final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+						annotation.getElementValues().entrySet())
+				{
+					if(!first)
+					{
+						sb.append( ", ");
+					}
+					//the string-representation of an annotation-value is its representation in source-code
+					sb.append( entry.getKey().getSimpleName()).append( " = ").append( entry.getValue().toString());
+					first = false;
+				}
+				sb.append( ")");
+			}
+			sb.append( "\n");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return whether the method is declared in JavaBeanRecord or one of its super-types and therefore already
+	 *         implemented by {@link AbstractJavaBeanRecord}
+	 */
+	private boolean isImplementedByBase(@Nonnull final ExecutableElement method, @Nonnull final TypeMirror beanRecordType)
+	{
+		final TypeMirror declaringType = processingEnv.getTypeUtils().erasure( method.getEnclosingElement().asType());
+		return processingEnv.getTypeUtils().isAssignable( processingEnv.getTypeUtils().erasure( beanRecordType), declaringType);
+	}
+
+	@Nullable
+	private String generateMethod(@Nonnull final ExecutableElement method)
+	{
+		final String methodName = method.getSimpleName().toString();
+		final TypeMirror returnType = method.getReturnType();
+		if(method.getParameters().isEmpty() && returnType.getKind() != TypeKind.VOID)
+		{
+			if(methodName.startsWith( "get") && methodName.length() > 3)
+			{
+				return generateGetter( method, getAttributeName( method, methodName.substring( 3)));
+			}
+			if(methodName.startsWith( "is") && methodName.length() > 2 && (returnType.getKind() == TypeKind.BOOLEAN ||
+					Boolean.class.getCanonicalName().equals( returnType.toString())))
+			{
+				return generateGetter( method, getAttributeName( method, methodName.substring( 2)));
+			}
+		}
+		if(method.getParameters().size() == 1 && returnType.getKind() == TypeKind.VOID && methodName.startsWith( "set") &&
+				methodName.length() > 3)
+		{
+			return generateSetter( method, getAttributeName( method, methodName.substring( 3)));
+		}
+		return null;
+	}
+
+	@Nonnull
+	private String getAttributeName(@Nonnull final ExecutableElement method, @Nonnull final String propertyName)
+	{
+		//the attribute-name can be overridden by the @Attribute annotation
+		for(final AnnotationMirror annotation : method.getAnnotationMirrors())
+		{
+			if(ATTRIBUTE_ANNOTATION.equals( annotation.getAnnotationType().toString()))
+			{
+				for(final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+						annotation.getElementValues().entrySet())
+				{
+					if("name".equals( entry.getKey().getSimpleName().toString()))
+					{
+						return entry.getValue().getValue().toString();
+					}
+				}
+			}
+		}
+		return Introspector.decapitalize( propertyName );
+	}
+
+	@Nonnull
+	private String generateGetter(@Nonnull final ExecutableElement method, @Nonnull final String attributeName)
+	{
+		final TypeMirror returnType = method.getReturnType();
+		final StringBuilder sb = new StringBuilder(300);
+		sb.append( "\t@Override\n");
+		if(returnType instanceof DeclaredType && !(( DeclaredType ) returnType).getTypeArguments().isEmpty())
+		{
+			sb.append( "\t@SuppressWarnings(\"unchecked\")\n");
+		}
+		//public Type getAttribute() {
+		sb.append( "\tpublic ").append( returnType.toString()).append( " ").append( method.getSimpleName()).append( "() {\n");
+		if(returnType.getKind().isPrimitive())
+		{
+			final String boxedType = processingEnv.getTypeUtils().boxedClass( ( PrimitiveType ) returnType ).
+					getQualifiedName().toString();
+			//final Boxed value = getProperty("attribute", Boxed.class);
+			sb.append( "\t\tfinal ").append( boxedType).append( " value = getProperty(\"").append( attributeName).
+					append( "\", ").append( boxedType).append( ".class);\n");
+			//return value == null ? default : value;
+			sb.append( "\t\treturn value == null ? ").append( getDefaultValue( returnType.getKind())).append( " : value;\n");
+		}
+		else
+		{
+			//return (Type) getProperty("attribute", Type.class);
+			sb.append( "\t\treturn ");
+			final TypeMirror erasedType = processingEnv.getTypeUtils().erasure( returnType );
+			if(!processingEnv.getTypeUtils().isSameType( returnType, erasedType))
+			{
+				sb.append( "(").append( returnType.toString()).append( ") ");
+			}
+			sb.append( "getProperty(\"").append( attributeName).append( "\", ").append( erasedType.toString()).
+					append( ".class);\n");
+		}
+		//}
+		sb.append( "\t}\n\n");
+		return sb.toString();
+	}
+
+	@Nonnull
+	private String generateSetter(@Nonnull final ExecutableElement method, @Nonnull final String attributeName)
+	{
+		final StringBuilder sb = new StringBuilder(300);
+		sb.append( "\t@Override\n");
+		//public void setAttribute(final Type value) {
+		sb.append( "\tpublic void ").append( method.getSimpleName()).append( "(final ").append( method.getParameters().
+				get( 0).asType().toString()).append( " value) {\n");
+		//setProperty("attribute", value); or e.g. setIntProperty("attribute", value); to not box the value for listeners
+		sb.append( "\t\t").append( getSetterName( method.getParameters().get( 0).asType().getKind())).append( "(\"").
+				append( attributeName).append( "\", value);\n");
+		//}
+		sb.append( "\t}\n\n");
+		return sb.toString();
+	}
+
+	@Nonnull
+	private static String getSetterName(@Nonnull final TypeKind kind)
+	{
+		switch(kind)
+		{
+			case INT:
+				return "setIntProperty";
+			case LONG:
+				return "setLongProperty";
+			case DOUBLE:
+				return "setDoubleProperty";
+			case BOOLEAN:
+				return "setBooleanProperty";
+			default:
+				return "setProperty";
+		}
+	}
+
+	@Nonnull
+	private static String getDefaultValue(@Nonnull final TypeKind kind)
+	{
+		switch(kind)
+		{
+			case BOOLEAN:
+				return "false";
+			case CHAR:
+				return "'\\0'";
+			case LONG:
+				return "0L";
+			case FLOAT:
+				return "0.0f";
+			case DOUBLE:
+				return "0.0";
+			case BYTE:
+				return "(byte) 0";
+			case SHORT:
+				return "(short) 0";
+			default:
+				return "0";
+		}
+	}
+}
@@ -0,0 +1,274 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package de.doe300.activerecord.record.bean;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Scope collecting all property-changes fired by {@link JavaBeanRecord JavaBeanRecords} on the current thread.
+ * 
+ * While a batch is open, changes are coalesced per record and attribute, keeping the first old and the last new value.
+ * When the batch is closed, a single event is fired for every attribute actually changed.
+ * Batches can be nested, the events are delivered when the outermost batch is closed.
+ * The listeners of a record are looked up when the batch is closed, so listeners added while the batch is open are 
+ * notified too. Changes made while no listener at all was registered for the attribute are not collected.
+ * Exceptions thrown by the listeners notified are passed to the {@link Thread.UncaughtExceptionHandler} of the current 
+ * thread, so the remaining changes are still delivered.
+ * 
+ * <pre>
+ * try(PropertyChangeBatch batch = PropertyChangeBatch.begin())
+ * {
+ *     record.setName("Adam");
+ *     record.setName("Eve");
+ * }
+ * //listeners are notified once about the change of "name"
+ * </pre>
+ * 
+ * @author doe300
+ */
+public final class PropertyChangeBatch implements AutoCloseable
+{
+	private static final ThreadLocal<PropertyChangeBatch> CURRENT_BATCH = new ThreadLocal<>();
+	
+	private final Map<ChangeKey, PendingChange> pendingChanges;
+	//created on demand, run after the collected changes are delivered
+	private List<Runnable> closeActions;
+	private int depth;
+
+	private PropertyChangeBatch()
+	{
+		this.pendingChanges = new LinkedHashMap<>(16);
+		this.depth = 1;
+	}
+
+	/**
+	 * Opens a new batch for the current thread or joins the batch already open
+	 * 
+	 * @return the batch
+	 */
+	@Nonnull
+	public static PropertyChangeBatch begin()
+	{
+		final PropertyChangeBatch current = CURRENT_BATCH.get();
+		if(current != null)
+		{
+			++current.depth;
+			return current;
+		}
+		final PropertyChangeBatch batch = new PropertyChangeBatch();
+		CURRENT_BATCH.set( batch );
+		return batch;
+	}
+
+	/**
+	 * @return whether a batch is open for the current thread
+	 */
+	public static boolean isBatchActive()
+	{
+		return CURRENT_BATCH.get() != null;
+	}
+
+	/**
+	 * Closes this batch. If this is the outermost batch, all collected changes are delivered to their listeners
+	 * 
+	 * @throws IllegalStateException if this batch is already closed
+	 */
+	@Override
+	public void close() throws IllegalStateException
+	{
+		if(depth <= 0)
+		{
+			throw new IllegalStateException("Batch is already closed");
+		}
+		if(--depth > 0)
+		{
+			return;
+		}
+		final List<PendingChange> changes;
+		final List<Runnable> actions = closeActions;
+		try
+		{
+			changes = new ArrayList<>(pendingChanges.values());
+		}
+		finally
+		{
+			//changes fired by the listeners notified below are not part of this batch anymore
+			CURRENT_BATCH.remove();
+			pendingChanges.clear();
+			closeActions = null;
+		}
+		for(final PendingChange change : changes)
+		{
+			if(Objects.equals( change.oldValue, change.newValue))
+			{
+				continue;
+			}
+			try
+			{
+				change.target.propertyChange( new PropertyChangeEvent(change.source, change.attributeName,
+						change.oldValue, change.newValue));
+			}
+			catch(final RuntimeException ex)
+			{
+				//a failing listener must not prevent the other changes from being delivered
+				reportException( ex );
+			}
+		}
+		if(actions != null)
+		{
+			for(final Runnable action : actions)
+			{
+				try
+				{
+					action.run();
+				}
+				catch(final RuntimeException ex)
+				{
+					reportException( ex );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Registers an action to run after the batch open for the current thread, if any, delivered its changes
+	 * 
+	 * @param action the action to run
+	 * @return whether the action was registered. If not, no batch is open and the action is not run
+	 */
+	static boolean afterClose(@Nonnull final Runnable action)
+	{
+		final PropertyChangeBatch batch = CURRENT_BATCH.get();
+		if(batch == null)
+		{
+			return false;
+		}
+		if(batch.closeActions == null)
+		{
+			batch.closeActions = new ArrayList<>(4);
+		}
+		batch.closeActions.add( action );
+		return true;
+	}
+
+	private static void reportException(@Nonnull final RuntimeException ex)
+	{
+		final Thread thread = Thread.currentThread();
+		thread.getUncaughtExceptionHandler().uncaughtException( thread, ex );
+	}
+
+	/**
+	 * Adds the change to the batch open for the current thread, if any
+	 * 
+	 * @param source the record changed
+	 * @param attributeName the name of the changed attribute
+	 * @param oldValue the old value
+	 * @param newValue the new value
+	 * @param target the listener to notify about the coalesced change when the batch is closed. If the same attribute is 
+	 * changed multiple times, the target of the last change is notified
+	 * @return whether the change was collected. If not, the change must be fired immediately
+	 */
+	static boolean collect(@Nonnull final Object source, @Nonnull final String attributeName,
+			@Nullable final Object oldValue, @Nullable final Object newValue, @Nonnull final PropertyChangeListener target)
+	{
+		final PropertyChangeBatch batch = CURRENT_BATCH.get();
+		if(batch == null)
+		{
+			return false;
+		}
+		final ChangeKey key = new ChangeKey(source, attributeName);
+		final PendingChange pending = batch.pendingChanges.get( key );
+		if(pending == null)
+		{
+			batch.pendingChanges.put( key, new PendingChange(source, attributeName, oldValue, newValue, target));
+		}
+		else
+		{
+			pending.newValue = newValue;
+			pending.target = target;
+		}
+		return true;
+	}
+
+	/**
+	 * Key identifying the source by identity and the attribute by name
+	 */
+	private static final class ChangeKey
+	{
+		private final Object source;
+		private final String attributeName;
+
+		ChangeKey(@Nonnull final Object source, @Nonnull final String attributeName)
+		{
+			this.source = source;
+			this.attributeName = attributeName;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31 * System.identityHashCode( source ) + attributeName.hashCode();
+		}
+
+		@Override
+		public boolean equals( Object obj )
+		{
+			if(!(obj instanceof ChangeKey))
+			{
+				return false;
+			}
+			final ChangeKey other = ( ChangeKey ) obj;
+			return source == other.source && attributeName.equals( other.attributeName);
+		}
+	}
+
+	private static final class PendingChange
+	{
+		private final Object source;
+		private final String attributeName;
+		private final Object oldValue;
+		private Object newValue;
+		private PropertyChangeListener target;
+
+		PendingChange(@Nonnull final Object source, @Nonnull final String attributeName, @Nullable final Object oldValue,
+				@Nullable final Object newValue, @Nonnull final PropertyChangeListener target)
+		{
+			this.source = source;
+			this.attributeName = attributeName;
+			this.oldValue = oldValue;
+			this.newValue = newValue;
+			this.target = target;
+		}
+	}
+}
@@ -0,0 +1,573 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package de.doe300.activerecord.record.bean;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeListenerProxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Copy-on-write list of PropertyChangeListeners.
+ * 
+ * Listeners are indexed by the attributes they are interested in, so firing a change only touches the listeners for
+ * all attributes, the listeners registered for this very attribute and the listeners with an attribute-filter.
+ * 
+ * In contrast to {@link java.beans.PropertyChangeSupport}, this list does not reference the source of the events, so
+ * it can be stored without keeping the record alive.
+ * 
+ * A list can be fired together with a list of listeners shared by many sources, see 
+ * {@link #fire(java.beans.PropertyChangeEvent, de.doe300.activerecord.record.bean.PropertyChangeListenerList) }.
+ * 
+ * @author doe300
+ */
+final class PropertyChangeListenerList
+{
+	private static final PropertyChangeListener[] EMPTY = new PropertyChangeListener[0];
+	private static final FilteredListener[] EMPTY_FILTERED = new FilteredListener[0];
+	//listeners for all attributes
+	private volatile PropertyChangeListener[] listeners = EMPTY;
+	//listeners for a single attribute, the map is replaced on every modification
+	private volatile Map<String, PropertyChangeListener[]> attributeListeners = Collections.emptyMap();
+	//listeners for all attributes matching a filter
+	private volatile FilteredListener[] filteredListeners = EMPTY_FILTERED;
+	//shared listeners not to notify for the source of this list
+	private volatile PropertyChangeListener[] excludedListeners = EMPTY;
+	//shared listeners not to notify for single attributes of the source of this list, replaced on every modification
+	private volatile Map<String, PropertyChangeListener[]> excludedAttributeListeners = Collections.emptyMap();
+
+	/**
+	 * Adds the listener, if it is not already contained.
+	 * 
+	 * A {@link PropertyChangeListenerProxy} is registered for its property-name only.
+	 * 
+	 * @param listener the listener to add
+	 * @return whether the listener was added
+	 */
+	synchronized boolean add(@Nullable final PropertyChangeListener listener)
+	{
+		if(listener instanceof PropertyChangeListenerProxy)
+		{
+			final PropertyChangeListenerProxy proxy = ( PropertyChangeListenerProxy ) listener;
+			return add( proxy.getPropertyName(), proxy.getListener());
+		}
+		final PropertyChangeListener[] newListeners = appendIfAbsent( listeners, listener );
+		if(newListeners == listeners)
+		{
+			return false;
+		}
+		listeners = newListeners;
+		return true;
+	}
+
+	/**
+	 * Adds the listener for the given attribute, if it is not already contained
+	 * 
+	 * @param attributeName the name of the attribute to listen to
+	 * @param listener the listener to add
+	 * @return whether the listener was added
+	 */
+	synchronized boolean add(@Nonnull final String attributeName, @Nullable final PropertyChangeListener listener)
+	{
+		final PropertyChangeListener[] oldListeners = attributeListeners.getOrDefault( attributeName, EMPTY );
+		final PropertyChangeListener[] newListeners = appendIfAbsent( oldListeners, listener );
+		if(newListeners == oldListeners)
+		{
+			return false;
+		}
+		final Map<String, PropertyChangeListener[]> newMap = new HashMap<>(attributeListeners);
+		newMap.put( attributeName, newListeners );
+		attributeListeners = newMap;
+		return true;
+	}
+
+	/**
+	 * Adds the listener for all attributes accepted by the filter, if it is not already contained
+	 * 
+	 * @param attributeFilter the filter for the names of the attributes to listen to
+	 * @param listener the listener to add
+	 * @return whether the listener was added
+	 */
+	synchronized boolean add(@Nonnull final Predicate<String> attributeFilter, @Nullable final PropertyChangeListener listener)
+	{
+		if(listener == null)
+		{
+			return false;
+		}
+		final FilteredListener[] newListeners = appendIfAbsent( filteredListeners, new FilteredListener(attributeFilter, listener));
+		if(newListeners == filteredListeners)
+		{
+			return false;
+		}
+		filteredListeners = newListeners;
+		return true;
+	}
+
+	/**
+	 * Removes the listener registered for all attributes or with an attribute-filter.
+	 * 
+	 * A {@link PropertyChangeListenerProxy} is removed from its property-name only.
+	 * 
+	 * @param listener the listener to remove
+	 * @return whether the listener was removed
+	 */
+	synchronized boolean remove(@Nullable final PropertyChangeListener listener)
+	{
+		if(listener instanceof PropertyChangeListenerProxy)
+		{
+			final PropertyChangeListenerProxy proxy = ( PropertyChangeListenerProxy ) listener;
+			return remove( proxy.getPropertyName(), proxy.getListener());
+		}
+		final PropertyChangeListener[] newListeners = removeElement( listeners, listener, EMPTY );
+		FilteredListener[] newFiltered = filteredListeners;
+		for(final FilteredListener filtered : filteredListeners)
+		{
+			if(filtered.listener.equals( listener))
+			{
+				newFiltered = removeElement( newFiltered, filtered, EMPTY_FILTERED );
+			}
+		}
+		if(newListeners == listeners && newFiltered == filteredListeners)
+		{
+			return false;
+		}
+		listeners = newListeners;
+		filteredListeners = newFiltered;
+		return true;
+	}
+
+	/**
+	 * @param attributeName the name of the attribute the listener was registered for
+	 * @param listener the listener to remove
+	 * @return whether the listener was removed
+	 */
+	synchronized boolean remove(@Nonnull final String attributeName, @Nullable final PropertyChangeListener listener)
+	{
+		final PropertyChangeListener[] oldListeners = attributeListeners.get( attributeName );
+		if(oldListeners == null)
+		{
+			return false;
+		}
+		final PropertyChangeListener[] newListeners = removeElement( oldListeners, listener, EMPTY );
+		if(newListeners == oldListeners)
+		{
+			return false;
+		}
+		final Map<String, PropertyChangeListener[]> newMap = new HashMap<>(attributeListeners);
+		if(newListeners.length == 0)
+		{
+			newMap.remove( attributeName );
+		}
+		else
+		{
+			newMap.put( attributeName, newListeners );
+		}
+		attributeListeners = newMap.isEmpty() ? Collections.emptyMap() : newMap;
+		return true;
+	}
+
+	/**
+	 * @param listener the listener to check
+	 * @return whether the listener is registered for all attributes
+	 */
+	boolean contains(@Nullable final PropertyChangeListener listener)
+	{
+		return listener != null && indexOf( listeners, listener ) >= 0;
+	}
+
+	/**
+	 * @param attributeName the name of the attribute
+	 * @param listener the listener to check
+	 * @return whether the listener is notified about changes of the given attribute, either registered for all 
+	 * attributes, for this attribute or with a filter accepting the attribute
+	 */
+	boolean contains(@Nonnull final String attributeName, @Nullable final PropertyChangeListener listener)
+	{
+		if(listener == null)
+		{
+			return false;
+		}
+		if(indexOf( listeners, listener ) >= 0 || indexOf( attributeListeners.getOrDefault( attributeName, EMPTY ), listener ) >= 0)
+		{
+			return true;
+		}
+		for(final FilteredListener filtered : filteredListeners)
+		{
+			if(filtered.listener.equals( listener) && filtered.attributeFilter.test( attributeName))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Excludes a listener of the shared list from being notified for the source of this list
+	 * 
+	 * @param listener the shared listener to exclude
+	 */
+	synchronized void exclude(@Nullable final PropertyChangeListener listener)
+	{
+		excludedListeners = appendIfAbsent( excludedListeners, listener );
+	}
+
+	/**
+	 * Reverts {@link #exclude(java.beans.PropertyChangeListener) }
+	 * 
+	 * @param listener the shared listener to notify again
+	 */
+	synchronized void include(@Nullable final PropertyChangeListener listener)
+	{
+		excludedListeners = removeElement( excludedListeners, listener, EMPTY );
+	}
+
+	/**
+	 * Excludes a listener of the shared list from being notified about changes of the given attribute of the source 
+	 * of this list
+	 * 
+	 * @param attributeName the name of the attribute
+	 * @param listener the shared listener to exclude
+	 */
+	synchronized void exclude(@Nonnull final String attributeName, @Nullable final PropertyChangeListener listener)
+	{
+		final PropertyChangeListener[] oldListeners = excludedAttributeListeners.getOrDefault( attributeName, EMPTY );
+		final PropertyChangeListener[] newListeners = appendIfAbsent( oldListeners, listener );
+		if(newListeners != oldListeners)
+		{
+			final Map<String, PropertyChangeListener[]> newMap = new HashMap<>(excludedAttributeListeners);
+			newMap.put( attributeName, newListeners );
+			excludedAttributeListeners = newMap;
+		}
+	}
+
+	/**
+	 * Reverts {@link #exclude(java.lang.String, java.beans.PropertyChangeListener) }
+	 * 
+	 * @param attributeName the name of the attribute
+	 * @param listener the shared listener to notify again
+	 */
+	synchronized void include(@Nonnull final String attributeName, @Nullable final PropertyChangeListener listener)
+	{
+		final PropertyChangeListener[] oldListeners = excludedAttributeListeners.get( attributeName );
+		if(oldListeners == null)
+		{
+			return;
+		}
+		final PropertyChangeListener[] newListeners = removeElement( oldListeners, listener, EMPTY );
+		if(newListeners != oldListeners)
+		{
+			final Map<String, PropertyChangeListener[]> newMap = new HashMap<>(excludedAttributeListeners);
+			if(newListeners.length == 0)
+			{
+				newMap.remove( attributeName );
+			}
+			else
+			{
+				newMap.put( attributeName, newListeners );
+			}
+			excludedAttributeListeners = newMap.isEmpty() ? Collections.emptyMap() : newMap;
+		}
+	}
+
+	/**
+	 * @param listener a listener of the shared list
+	 * @param attributeName the name of the changed attribute, may be <code>null</code>
+	 * @return whether the listener is notified by this list or must not be notified at all for the source of this list
+	 */
+	private boolean isShadowing(@Nonnull final PropertyChangeListener listener, @Nullable final String attributeName)
+	{
+		if(indexOf( listeners, listener ) >= 0 || indexOf( excludedListeners, listener ) >= 0)
+		{
+			return true;
+		}
+		return attributeName != null && 
+				(indexOf( attributeListeners.getOrDefault( attributeName, EMPTY ), listener ) >= 0 || 
+				indexOf( excludedAttributeListeners.getOrDefault( attributeName, EMPTY ), listener ) >= 0);
+	}
+
+	/**
+	 * @param attributeName the name of the changed attribute
+	 * @return whether any listener is notified about changes of the given attribute
+	 */
+	boolean hasListeners(@Nonnull final String attributeName)
+	{
+		if(listeners.length > 0 || attributeListeners.containsKey( attributeName ))
+		{
+			return true;
+		}
+		for(final FilteredListener filtered : filteredListeners)
+		{
+			if(filtered.attributeFilter.test( attributeName))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param attributeName the name of the changed attribute
+	 * @param sharedListeners the listeners shared with other sources, may be <code>null</code>
+	 * @return whether any listener of this list or any listener of the shared list not excluded by this list is 
+	 * notified about changes of the given attribute
+	 * @see #fire(java.beans.PropertyChangeEvent, de.doe300.activerecord.record.bean.PropertyChangeListenerList) 
+	 */
+	boolean hasListeners(@Nonnull final String attributeName, @Nullable final PropertyChangeListenerList sharedListeners)
+	{
+		if(hasListeners( attributeName ))
+		{
+			return true;
+		}
+		if(sharedListeners == null)
+		{
+			return false;
+		}
+		if(excludedListeners.length == 0 && excludedAttributeListeners.isEmpty())
+		{
+			return sharedListeners.hasListeners( attributeName );
+		}
+		return sharedListeners.hasListenersNotShadowed( attributeName, this );
+	}
+
+	private boolean hasListenersNotShadowed(@Nonnull final String attributeName, @Nonnull final PropertyChangeListenerList shadowing)
+	{
+		for(final PropertyChangeListener l : listeners)
+		{
+			if(!shadowing.isShadowing( l, attributeName ))
+			{
+				return true;
+			}
+		}
+		for(final PropertyChangeListener l : attributeListeners.getOrDefault( attributeName, EMPTY ))
+		{
+			if(!shadowing.isShadowing( l, attributeName ))
+			{
+				return true;
+			}
+		}
+		for(final FilteredListener filtered : filteredListeners)
+		{
+			if(filtered.attributeFilter.test( attributeName) && !shadowing.isShadowing( filtered.listener, attributeName))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Notifies all listeners for this attribute, unless old and new value are equal and not <code>null</code>
+	 * 
+	 * @param source the source of the event
+	 * @param attributeName the changed attribute
+	 * @param oldValue the old value
+	 * @param newValue the new value
+	 */
+	void fire(@Nonnull final Object source, @Nonnull final String attributeName, @Nullable final Object oldValue,
+			@Nullable final Object newValue)
+	{
+		if(hasListeners( attributeName ))
+		{
+			fire( new PropertyChangeEvent(source, attributeName, oldValue, newValue));
+		}
+	}
+
+	/**
+	 * Notifies all listeners for the attribute of the event, unless old and new value are equal and not <code>null</code>
+	 * 
+	 * @param event the event to fire
+	 */
+	void fire(@Nonnull final PropertyChangeEvent event)
+	{
+		fire( event, null );
+	}
+
+	/**
+	 * Notifies all listeners of the shared list and of this list for the attribute of the event, unless old and new 
+	 * value are equal and not <code>null</code>.
+	 * 
+	 * Listeners of the shared list also registered for all attributes or the attribute of the event in this list are 
+	 * notified only once, listeners {@link #exclude(java.beans.PropertyChangeListener) excluded} by this list, for all 
+	 * attributes or {@link #exclude(java.lang.String, java.beans.PropertyChangeListener) the attribute} of the event, 
+	 * are not notified.
+	 * 
+	 * @param event the event to fire
+	 * @param sharedListeners the listeners shared with other sources, may be <code>null</code>
+	 */
+	void fire(@Nonnull final PropertyChangeEvent event, @Nullable final PropertyChangeListenerList sharedListeners)
+	{
+		final Object oldValue = event.getOldValue();
+		final Object newValue = event.getNewValue();
+		if(oldValue != null && newValue != null && oldValue.equals( newValue))
+		{
+			return;
+		}
+		final ChangeMetricsCollector metrics = ChangeMetrics.getCollector();
+		if(metrics != null)
+		{
+			metrics.eventFired();
+		}
+		if(sharedListeners != null)
+		{
+			sharedListeners.notifyListeners( event, this, metrics );
+		}
+		notifyListeners( event, null, metrics );
+	}
+
+	private void notifyListeners(@Nonnull final PropertyChangeEvent event, @Nullable final PropertyChangeListenerList shadowing,
+			@Nullable final ChangeMetricsCollector metrics)
+	{
+		final String attributeName = event.getPropertyName();
+		for(final PropertyChangeListener l : listeners)
+		{
+			if(shadowing == null || !shadowing.isShadowing( l, attributeName ))
+			{
+				notifyListener( l, event, metrics );
+			}
+		}
+		if(attributeName == null)
+		{
+			return;
+		}
+		final PropertyChangeListener[] forAttribute = attributeListeners.get( attributeName );
+		if(forAttribute != null)
+		{
+			for(final PropertyChangeListener l : forAttribute)
+			{
+				if(shadowing == null || !shadowing.isShadowing( l, attributeName ))
+				{
+					notifyListener( l, event, metrics );
+				}
+			}
+		}
+		for(final FilteredListener filtered : filteredListeners)
+		{
+			if(filtered.attributeFilter.test( attributeName) && (shadowing == null || !shadowing.isShadowing( filtered.listener, attributeName)))
+			{
+				notifyListener( filtered.listener, event, metrics );
+			}
+		}
+	}
+
+	private static void notifyListener(@Nonnull final PropertyChangeListener listener, @Nonnull final PropertyChangeEvent event,
+			@Nullable final ChangeMetricsCollector metrics)
+	{
+		if(metrics == null)
+		{
+			listener.propertyChange( event );
+			return;
+		}
+		final long start = System.nanoTime();
+		try
+		{
+			listener.propertyChange( event );
+		}
+		finally
+		{
+			metrics.listenerNotified( listener, System.nanoTime() - start );
+		}
+	}
+
+	@Nonnull
+	private static <L> L[] appendIfAbsent(@Nonnull final L[] array, @Nullable final L element)
+	{
+		if(element == null || indexOf( array, element ) >= 0)
+		{
+			return array;
+		}
+		final L[] newArray = Arrays.copyOf( array, array.length + 1);
+		newArray[array.length] = element;
+		return newArray;
+	}
+
+	@Nonnull
+	private static <L> L[] removeElement(@Nonnull final L[] array, @Nullable final L element, @Nonnull final L[] empty)
+	{
+		final int index = indexOf( array, element );
+		if(index < 0)
+		{
+			return array;
+		}
+		if(array.length == 1)
+		{
+			return empty;
+		}
+		final L[] newArray = Arrays.copyOf( empty, array.length - 1);
+		System.arraycopy( array, 0, newArray, 0, index);
+		System.arraycopy( array, index + 1, newArray, index, newArray.length - index);
+		return newArray;
+	}
+
+	private static int indexOf(@Nonnull final Object[] array, @Nullable final Object element)
+	{
+		for(int i = 0; i < array.length; ++i)
+		{
+			if(array[i].equals( element))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Listener registered for all attributes accepted by a filter
+	 */
+	private static final class FilteredListener
+	{
+		private final Predicate<String> attributeFilter;
+		private final PropertyChangeListener listener;
+
+		FilteredListener(@Nonnull final Predicate<String> attributeFilter, @Nonnull final PropertyChangeListener listener)
+		{
+			this.attributeFilter = attributeFilter;
+			this.listener = listener;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return attributeFilter.hashCode() ^ listener.hashCode();
+		}
+
+		@Override
+		public boolean equals( Object obj )
+		{
+			if(!(obj instanceof FilteredListener))
+			{
+				return false;
+			}
+			final FilteredListener other = ( FilteredListener ) obj;
+			return attributeFilter.equals( other.attributeFilter) && listener.equals( other.listener);
+		}
+	}
+}
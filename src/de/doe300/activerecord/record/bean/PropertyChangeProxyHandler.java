@@ -27,85 +27,343 @@ package de.doe300.activerecord.record.bean;
 import de.doe300.activerecord.proxy.RecordHandler;
 import de.doe300.activerecord.proxy.handlers.ProxyHandler;
 import de.doe300.activerecord.record.ActiveRecord;
+import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.beans.PropertyChangeSupport;
 import java.lang.reflect.Method;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.function.Predicate;
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 /**
  * ProxyHandler for registering and notifying PropertyChangeListeners
  * 
+ * Listeners are dispatched in two tiers: the global listeners are shared by all records and can be added and removed 
+ * at any time, while a listener-list for a single record is only created when a listener is added to or removed from 
+ * this very record. Records only notifying global listeners don't allocate any storage.
+ * 
+ * Removing a global listener from a single record stops notifying it for this record only. Removing it for an 
+ * attribute of a single record stops notifying it about this attribute of this record only.
+ * 
  * @author doe300
  */
 public class PropertyChangeProxyHandler implements ProxyHandler
 {
-	private final Map<ActiveRecord, PropertyChangeSupport> listeners;
-	private final Set<PropertyChangeListener> generalListeners;
+	/**
+	 * The maximum number of {@link Method}-instances resolved methods are cached for, so the cache does not grow 
+	 * without bound, if the methods are not invoked via proxies re-using their instances
+	 */
+	private static final int MAX_RESOLVED_METHODS = 256;
+	/**
+	 * The handled methods, keyed by the identity of the {@link Method}-instances passed in. A proxy-class passes the 
+	 * same instances on every call, so after the first call, a method is resolved with a single identity-lookup, 
+	 * without comparing the names or parameter-types. The map is copied on write, so it is read without locking
+	 */
+	private static volatile Map<Method, BeanMethod> resolvedMethods = new IdentityHashMap<>(16);
+
+	private final RecordRegistry<PropertyChangeListenerList> listeners;
+	private final PropertyChangeListenerList globalListeners;
 
 	/**
 	 * @param listeners the PropertyChangeListeners to use for all records
 	 */
 	public PropertyChangeProxyHandler(@Nullable final Set<PropertyChangeListener> listeners)
 	{
-		this.listeners = new TreeMap<>();
-		this.generalListeners = listeners;
+		this.listeners = new RecordRegistry<>();
+		this.globalListeners = new PropertyChangeListenerList();
+		if(listeners != null)
+		{
+			for(final PropertyChangeListener l : listeners)
+			{
+				globalListeners.add( l );
+			}
+		}
+		ChangeMetrics.registerHandler( this );
+	}
+
+	/**
+	 * Adds a listener notified about the changes of all attributes of all records handled
+	 * 
+	 * @param listener the listener to add
+	 */
+	public void addGlobalListener(@Nullable final PropertyChangeListener listener)
+	{
+		globalListeners.add( listener );
+	}
+
+	/**
+	 * Adds a listener notified about the changes of the given attribute of all records handled
+	 * 
+	 * @param attributeName the name of the attribute to listen to
+	 * @param listener the listener to add
+	 */
+	public void addGlobalListener(@Nonnull final String attributeName, @Nullable final PropertyChangeListener listener)
+	{
+		globalListeners.add( attributeName, listener );
+	}
+
+	/**
+	 * Removes a global listener, listeners added to single records are not affected
+	 * 
+	 * @param listener the listener to remove
+	 */
+	public void removeGlobalListener(@Nullable final PropertyChangeListener listener)
+	{
+		globalListeners.remove( listener );
+	}
+
+	/**
+	 * @param attributeName the name of the attribute the listener was registered for
+	 * @param listener the listener to remove
+	 */
+	public void removeGlobalListener(@Nonnull final String attributeName, @Nullable final PropertyChangeListener listener)
+	{
+		globalListeners.remove( attributeName, listener );
 	}
 
 	@Override
 	public boolean handlesMethod( ActiveRecord record, Method method, Object[] args ) throws IllegalArgumentException
 	{
-		return record instanceof JavaBeanRecord && method.getDeclaringClass().equals( JavaBeanRecord.class);
+		//all methods of JavaBeanRecord are implemented, so the method is only resolved once, in #invoke
+		return record instanceof JavaBeanRecord && method.getDeclaringClass() == JavaBeanRecord.class;
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public <T extends ActiveRecord> Object invoke( ActiveRecord record, RecordHandler<T> handler, Method method,
 			Object[] args ) throws IllegalArgumentException
 	{
-		PropertyChangeSupport support = listeners.get( record );
-		if(listeners.get( record) == null)
+		final BeanMethod beanMethod = resolveBeanMethod( method );
+		if(beanMethod == null)
 		{
-			//register new property-change support for record
-			support = new PropertyChangeSupport(record);
-			listeners.put( record, support );
-			if(this.generalListeners != null)
-			{
-				//add general listeners to all supports
-				for(PropertyChangeListener l : generalListeners)
+			throw new UnsupportedOperationException("Method '" + method.getName() + "' not implemented!");
+		}
+		final PropertyChangeListenerList support;
+		switch(beanMethod)
+		{
+			case FIRE_PROPERTY_CHANGE:
+				//arguments are: attributeName(String), oldValue(Object), newValue(Object)
+				fire( record, (String)args[0], args[1], args[2]);
+				break;
+			case ADD_LISTENER:
+				support = listeners.computeIfAbsent( record, this::createListenerList );
+				support.include( (PropertyChangeListener)args[0]);
+				//the list makes sure, listener is only added once and is not notified again as global listener
+				support.add( (PropertyChangeListener)args[0]);
+				break;
+			case REMOVE_LISTENER:
+				if(globalListeners.contains( (PropertyChangeListener)args[0]))
+				{
+					//stop notifying the global listener for this record
+					support = listeners.computeIfAbsent( record, this::createListenerList );
+					support.exclude( (PropertyChangeListener)args[0]);
+				}
+				else
+				{
+					support = listeners.get( record );
+				}
+				if(support != null)
+				{
+					support.remove( (PropertyChangeListener)args[0]);
+				}
+				break;
+			case ADD_ATTRIBUTE_LISTENER:
+				support = listeners.computeIfAbsent( record, this::createListenerList );
+				support.include( (String)args[0], (PropertyChangeListener)args[1]);
+				//the list makes sure, listener is not notified again as global listener for this attribute
+				support.add( (String)args[0], (PropertyChangeListener)args[1]);
+				break;
+			case REMOVE_ATTRIBUTE_LISTENER:
+				if(globalListeners.contains( (String)args[0], (PropertyChangeListener)args[1]))
+				{
+					//stop notifying the global listener about this attribute of this record
+					support = listeners.computeIfAbsent( record, this::createListenerList );
+					support.exclude( (String)args[0], (PropertyChangeListener)args[1]);
+				}
+				else
+				{
+					support = listeners.get( record );
+				}
+				if(support != null)
 				{
-					support.addPropertyChangeListener( l );
+					support.remove( (String)args[0], (PropertyChangeListener)args[1]);
 				}
+				break;
+			case ADD_FILTERED_LISTENER:
+				listeners.computeIfAbsent( record, this::createListenerList ).add( (Predicate<String>)args[0], 
+						(PropertyChangeListener)args[1]);
+				break;
+		}
+		return null;
+	}
+
+	@Nullable
+	private static BeanMethod resolveBeanMethod(@Nonnull final Method method)
+	{
+		final BeanMethod resolved = resolvedMethods.get( method );
+		if(resolved != null)
+		{
+			return resolved;
+		}
+		for(final BeanMethod m : BeanMethod.values())
+		{
+			if(m.method.equals( method ))
+			{
+				cacheResolvedMethod( method, m );
+				return m;
 			}
 		}
-		if(method.getName().equals( "firePropertyChange"))
+		return null;
+	}
+
+	private static synchronized void cacheResolvedMethod(@Nonnull final Method method, @Nonnull final BeanMethod beanMethod)
+	{
+		if(resolvedMethods.size() < MAX_RESOLVED_METHODS && !resolvedMethods.containsKey( method ))
 		{
-			//arguments are: attributeName(String), oldValue(Object), newValue(Object)
-			support.firePropertyChange( (String)args[0], args[1], args[2]);
-			return null;
+			final Map<Method, BeanMethod> copy = new IdentityHashMap<>(resolvedMethods);
+			copy.put( method, beanMethod );
+			resolvedMethods = copy;
 		}
-		if(method.getName().equals( "addPropertyChangeListener"))
+	}
+
+	/**
+	 * @return the number of Method-instances resolved methods are cached for
+	 */
+	static int getResolvedMethodCount()
+	{
+		return resolvedMethods.size();
+	}
+
+	private void fire(@Nonnull final ActiveRecord record, @Nonnull final String attributeName, @Nullable final Object oldValue,
+			@Nullable final Object newValue)
+	{
+		final PropertyChangeListenerList support = listeners.get( record );
+		if(support == null)
+		{
+			//only global listeners, no per-record list is created
+			if(!globalListeners.hasListeners( attributeName ))
+			{
+				return;
+			}
+			if(!PropertyChangeBatch.collect( record, attributeName, oldValue, newValue, this::deliverBatched))
+			{
+				globalListeners.fire( new PropertyChangeEvent(record, attributeName, oldValue, newValue));
+			}
+			return;
+		}
+		if(!support.hasListeners( attributeName, globalListeners ))
+		{
+			return;
+		}
+		if(!PropertyChangeBatch.collect( record, attributeName, oldValue, newValue, this::deliverBatched))
 		{
-			//to make sure, listener is only added once
-			support.removePropertyChangeListener( (PropertyChangeListener)args[0] );
-			support.addPropertyChangeListener( (PropertyChangeListener)args[0]);
-			return null;
+			support.fire( new PropertyChangeEvent(record, attributeName, oldValue, newValue), globalListeners);
 		}
-		if(method.getName().equals( "removePropertyChangeListener"))
+	}
+
+	private void deliverBatched(@Nonnull final PropertyChangeEvent event)
+	{
+		//the listeners are looked up when the batch is closed, listeners may have been added to the record meanwhile
+		final PropertyChangeListenerList support = listeners.get( ( ActiveRecord ) event.getSource());
+		if(support == null)
 		{
-			support.removePropertyChangeListener( (PropertyChangeListener)args[0]);
-			return null;
+			globalListeners.fire( event );
 		}
-		throw new UnsupportedOperationException("Method '" + method.getName() + "' not implemented!");
+		else
+		{
+			support.fire( event, globalListeners );
+		}
+	}
+
+	@Nonnull
+	private PropertyChangeListenerList createListenerList(@Nonnull final ActiveRecord record)
+	{
+		//the list must not reference the record, otherwise it is never removed from the registry
+		return new PropertyChangeListenerList();
+	}
+
+	/**
+	 * @return the number of records currently holding listeners
+	 */
+	int getRegisteredRecordCount()
+	{
+		return listeners.size();
 	}
 
 	@Override
 	public Object setAttributeHook( ActiveRecord record, String attributeName, Object value )
 	{
 		//hook into setValue-calls to fire listeners
-		final Object oldValue = record.getBase().getStore().getValue( record.getBase(), record.getPrimaryKey(), attributeName);
+		if(!hasListeners( record, attributeName ))
+		{
+			//don't get old value, if nothing will be notified
+			return value;
+		}
+		final Object oldValue = getOldValue( record, attributeName );
 		((JavaBeanRecord)record).firePropertyChange( attributeName, oldValue, value);
 		return value;
 	}
+
+	/**
+	 * @param record the record to check
+	 * @param attributeName the name of the attribute
+	 * @return whether any listener is notified about changes of the given attribute of this record
+	 */
+	protected boolean hasListeners(@Nonnull final ActiveRecord record, @Nonnull final String attributeName)
+	{
+		final PropertyChangeListenerList support = listeners.get( record );
+		if(support == null)
+		{
+			return globalListeners.hasListeners( attributeName );
+		}
+		//global listeners excluded for this record don't count
+		return support.hasListeners( attributeName, globalListeners );
+	}
+
+	/**
+	 * Reads the value of the attribute before it is changed. This requires a round-trip to the record-store
+	 * 
+	 * @param record the record to read from
+	 * @param attributeName the name of the attribute
+	 * @return the current value of the attribute
+	 */
+	@Nullable
+	protected Object getOldValue(@Nonnull final ActiveRecord record, @Nonnull final String attributeName)
+	{
+		final ChangeMetricsCollector metrics = ChangeMetrics.getCollector();
+		if(metrics != null)
+		{
+			metrics.oldValueRead();
+		}
+		return record.getBase().getStore().getValue( record.getBase(), record.getPrimaryKey(), attributeName);
+	}
+
+	/**
+	 * The methods of {@link JavaBeanRecord} implemented by this handler
+	 */
+	private enum BeanMethod
+	{
+		ADD_LISTENER("addPropertyChangeListener", PropertyChangeListener.class),
+		REMOVE_LISTENER("removePropertyChangeListener", PropertyChangeListener.class),
+		ADD_ATTRIBUTE_LISTENER("addPropertyChangeListener", String.class, PropertyChangeListener.class),
+		REMOVE_ATTRIBUTE_LISTENER("removePropertyChangeListener", String.class, PropertyChangeListener.class),
+		ADD_FILTERED_LISTENER("addPropertyChangeListener", Predicate.class, PropertyChangeListener.class),
+		FIRE_PROPERTY_CHANGE("firePropertyChange", String.class, Object.class, Object.class);
+
+		private final Method method;
+
+		private BeanMethod(@Nonnull final String methodName, @Nonnull final Class<?>... parameterTypes)
+		{
+			try
+			{
+				this.method = JavaBeanRecord.class.getMethod( methodName, parameterTypes );
+			}
+			catch ( final NoSuchMethodException ex )
+			{
+				throw new IllegalStateException(ex);
+			}
+		}
+	}
 }
@@ -0,0 +1,420 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import de.doe300.activerecord.record.bean.AsyncPropertyChangeListener.OverflowPolicy;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nonnull;
+
+/**
+ * Publishes all change-events it is notified about to its subscribers, honoring their demand.
+ * 
+ * The publisher is a {@link PropertyChangeListener}, so it can be added to a single {@link JavaBeanRecord} or to the
+ * {@link PropertyChangeProxyHandler} of a record-base to publish the events of all records of this base.
+ * 
+ * Events are buffered per subscriber until requested and are delivered on the {@link Executor}. Each buffer is bounded,
+ * the {@link OverflowPolicy} determines what happens if a subscriber does not keep up. Subscribers only receive the
+ * events fired after they subscribed.
+ * NOTE: With {@link OverflowPolicy#BLOCK}, a slow subscriber blocks the threads changing the records.
+ * If the executor rejects the delivery-task, e.g. because it is shut down or saturated, the events are delivered on the 
+ * thread which tried to submit the task.
+ * 
+ * @author doe300
+ * @see ChangeFlow
+ */
+public class PropertyChangePublisher implements ChangeFlow.Publisher<PropertyChangeEvent>, PropertyChangeListener, AutoCloseable
+{
+	/**
+	 * The maximum number of events delivered in one task, before the remaining events are re-submitted to the executor
+	 */
+	private static final int MAX_EVENTS_PER_TASK = 64;
+	
+	private final Executor executor;
+	private final int bufferCapacity;
+	private final OverflowPolicy overflowPolicy;
+	private final CopyOnWriteArrayList<EventSubscription> subscriptions;
+	private volatile boolean closed;
+
+	/**
+	 * @param executor the executor to deliver the events on
+	 * @param bufferCapacity the maximum number of events buffered per subscriber
+	 * @param overflowPolicy the policy to apply if a buffer is full
+	 */
+	public PropertyChangePublisher(@Nonnull final Executor executor, final int bufferCapacity, 
+			@Nonnull final OverflowPolicy overflowPolicy)
+	{
+		if(bufferCapacity < 1)
+		{
+			throw new IllegalArgumentException("Buffer capacity must be positive: " + bufferCapacity);
+		}
+		this.executor = executor;
+		this.bufferCapacity = bufferCapacity;
+		this.overflowPolicy = overflowPolicy;
+		this.subscriptions = new CopyOnWriteArrayList<>();
+	}
+
+	@Override
+	public void subscribe( ChangeFlow.Subscriber<? super PropertyChangeEvent> subscriber )
+	{
+		Objects.requireNonNull( subscriber );
+		final EventSubscription subscription = new EventSubscription(subscriber);
+		subscriber.onSubscribe( subscription );
+		if(closed)
+		{
+			subscription.complete();
+			return;
+		}
+		subscriptions.add( subscription );
+	}
+
+	@Override
+	public void propertyChange( PropertyChangeEvent evt )
+	{
+		for(final EventSubscription subscription : subscriptions)
+		{
+			if(subscription.offer( evt ))
+			{
+				subscription.dispatch();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of active subscribers
+	 */
+	public int getSubscriberCount()
+	{
+		return subscriptions.size();
+	}
+
+	/**
+	 * Completes all subscriptions after their buffered events are delivered. No further events are published.
+	 */
+	@Override
+	public void close()
+	{
+		closed = true;
+		for(final EventSubscription subscription : subscriptions)
+		{
+			subscription.complete();
+		}
+		subscriptions.clear();
+	}
+
+	/**
+	 * Bounded buffer of the events of a single subscriber, which is also the task delivering these events
+	 */
+	private final class EventSubscription implements ChangeFlow.Subscription, Runnable
+	{
+		private final ChangeFlow.Subscriber<? super PropertyChangeEvent> subscriber;
+		private final ArrayDeque<PropertyChangeEvent> events;
+		private final ReentrantLock lock;
+		private final Condition notFull;
+		private long demand;
+		private boolean scheduled;
+		private boolean cancelled;
+		private boolean completed;
+		private Throwable error;
+
+		EventSubscription(@Nonnull final ChangeFlow.Subscriber<? super PropertyChangeEvent> subscriber)
+		{
+			this.subscriber = subscriber;
+			this.events = new ArrayDeque<>(Math.min( bufferCapacity, 16));
+			this.lock = new ReentrantLock();
+			this.notFull = lock.newCondition();
+		}
+
+		@Override
+		public void request( long n )
+		{
+			lock.lock();
+			try
+			{
+				if(cancelled)
+				{
+					return;
+				}
+				if(n <= 0)
+				{
+					//as required by the Reactive Streams specification, rule 3.9
+					error = new IllegalArgumentException("Requested number of items must be positive: " + n);
+					events.clear();
+					notFull.signalAll();
+				}
+				else
+				{
+					demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+				}
+				if(!schedule())
+				{
+					return;
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+			dispatch();
+		}
+
+		@Override
+		public void cancel()
+		{
+			lock.lock();
+			try
+			{
+				cancelled = true;
+				events.clear();
+				notFull.signalAll();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+			subscriptions.remove( this );
+		}
+
+		void complete()
+		{
+			lock.lock();
+			try
+			{
+				completed = true;
+				if(!schedule())
+				{
+					return;
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+			dispatch();
+		}
+
+		/**
+		 * @param event the event to buffer
+		 * @return whether this subscription needs to be scheduled for execution
+		 */
+		boolean offer(@Nonnull final PropertyChangeEvent event)
+		{
+			lock.lock();
+			try
+			{
+				if(cancelled || completed || error != null)
+				{
+					return false;
+				}
+				if(events.size() >= bufferCapacity && !makeSpace( event ))
+				{
+					//event was coalesced with a buffered one
+					return false;
+				}
+				if(cancelled || error != null)
+				{
+					//cancelled while blocking
+					return false;
+				}
+				events.addLast( event );
+				return demand > 0 && schedule();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Applies the overflow-policy
+		 * 
+		 * @param event the new event
+		 * @return whether the event still needs to be added
+		 */
+		private boolean makeSpace(@Nonnull final PropertyChangeEvent event)
+		{
+			if(overflowPolicy != OverflowPolicy.BLOCK)
+			{
+				return AsyncPropertyChangeListener.dropOrCoalesce( events, event, overflowPolicy );
+			}
+			boolean interrupted = false;
+			while(events.size() >= bufferCapacity && !cancelled && error == null)
+			{
+				try
+				{
+					notFull.await();
+				}
+				catch ( final InterruptedException ex )
+				{
+					interrupted = true;
+				}
+			}
+			if(interrupted)
+			{
+				Thread.currentThread().interrupt();
+			}
+			return true;
+		}
+
+		/**
+		 * Must be called while holding the lock
+		 * 
+		 * @return whether the task was not yet scheduled and needs to be submitted to the executor
+		 */
+		private boolean schedule()
+		{
+			if(scheduled)
+			{
+				return false;
+			}
+			scheduled = true;
+			return true;
+		}
+
+		/**
+		 * Submits this subscription to the executor, after {@link #schedule() } returned <code>true</code>
+		 */
+		void dispatch()
+		{
+			if(!submit())
+			{
+				//the subscription is still marked as scheduled, so no other thread delivers its events meanwhile
+				run();
+			}
+		}
+
+		@Override
+		public void run()
+		{
+			while(deliverEvents())
+			{
+				//give other subscriptions a chance, the subscription is still marked as scheduled
+				if(submit())
+				{
+					return;
+				}
+				//otherwise the events are delivered on this thread
+			}
+		}
+
+		/**
+		 * @return whether the task was accepted by the executor
+		 */
+		private boolean submit()
+		{
+			try
+			{
+				executor.execute( this );
+				return true;
+			}
+			catch(final RejectedExecutionException ex)
+			{
+				return false;
+			}
+		}
+
+		/**
+		 * @return whether there are still events to deliver
+		 */
+		private boolean deliverEvents()
+		{
+			for(int i = 0; i < MAX_EVENTS_PER_TASK; ++i)
+			{
+				final PropertyChangeEvent event;
+				final Throwable terminalError;
+				lock.lock();
+				try
+				{
+					if(cancelled)
+					{
+						scheduled = false;
+						return false;
+					}
+					terminalError = error;
+					if(terminalError == null && (demand == 0 || events.isEmpty()))
+					{
+						if(!completed || !events.isEmpty())
+						{
+							//wait for more demand or events
+							scheduled = false;
+							return false;
+						}
+					}
+					event = terminalError == null ? events.pollFirst() : null;
+					if(event == null)
+					{
+						//error or completed with all events delivered, the subscription is terminated
+						cancelled = true;
+					}
+					else
+					{
+						if(demand != Long.MAX_VALUE)
+						{
+							--demand;
+						}
+						notFull.signal();
+					}
+				}
+				finally
+				{
+					lock.unlock();
+				}
+				if(event == null)
+				{
+					subscriptions.remove( this );
+					if(terminalError != null)
+					{
+						subscriber.onError( terminalError );
+					}
+					else
+					{
+						subscriber.onComplete();
+					}
+					return false;
+				}
+				try
+				{
+					subscriber.onNext( event );
+				}
+				catch(final RuntimeException ex)
+				{
+					//a failing subscriber is cancelled, as required by the Reactive Streams specification, rule 2.13
+					cancel();
+					final Thread thread = Thread.currentThread();
+					thread.getUncaughtExceptionHandler().uncaughtException( thread, ex );
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
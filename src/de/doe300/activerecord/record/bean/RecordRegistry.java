@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package de.doe300.activerecord.record.bean;
+
+import de.doe300.activerecord.record.ActiveRecord;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Thread-safe registry associating records with a value.
+ * 
+ * Records are compared by identity and only weakly referenced, so an entry is dropped as soon as its record is
+ * garbage-collected. The values must not hold a strong reference to their record, or the entry will never be
+ * released.
+ * 
+ * @author doe300
+ * @param <V> the type of the associated values
+ */
+final class RecordRegistry<V>
+{
+	private final ConcurrentMap<RecordKey, V> entries;
+	private final ReferenceQueue<ActiveRecord> staleKeys;
+
+	RecordRegistry()
+	{
+		this.entries = new ConcurrentHashMap<>(16);
+		this.staleKeys = new ReferenceQueue<>();
+	}
+
+	/**
+	 * @param record the record to look up
+	 * @return the value associated with this record or <code>null</code>
+	 */
+	@Nullable
+	V get(@Nonnull final ActiveRecord record)
+	{
+		expungeStaleEntries();
+		return entries.get( new RecordKey(record, null));
+	}
+
+	/**
+	 * @param record the record to look up
+	 * @param factory the function creating the value, if there is none for this record yet
+	 * @return the value associated with this record
+	 */
+	@Nonnull
+	V computeIfAbsent(@Nonnull final ActiveRecord record, @Nonnull final Function<ActiveRecord, V> factory)
+	{
+		final V value = get( record );
+		if(value != null)
+		{
+			return value;
+		}
+		return entries.computeIfAbsent( new RecordKey(record, staleKeys), (final RecordKey key) -> factory.apply( record ));
+	}
+
+	/**
+	 * @param record the record to remove
+	 * @return the value previously associated with this record or <code>null</code>
+	 */
+	@Nullable
+	V remove(@Nonnull final ActiveRecord record)
+	{
+		expungeStaleEntries();
+		return entries.remove( new RecordKey(record, null));
+	}
+
+	/**
+	 * @return the number of records currently registered
+	 */
+	int size()
+	{
+		expungeStaleEntries();
+		return entries.size();
+	}
+
+	private void expungeStaleEntries()
+	{
+		Reference<? extends ActiveRecord> ref;
+		while((ref = staleKeys.poll()) != null)
+		{
+			entries.remove( ref );
+		}
+	}
+
+	/**
+	 * Weak key comparing records by identity
+	 */
+	private static final class RecordKey extends WeakReference<ActiveRecord>
+	{
+		private final int hash;
+
+		RecordKey(@Nonnull final ActiveRecord record, @Nullable final ReferenceQueue<ActiveRecord> queue)
+		{
+			super( record, queue );
+			this.hash = System.identityHashCode( record );
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals( Object obj )
+		{
+			if(this == obj)
+			{
+				return true;
+			}
+			if(!(obj instanceof RecordKey))
+			{
+				return false;
+			}
+			final ActiveRecord record = get();
+			return record != null && record == ((RecordKey)obj).get();
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nonnull;
+
+/**
+ * Scope deferring all writes to {@link AbstractJavaBeanRecord AbstractJavaBeanRecords} on the current thread.
+ * 
+ * While a scope is open, written values are kept as pending changes of the record and served for reads of the record.
+ * When the scope is closed, every record written is flushed with a single write of all its changed attributes.
+ * Scopes can be nested, the records are flushed when the outermost scope is closed.
+ * 
+ * <pre>
+ * try(WriteBehindScope scope = WriteBehindScope.begin())
+ * {
+ *     record.setName("Adam");
+ *     record.setAge(23);
+ * }
+ * //"name" and "age" are written to the record-store at once
+ * </pre>
+ * 
+ * Property-change events are still fired when the value is set, with the correct old and new value.
+ * 
+ * @author doe300
+ * @see AbstractJavaBeanRecord#flushChanges() 
+ */
+public final class WriteBehindScope implements AutoCloseable
+{
+	private static final ThreadLocal<WriteBehindScope> CURRENT_SCOPE = new ThreadLocal<>();
+	
+	private final Set<AbstractJavaBeanRecord> dirtyRecords;
+	private int depth;
+
+	private WriteBehindScope()
+	{
+		this.dirtyRecords = Collections.newSetFromMap( new IdentityHashMap<>(16));
+		this.depth = 1;
+	}
+
+	/**
+	 * Opens a new scope for the current thread or joins the scope already open
+	 * 
+	 * @return the scope
+	 */
+	@Nonnull
+	public static WriteBehindScope begin()
+	{
+		final WriteBehindScope current = CURRENT_SCOPE.get();
+		if(current != null)
+		{
+			++current.depth;
+			return current;
+		}
+		final WriteBehindScope scope = new WriteBehindScope();
+		CURRENT_SCOPE.set( scope );
+		return scope;
+	}
+
+	/**
+	 * @return whether a scope is open for the current thread
+	 */
+	public static boolean isScopeActive()
+	{
+		return CURRENT_SCOPE.get() != null;
+	}
+
+	/**
+	 * Closes this scope. If this is the outermost scope, the pending changes of all records written are flushed.
+	 * 
+	 * If flushing a record fails, the remaining records are still flushed and the first exception is re-thrown after 
+	 * all records are processed. The changes of the failed record are kept pending and are retried by the next write 
+	 * or flush of this record, see {@link AbstractJavaBeanRecord#flushChanges() }.
+	 * 
+	 * @throws IllegalStateException if this scope is already closed
+	 */
+	@Override
+	public void close() throws IllegalStateException
+	{
+		if(depth <= 0)
+		{
+			throw new IllegalStateException("Scope is already closed");
+		}
+		if(--depth > 0)
+		{
+			return;
+		}
+		CURRENT_SCOPE.remove();
+		final List<AbstractJavaBeanRecord> records = new ArrayList<>(dirtyRecords);
+		dirtyRecords.clear();
+		RuntimeException error = null;
+		for(final AbstractJavaBeanRecord record : records)
+		{
+			try
+			{
+				record.flushChanges();
+			}
+			catch(final RuntimeException e)
+			{
+				if(error == null)
+				{
+					error = e;
+				}
+				else
+				{
+					error.addSuppressed( e );
+				}
+			}
+		}
+		if(error != null)
+		{
+			throw error;
+		}
+	}
+
+	/**
+	 * Registers the record to be flushed with the scope open for the current thread, if any
+	 * 
+	 * @param record the record with pending changes
+	 * @return whether the record was registered. If not, the write is not deferred by a scope
+	 */
+	static boolean register(@Nonnull final AbstractJavaBeanRecord record)
+	{
+		final WriteBehindScope scope = CURRENT_SCOPE.get();
+		if(scope == null)
+		{
+			return false;
+		}
+		scope.dirtyRecords.add( record );
+		return true;
+	}
+}
@@ -0,0 +1,345 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean.journal;
+
+import de.doe300.activerecord.record.ActiveRecord;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Append-only journal of attribute-changes, written to memory-mapped segment-files.
+ * 
+ * The journal is a {@link PropertyChangeListener}, so it can be added to single records or to the
+ * <code>PropertyChangeProxyHandler</code> of a record-base to journal all changes of the records. Every change is
+ * written as a compact binary entry containing the record-type, primary-key, attribute-name, old and new value and the
+ * time of the change.
+ * 
+ * Entries are written into the mapped segment and forced to the storage in groups, every commit-interval. If the
+ * journal is created to wait for the commit, appending an entry blocks until the group containing it is committed,
+ * otherwise entries appended in the last commit-interval can be lost on a system crash.
+ * A new segment is started when the current one is full. When opening an existing journal, it continues appending to
+ * the last segment. An entry of the last segment with an invalid checksum, e.g. an entry torn by a crash, and all data
+ * following it are discarded, so appending continues after the last valid entry.
+ * 
+ * @author doe300
+ * @see ChangeJournalReader
+ */
+public class ChangeJournal implements PropertyChangeListener, Closeable
+{
+	/**
+	 * The size of a segment-file by default (64MB)
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+	/**
+	 * The interval of committing the appended entries by default
+	 */
+	public static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 10;
+	
+	private final Path directory;
+	private final int segmentSize;
+	private final boolean waitForCommit;
+	private final ScheduledExecutorService committer;
+	
+	private final Object lock = new Object();
+	//guarded by lock
+	private final EntryBuffer entryBuffer;
+	private final DataOutputStream entryOut;
+	private final CRC32 checksum;
+	private MappedByteBuffer segment;
+	private long segmentIndex;
+	private long appendedEntries;
+	private long committedEntries;
+	private boolean closed;
+
+	/**
+	 * Opens the journal with default segment-size and commit-interval, not waiting for the commits
+	 * 
+	 * @param directory the directory to write the segments into
+	 * @throws IOException 
+	 */
+	public ChangeJournal(@Nonnull final Path directory) throws IOException
+	{
+		this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_COMMIT_INTERVAL_MILLIS, false);
+	}
+
+	/**
+	 * @param directory the directory to write the segments into
+	 * @param segmentSize the size of a segment-file in bytes
+	 * @param commitIntervalMillis the interval to commit the appended entries in
+	 * @param waitForCommit whether appending an entry waits for it to be committed
+	 * @throws IOException 
+	 */
+	public ChangeJournal(@Nonnull final Path directory, final int segmentSize, final long commitIntervalMillis,
+			final boolean waitForCommit) throws IOException
+	{
+		if(segmentSize <= JournalCodec.HEADER_SIZE + JournalCodec.ENTRY_HEADER_SIZE || commitIntervalMillis < 1)
+		{
+			throw new IllegalArgumentException("Invalid segment-size or commit-interval");
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.waitForCommit = waitForCommit;
+		this.entryBuffer = new EntryBuffer();
+		this.entryOut = new DataOutputStream(entryBuffer);
+		this.checksum = new CRC32();
+		
+		Files.createDirectories( directory );
+		final List<Path> segments = JournalCodec.listSegments( directory );
+		if(segments.isEmpty())
+		{
+			this.segmentIndex = 0;
+			this.segment = createSegment( segmentIndex, segmentSize );
+		}
+		else
+		{
+			final Path lastSegment = segments.get( segments.size() - 1);
+			this.segmentIndex = JournalCodec.getSegmentIndex( lastSegment );
+			this.segment = openSegment( lastSegment );
+		}
+		
+		this.committer = Executors.newSingleThreadScheduledExecutor( (final Runnable r) ->
+		{
+			final Thread thread = new Thread(r, "change-journal-committer");
+			thread.setDaemon( true );
+			return thread;
+		});
+		committer.scheduleWithFixedDelay( this::commitPending, commitIntervalMillis, commitIntervalMillis, 
+				TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void propertyChange( PropertyChangeEvent evt )
+	{
+		if(evt.getSource() instanceof ActiveRecord && evt.getPropertyName() != null)
+		{
+			final ActiveRecord record = ( ActiveRecord ) evt.getSource();
+			try
+			{
+				append( record.getBase().getRecordType().getName(), record.getPrimaryKey(), evt.getPropertyName(),
+						evt.getOldValue(), evt.getNewValue());
+			}
+			catch ( final IOException ex )
+			{
+				throw new UncheckedIOException(ex);
+			}
+		}
+	}
+
+	/**
+	 * Appends an entry for the change with the current time
+	 * 
+	 * @param recordType the name of the record-type
+	 * @param primaryKey the primary-key of the changed record
+	 * @param attributeName the name of the changed attribute
+	 * @param oldValue the previous value
+	 * @param newValue the new value
+	 * @throws IOException if the journal is closed or the entry could not be written
+	 */
+	public void append(@Nonnull final String recordType, final int primaryKey, @Nonnull final String attributeName,
+			@Nullable final Object oldValue, @Nullable final Object newValue) throws IOException
+	{
+		final long entry;
+		synchronized(lock)
+		{
+			if(closed)
+			{
+				throw new IOException("Journal is closed");
+			}
+			entryBuffer.reset();
+			JournalCodec.writeEntry( entryOut, System.currentTimeMillis(), recordType, primaryKey, attributeName,
+					oldValue, newValue );
+			entryOut.flush();
+			final int length = entryBuffer.size();
+			if(segment.remaining() < JournalCodec.ENTRY_HEADER_SIZE + length)
+			{
+				rollover( length );
+			}
+			final int position = segment.position();
+			segment.position( position + JournalCodec.ENTRY_HEADER_SIZE);
+			segment.put( entryBuffer.getBuffer(), 0, length );
+			segment.putInt( position + Integer.BYTES, JournalCodec.computeChecksum( checksum, entryBuffer.getBuffer(), length ));
+			//the length is written last, so readers never see an incomplete entry. Since the storage may persist the 
+			//pages in any order, entries torn by a crash are detected by their checksum
+			segment.putInt( position, length );
+			entry = ++appendedEntries;
+		}
+		if(waitForCommit)
+		{
+			awaitCommit( entry );
+		}
+	}
+
+	/**
+	 * Forces all appended entries to the storage
+	 */
+	public void commit()
+	{
+		commitPending();
+	}
+
+	/**
+	 * Commits all appended entries and closes the journal
+	 */
+	@Override
+	public void close()
+	{
+		committer.shutdown();
+		commitPending();
+		synchronized(lock)
+		{
+			closed = true;
+			segment = null;
+			lock.notifyAll();
+		}
+	}
+
+	private void commitPending()
+	{
+		final MappedByteBuffer toCommit;
+		final long target;
+		synchronized(lock)
+		{
+			if(committedEntries >= appendedEntries || segment == null)
+			{
+				return;
+			}
+			toCommit = segment;
+			target = appendedEntries;
+		}
+		//force outside of the lock, so appending is not blocked
+		toCommit.force();
+		synchronized(lock)
+		{
+			committedEntries = Math.max( committedEntries, target );
+			lock.notifyAll();
+		}
+	}
+
+	private void awaitCommit(final long entry)
+	{
+		boolean interrupted = false;
+		synchronized(lock)
+		{
+			while(committedEntries < entry && !closed)
+			{
+				try
+				{
+					lock.wait();
+				}
+				catch ( final InterruptedException ex )
+				{
+					interrupted = true;
+				}
+			}
+		}
+		if(interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Must be called while holding the lock
+	 * 
+	 * @param entryLength the length of the entry to write into the new segment
+	 */
+	private void rollover(final int entryLength) throws IOException
+	{
+		//the previous segment is not referenced anymore, so it is committed now
+		segment.force();
+		committedEntries = appendedEntries;
+		lock.notifyAll();
+		++segmentIndex;
+		segment = createSegment( segmentIndex, Math.max( segmentSize, JournalCodec.HEADER_SIZE + JournalCodec.ENTRY_HEADER_SIZE + 
+				entryLength));
+	}
+
+	@Nonnull
+	private MappedByteBuffer createSegment(final long index, final int size) throws IOException
+	{
+		try(final FileChannel channel = FileChannel.open( JournalCodec.getSegmentPath( directory, index ),
+				StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			final MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.putInt( JournalCodec.MAGIC );
+			buffer.putInt( JournalCodec.VERSION );
+			return buffer;
+		}
+	}
+
+	@Nonnull
+	private MappedByteBuffer openSegment(@Nonnull final Path path) throws IOException
+	{
+		try(final FileChannel channel = FileChannel.open( path, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			final MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_WRITE, 0, channel.size());
+			JournalCodec.readHeader( buffer, path );
+			//skip all existing valid entries
+			while(JournalCodec.nextEntryData( buffer, checksum ) != null)
+			{
+				//nothing to do
+			}
+			//discard a torn entry and anything after it, so it is overwritten by the next entry
+			if(JournalCodec.truncate( buffer ))
+			{
+				buffer.force();
+			}
+			return buffer;
+		}
+	}
+
+	/**
+	 * Re-usable buffer for encoding an entry, providing access to the encoded bytes without copying
+	 */
+	private static final class EntryBuffer extends ByteArrayOutputStream
+	{
+		EntryBuffer()
+		{
+			super(256);
+		}
+
+		byte[] getBuffer()
+		{
+			return buf;
+		}
+	}
+}
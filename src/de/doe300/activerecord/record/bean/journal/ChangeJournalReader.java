@@ -0,0 +1,253 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean.journal;
+
+import de.doe300.activerecord.record.ActiveRecord;
+import de.doe300.activerecord.record.bean.AbstractJavaBeanRecord;
+import de.doe300.activerecord.record.bean.ChangeHistory;
+import de.doe300.activerecord.record.bean.WriteBehindScope;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.stream.StreamSupport;
+import javax.annotation.Nonnull;
+
+/**
+ * Reads the entries written by a {@link ChangeJournal} in the order they were appended.
+ * 
+ * The segments are listed when the iteration starts, so entries appended to later segments afterwards are not read.
+ * The iteration stops at the first entry with an invalid checksum, e.g. an entry torn by a crash, since the changes 
+ * journaled after it can't be replayed consistently.
+ * I/O-errors during the iteration are thrown as {@link UncheckedIOException}.
+ *
+ * @author doe300
+ */
+public class ChangeJournalReader implements Iterable<JournalEntry>
+{
+	private final Path directory;
+
+	/**
+	 * @param directory the directory the journal-segments are written into
+	 */
+	public ChangeJournalReader(@Nonnull final Path directory)
+	{
+		this.directory = directory;
+	}
+
+	@Override
+	public Iterator<JournalEntry> iterator()
+	{
+		try
+		{
+			return new EntryIterator(JournalCodec.listSegments( directory ));
+		}
+		catch ( final IOException ex )
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * @return a sequential stream of all entries
+	 */
+	@Nonnull
+	public Stream<JournalEntry> stream()
+	{
+		return StreamSupport.stream( spliterator(), false );
+	}
+
+	/**
+	 * Replays the journaled changes of a record to determine the values of its attributes at the given time.
+	 * 
+	 * Attributes changed up to the given time have the latest new value written until then. Attributes first changed
+	 * afterwards have the old value of their first change. Attributes never journaled and attributes whose value at
+	 * the given time is {@link JournalEntry#UNSUPPORTED_VALUE unsupported} are not contained.
+	 * 
+	 * The journal has no index, so every call reads and decodes all entries of all segments. The cost grows with the
+	 * size of the whole journal, not with the number of changes to the record. To look up the states of many records,
+	 * iterate the {@link #stream() entries} once instead.
+	 * 
+	 * @param recordType the name of the record-type
+	 * @param primaryKey the primary-key of the record
+	 * @param timestamp the time in milliseconds since the epoch
+	 * @return the values of the journaled attributes at the given time
+	 */
+	@Nonnull
+	public Map<String, Object> getStateAsOf(@Nonnull final String recordType, final int primaryKey, final long timestamp)
+	{
+		final Map<String, Object> state = new HashMap<>(16);
+		final Iterator<JournalEntry> it = iterator();
+		while(it.hasNext())
+		{
+			final JournalEntry entry = it.next();
+			if(entry.getPrimaryKey() != primaryKey || !entry.getRecordType().equals( recordType))
+			{
+				continue;
+			}
+			if(entry.getTimestamp() <= timestamp)
+			{
+				state.put( entry.getAttributeName(), entry.getNewValue());
+			}
+			else if(!state.containsKey( entry.getAttributeName()))
+			{
+				state.put( entry.getAttributeName(), entry.getOldValue());
+			}
+		}
+		state.values().removeIf( (final Object value) -> value == JournalEntry.UNSUPPORTED_VALUE);
+		return state;
+	}
+
+	/**
+	 * Writes the values of the journaled attributes at the given time back into the record. Attributes whose value is
+	 * not known at that time are not changed.
+	 * 
+	 * The values are written through the record, as by {@link ChangeHistory#writeValue(de.doe300.activerecord.record.ActiveRecord, java.lang.String, java.lang.Object, java.lang.Object) },
+	 * so the listeners of the record are notified about every restored attribute whose value changes. The changes to an
+	 * {@link AbstractJavaBeanRecord} are written with a single access to the record-store.
+	 * 
+	 * @param record the record to restore
+	 * @param timestamp the time in milliseconds since the epoch
+	 * @see #getStateAsOf(java.lang.String, int, long) 
+	 */
+	public void restoreAsOf(@Nonnull final ActiveRecord record, final long timestamp)
+	{
+		final Map<String, Object> state = getStateAsOf( record.getBase().getRecordType().getName(), 
+				record.getPrimaryKey(), timestamp );
+		if(state.isEmpty())
+		{
+			return;
+		}
+		final Map<String, Object> currentValues = record.getBase().getStore().getValues( record.getBase(), 
+				record.getPrimaryKey(), state.keySet().toArray( new String[state.size()]));
+		//the pending changes of the record are not yet written to the store
+		final Set<String> dirtyAttributes = record instanceof AbstractJavaBeanRecord ? 
+				(( AbstractJavaBeanRecord ) record).getDirtyAttributes() : Collections.<String>emptySet();
+		try(final WriteBehindScope scope = WriteBehindScope.begin())
+		{
+			for(final Map.Entry<String, Object> entry : state.entrySet())
+			{
+				final Object currentValue = dirtyAttributes.contains( entry.getKey()) ? 
+						(( AbstractJavaBeanRecord ) record).readAttribute( entry.getKey(), Object.class ) :
+						currentValues.get( entry.getKey());
+				if(!Objects.equals( currentValue, entry.getValue()))
+				{
+					ChangeHistory.writeValue( record, entry.getKey(), currentValue, entry.getValue());
+				}
+			}
+		}
+	}
+
+	private static final class EntryIterator implements Iterator<JournalEntry>
+	{
+		private final List<Path> segments;
+		private final CRC32 checksum;
+		private int nextSegment;
+		private ByteBuffer segment;
+		private byte[] nextEntry;
+
+		EntryIterator(@Nonnull final List<Path> segments)
+		{
+			this.segments = segments;
+			this.checksum = new CRC32();
+			this.nextSegment = 0;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			while(nextEntry == null)
+			{
+				if(segment != null)
+				{
+					nextEntry = JournalCodec.nextEntryData( segment, checksum );
+					if(nextEntry != null)
+					{
+						break;
+					}
+					if(JournalCodec.hasInvalidEntry( segment ))
+					{
+						//don't read any entries written after the invalid one
+						nextSegment = segments.size();
+						segment = null;
+						return false;
+					}
+				}
+				if(nextSegment >= segments.size())
+				{
+					return false;
+				}
+				segment = mapSegment( segments.get( nextSegment++ ));
+			}
+			return true;
+		}
+
+		@Override
+		public JournalEntry next()
+		{
+			if(!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			final byte[] data = nextEntry;
+			nextEntry = null;
+			try
+			{
+				return JournalCodec.readEntry( data );
+			}
+			catch ( final IOException ex )
+			{
+				throw new UncheckedIOException(ex);
+			}
+		}
+
+		@Nonnull
+		private static ByteBuffer mapSegment(@Nonnull final Path path)
+		{
+			try(final FileChannel channel = FileChannel.open( path, StandardOpenOption.READ))
+			{
+				final ByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				JournalCodec.readHeader( buffer, path );
+				return buffer;
+			}
+			catch ( final IOException ex )
+			{
+				throw new UncheckedIOException(ex);
+			}
+		}
+	}
+}
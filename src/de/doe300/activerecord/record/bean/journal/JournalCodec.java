@@ -0,0 +1,512 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean.journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Binary format of the journal-segments.
+ * 
+ * A segment starts with the {@link #MAGIC magic number} and the {@link #VERSION format-version}, followed by the
+ * entries. Every entry is prefixed with its length and the CRC32-checksum of its data, a length of zero marks the end
+ * of the written entries. An entry with an invalid length or checksum, e.g. torn by a crash while writing it, is
+ * treated as the end of the entries as well.
+ * An entry consists of the timestamp, the primary-key, the record-type, the attribute-name and the old and new value.
+ * Values are written with a tag for their type followed by their compact binary representation.
+ * Other serializable values are written with java-serialization. When reading them, only the classes of the packages
+ * {@link #SERIALIZABLE_PACKAGES}, the java.sql date-types, enums and arrays of these are resolved, so a manipulated
+ * segment can't instantiate arbitrary classes.
+ * Values which can't be written or read this way are replaced by {@link JournalEntry#UNSUPPORTED_VALUE}.
+ *
+ * @author doe300
+ */
+final class JournalCodec
+{
+	static final int MAGIC = 0x4A524E4C;
+	static final int VERSION = 2;
+	static final int HEADER_SIZE = 8;
+	/**
+	 * The size of the length- and checksum-prefix of an entry
+	 */
+	static final int ENTRY_HEADER_SIZE = 2 * Integer.BYTES;
+	
+	private static final byte TAG_NULL = 0;
+	private static final byte TAG_STRING = 1;
+	private static final byte TAG_INTEGER = 2;
+	private static final byte TAG_LONG = 3;
+	private static final byte TAG_DOUBLE = 4;
+	private static final byte TAG_FLOAT = 5;
+	private static final byte TAG_BOOLEAN = 6;
+	private static final byte TAG_SHORT = 7;
+	private static final byte TAG_BYTE = 8;
+	private static final byte TAG_CHARACTER = 9;
+	private static final byte TAG_BIG_DECIMAL = 10;
+	private static final byte TAG_DATE = 11;
+	private static final byte TAG_SQL_DATE = 12;
+	private static final byte TAG_SQL_TIME = 13;
+	private static final byte TAG_SQL_TIMESTAMP = 14;
+	private static final byte TAG_BYTES = 15;
+	private static final byte TAG_SERIALIZED = 16;
+	private static final byte TAG_UNSUPPORTED = 17;
+
+	/**
+	 * The packages of the classes allowed to be deserialized, sub-packages are not included
+	 */
+	static final Set<String> SERIALIZABLE_PACKAGES = Collections.unmodifiableSet( new HashSet<>(Arrays.asList( 
+			"java.lang", "java.math", "java.time", "java.util")));
+
+	private static final String SEGMENT_PREFIX = "journal-";
+	private static final String SEGMENT_SUFFIX = ".seg";
+
+	private JournalCodec()
+	{
+	}
+
+	/**
+	 * @return the path of the segment with the given index
+	 */
+	@Nonnull
+	static Path getSegmentPath(@Nonnull final Path directory, final long segmentIndex)
+	{
+		//zero-padded, so the file-names sort in the order of the segments
+		return directory.resolve( String.format( "%s%019d%s", SEGMENT_PREFIX, segmentIndex, SEGMENT_SUFFIX));
+	}
+
+	/**
+	 * @return the paths of all segments in the directory in the order they were written
+	 */
+	@Nonnull
+	static List<Path> listSegments(@Nonnull final Path directory) throws IOException
+	{
+		if(!Files.isDirectory( directory ))
+		{
+			return Collections.emptyList();
+		}
+		final List<Path> segments = new ArrayList<>(16);
+		try(final DirectoryStream<Path> files = Files.newDirectoryStream( directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX))
+		{
+			for(final Path file : files)
+			{
+				segments.add( file );
+			}
+		}
+		Collections.sort( segments );
+		return segments;
+	}
+
+	/**
+	 * @return the index of the segment at the given path
+	 */
+	static long getSegmentIndex(@Nonnull final Path segment)
+	{
+		final String fileName = segment.getFileName().toString();
+		return Long.parseLong( fileName.substring( SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	/**
+	 * Checks the header of the segment and positions the buffer at the first entry
+	 */
+	static void readHeader(@Nonnull final ByteBuffer segment, @Nonnull final Path path) throws IOException
+	{
+		if(segment.remaining() < HEADER_SIZE || segment.getInt() != MAGIC)
+		{
+			throw new IOException("Not a journal-segment: " + path);
+		}
+		final int version = segment.getInt();
+		if(version != VERSION)
+		{
+			throw new IOException("Unsupported journal-version " + version + " in segment: " + path);
+		}
+	}
+
+	/**
+	 * Reads the data of the next entry and advances the position of the buffer past the entry. If there is no valid
+	 * entry, the position is not changed.
+	 * 
+	 * @param segment the segment to read from
+	 * @param checksum the checksum to validate the data with
+	 * @return the data of the entry or <code>null</code>, if there are no more valid entries in this segment
+	 */
+	@Nullable
+	static byte[] nextEntryData(@Nonnull final ByteBuffer segment, @Nonnull final CRC32 checksum)
+	{
+		if(segment.remaining() < ENTRY_HEADER_SIZE)
+		{
+			return null;
+		}
+		final int position = segment.position();
+		final int length = segment.getInt( position );
+		if(length <= 0 || length > segment.remaining() - ENTRY_HEADER_SIZE)
+		{
+			return null;
+		}
+		final byte[] data = new byte[length];
+		segment.position( position + ENTRY_HEADER_SIZE );
+		segment.get( data );
+		if(computeChecksum( checksum, data, length ) != segment.getInt( position + Integer.BYTES))
+		{
+			segment.position( position );
+			return null;
+		}
+		return data;
+	}
+
+	/**
+	 * @param segment the segment, positioned after the last valid entry
+	 * @return whether the segment contains an invalid entry at its position, instead of the end of the entries
+	 */
+	static boolean hasInvalidEntry(@Nonnull final ByteBuffer segment)
+	{
+		return segment.remaining() >= Integer.BYTES && segment.getInt( segment.position()) != 0;
+	}
+
+	/**
+	 * Clears all bytes from the position of the segment on, so an invalid entry and anything written after it is
+	 * removed. Bytes already cleared are not written again. The position is not changed.
+	 * 
+	 * @param segment the segment, positioned after the last valid entry
+	 * @return whether any byte was cleared
+	 */
+	static boolean truncate(@Nonnull final ByteBuffer segment)
+	{
+		boolean cleared = false;
+		int index = segment.position();
+		for(; index + Long.BYTES <= segment.limit(); index += Long.BYTES)
+		{
+			if(segment.getLong( index ) != 0)
+			{
+				segment.putLong( index, 0 );
+				cleared = true;
+			}
+		}
+		for(; index < segment.limit(); ++index)
+		{
+			if(segment.get( index ) != 0)
+			{
+				segment.put( index, (byte) 0 );
+				cleared = true;
+			}
+		}
+		return cleared;
+	}
+
+	/**
+	 * @return the CRC32-checksum of the first <code>length</code> bytes of the data
+	 */
+	static int computeChecksum(@Nonnull final CRC32 checksum, @Nonnull final byte[] data, final int length)
+	{
+		checksum.reset();
+		checksum.update( data, 0, length );
+		return (int) checksum.getValue();
+	}
+
+	/**
+	 * Writes an entry without its length-prefix
+	 */
+	static void writeEntry(@Nonnull final DataOutputStream out, final long timestamp, @Nonnull final String recordType,
+			final int primaryKey, @Nonnull final String attributeName, @Nullable final Object oldValue,
+			@Nullable final Object newValue) throws IOException
+	{
+		out.writeLong( timestamp );
+		out.writeInt( primaryKey );
+		out.writeUTF( recordType );
+		out.writeUTF( attributeName );
+		writeValue( out, oldValue );
+		writeValue( out, newValue );
+	}
+
+	/**
+	 * Reads an entry written by {@link #writeEntry(java.io.DataOutputStream, long, java.lang.String, int, java.lang.String, java.lang.Object, java.lang.Object) }
+	 */
+	@Nonnull
+	static JournalEntry readEntry(@Nonnull final byte[] data) throws IOException
+	{
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		final long timestamp = in.readLong();
+		final int primaryKey = in.readInt();
+		final String recordType = in.readUTF();
+		final String attributeName = in.readUTF();
+		final Object oldValue = readValue( in );
+		final Object newValue = readValue( in );
+		return new JournalEntry(timestamp, recordType, primaryKey, attributeName, oldValue, newValue);
+	}
+
+	private static void writeValue(@Nonnull final DataOutputStream out, @Nullable final Object value) throws IOException
+	{
+		if(value == null)
+		{
+			out.writeByte( TAG_NULL );
+		}
+		else if(value instanceof String)
+		{
+			out.writeByte( TAG_STRING );
+			writeBytes( out, (( String ) value).getBytes( StandardCharsets.UTF_8 ));
+		}
+		else if(value instanceof Integer)
+		{
+			out.writeByte( TAG_INTEGER );
+			out.writeInt( ( Integer ) value );
+		}
+		else if(value instanceof Long)
+		{
+			out.writeByte( TAG_LONG );
+			out.writeLong( ( Long ) value );
+		}
+		else if(value instanceof Double)
+		{
+			out.writeByte( TAG_DOUBLE );
+			out.writeDouble( ( Double ) value );
+		}
+		else if(value instanceof Float)
+		{
+			out.writeByte( TAG_FLOAT );
+			out.writeFloat( ( Float ) value );
+		}
+		else if(value instanceof Boolean)
+		{
+			out.writeByte( TAG_BOOLEAN );
+			out.writeBoolean( ( Boolean ) value );
+		}
+		else if(value instanceof Short)
+		{
+			out.writeByte( TAG_SHORT );
+			out.writeShort( ( Short ) value );
+		}
+		else if(value instanceof Byte)
+		{
+			out.writeByte( TAG_BYTE );
+			out.writeByte( ( Byte ) value );
+		}
+		else if(value instanceof Character)
+		{
+			out.writeByte( TAG_CHARACTER );
+			out.writeChar( ( Character ) value );
+		}
+		else if(value.getClass() == BigDecimal.class)
+		{
+			out.writeByte( TAG_BIG_DECIMAL );
+			out.writeUTF( value.toString());
+		}
+		else if(value.getClass() == Date.class)
+		{
+			out.writeByte( TAG_DATE );
+			out.writeLong( (( Date ) value).getTime());
+		}
+		else if(value.getClass() == java.sql.Date.class)
+		{
+			out.writeByte( TAG_SQL_DATE );
+			out.writeLong( (( Date ) value).getTime());
+		}
+		else if(value.getClass() == Time.class)
+		{
+			out.writeByte( TAG_SQL_TIME );
+			out.writeLong( (( Date ) value).getTime());
+		}
+		else if(value.getClass() == Timestamp.class)
+		{
+			out.writeByte( TAG_SQL_TIMESTAMP );
+			out.writeLong( (( Timestamp ) value).getTime());
+			out.writeInt( (( Timestamp ) value).getNanos());
+		}
+		else if(value instanceof byte[])
+		{
+			out.writeByte( TAG_BYTES );
+			writeBytes( out, ( byte[] ) value );
+		}
+		else if(value instanceof Serializable)
+		{
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+			try(final ObjectOutputStream objectOut = new ObjectOutputStream(bytes))
+			{
+				objectOut.writeObject( value );
+			}
+			catch(final NotSerializableException ex)
+			{
+				//some referenced object is not serializable
+				out.writeByte( TAG_UNSUPPORTED );
+				return;
+			}
+			out.writeByte( TAG_SERIALIZED );
+			writeBytes( out, bytes.toByteArray());
+		}
+		else
+		{
+			//a textual representation would be restored with the wrong type
+			out.writeByte( TAG_UNSUPPORTED );
+		}
+	}
+
+	@Nullable
+	private static Object readValue(@Nonnull final DataInputStream in) throws IOException
+	{
+		final byte tag = in.readByte();
+		switch(tag)
+		{
+			case TAG_NULL:
+				return null;
+			case TAG_STRING:
+				return new String(readBytes( in ), StandardCharsets.UTF_8);
+			case TAG_INTEGER:
+				return in.readInt();
+			case TAG_LONG:
+				return in.readLong();
+			case TAG_DOUBLE:
+				return in.readDouble();
+			case TAG_FLOAT:
+				return in.readFloat();
+			case TAG_BOOLEAN:
+				return in.readBoolean();
+			case TAG_SHORT:
+				return in.readShort();
+			case TAG_BYTE:
+				return in.readByte();
+			case TAG_CHARACTER:
+				return in.readChar();
+			case TAG_BIG_DECIMAL:
+				return new BigDecimal(in.readUTF());
+			case TAG_DATE:
+				return new Date(in.readLong());
+			case TAG_SQL_DATE:
+				return new java.sql.Date(in.readLong());
+			case TAG_SQL_TIME:
+				return new Time(in.readLong());
+			case TAG_SQL_TIMESTAMP:
+				final Timestamp timestamp = new Timestamp(in.readLong());
+				timestamp.setNanos( in.readInt());
+				return timestamp;
+			case TAG_BYTES:
+				return readBytes( in );
+			case TAG_SERIALIZED:
+				try(final ObjectInputStream objectIn = new RestrictedObjectInputStream(new ByteArrayInputStream(readBytes( in ))))
+				{
+					return objectIn.readObject();
+				}
+				catch(final ClassNotFoundException | InvalidClassException ex)
+				{
+					//the bytes of the value are already consumed, so the rest of the entry can still be read
+					return JournalEntry.UNSUPPORTED_VALUE;
+				}
+			case TAG_UNSUPPORTED:
+				return JournalEntry.UNSUPPORTED_VALUE;
+			default:
+				throw new IOException("Unknown value-tag: " + tag);
+		}
+	}
+
+	private static void writeBytes(@Nonnull final DataOutputStream out, @Nonnull final byte[] bytes) throws IOException
+	{
+		out.writeInt( bytes.length );
+		out.write( bytes );
+	}
+
+	@Nonnull
+	private static byte[] readBytes(@Nonnull final DataInputStream in) throws IOException
+	{
+		final byte[] bytes = new byte[in.readInt()];
+		in.readFully( bytes );
+		return bytes;
+	}
+
+	/**
+	 * @param type the class to deserialize
+	 * @return whether instances of the class may be read from the journal
+	 */
+	static boolean isSerializableClass(@Nonnull final Class<?> type)
+	{
+		Class<?> componentType = type;
+		while(componentType.isArray())
+		{
+			componentType = componentType.getComponentType();
+		}
+		if(componentType.isPrimitive() || componentType.isEnum())
+		{
+			//enum-constants are resolved by their name, without running any code of the stream
+			return true;
+		}
+		if(componentType == java.sql.Date.class || componentType == Time.class || componentType == Timestamp.class)
+		{
+			return true;
+		}
+		final Package typePackage = componentType.getPackage();
+		return typePackage != null && SERIALIZABLE_PACKAGES.contains( typePackage.getName());
+	}
+
+	/**
+	 * Only resolves the classes allowed by {@link #isSerializableClass(java.lang.Class) } and no proxy-classes
+	 */
+	private static final class RestrictedObjectInputStream extends ObjectInputStream
+	{
+		RestrictedObjectInputStream(@Nonnull final InputStream in) throws IOException
+		{
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(final ObjectStreamClass desc ) throws IOException, ClassNotFoundException
+		{
+			final Class<?> type = super.resolveClass( desc );
+			if(!isSerializableClass( type ))
+			{
+				throw new InvalidClassException(desc.getName(), "Class is not allowed in the journal");
+			}
+			return type;
+		}
+
+		@Override
+		protected Class<?> resolveProxyClass(final String[] interfaces ) throws IOException, ClassNotFoundException
+		{
+			throw new InvalidClassException("Proxy-classes are not allowed in the journal");
+		}
+	}
+}
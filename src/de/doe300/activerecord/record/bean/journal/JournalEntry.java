@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean.journal;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A single attribute-change read from the {@link ChangeJournal}
+ *
+ * @author doe300
+ */
+public final class JournalEntry
+{
+	/**
+	 * The value of an entry whose actual value could not be journaled or restored, e.g. since its type is not
+	 * serializable or not allowed to be deserialized
+	 */
+	public static final Object UNSUPPORTED_VALUE = new Object()
+	{
+		@Override
+		public String toString()
+		{
+			return "<unsupported>";
+		}
+	};
+
+	private final long timestamp;
+	private final String recordType;
+	private final int primaryKey;
+	private final String attributeName;
+	private final Object oldValue;
+	private final Object newValue;
+
+	JournalEntry( final long timestamp, @Nonnull final String recordType, final int primaryKey,
+			@Nonnull final String attributeName, @Nullable final Object oldValue, @Nullable final Object newValue )
+	{
+		this.timestamp = timestamp;
+		this.recordType = recordType;
+		this.primaryKey = primaryKey;
+		this.attributeName = attributeName;
+		this.oldValue = oldValue;
+		this.newValue = newValue;
+	}
+
+	/**
+	 * @return the time of the change in milliseconds since the epoch
+	 */
+	public long getTimestamp()
+	{
+		return timestamp;
+	}
+
+	/**
+	 * @return the fully qualified name of the record-type
+	 */
+	@Nonnull
+	public String getRecordType()
+	{
+		return recordType;
+	}
+
+	/**
+	 * @return the primary-key of the changed record
+	 */
+	public int getPrimaryKey()
+	{
+		return primaryKey;
+	}
+
+	/**
+	 * @return the name of the changed attribute
+	 */
+	@Nonnull
+	public String getAttributeName()
+	{
+		return attributeName;
+	}
+
+	/**
+	 * @return the value before the change or {@link #UNSUPPORTED_VALUE}
+	 */
+	@Nullable
+	public Object getOldValue()
+	{
+		return oldValue;
+	}
+
+	/**
+	 * @return the value after the change or {@link #UNSUPPORTED_VALUE}
+	 */
+	@Nullable
+	public Object getNewValue()
+	{
+		return newValue;
+	}
+
+	@Override
+	public String toString()
+	{
+		return recordType + "#" + primaryKey + "." + attributeName + "@" + timestamp + ": " + oldValue + " -> " + newValue;
+	}
+}
@@ -0,0 +1,346 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package de.doe300.activerecord.record.javafx;
+
+import de.doe300.activerecord.RecordBase;
+import de.doe300.activerecord.proxy.RecordHandler;
+import de.doe300.activerecord.proxy.handlers.ProxyHandler;
+import de.doe300.activerecord.record.ActiveRecord;
+import de.doe300.activerecord.record.bean.ChangeMetrics;
+import de.doe300.activerecord.record.bean.ChangeMetricsCollector;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Change-feed routing writes of a record-attribute to all {@link AttributeProperty AttributeProperties} mapped to the
+ * same attribute of the same record, so they are notified about changes not made via themselves.
+ * 
+ * Writes via an {@link AttributeProperty} are published automatically. To publish other writes, the feed can be:
+ * <ul>
+ * <li>registered as {@link ProxyHandler} for a record-base, to publish all writes via attribute-setters of proxied records</li>
+ * <li>added as {@link PropertyChangeListener} to JavaBeanRecords, to publish all their change-events</li>
+ * <li>notified directly via {@link #publish(de.doe300.activerecord.RecordBase, int, java.lang.String, java.lang.Object, java.lang.Object) }</li>
+ * </ul>
+ * Writes directly into the record-store can't be detected and are not published. The feed should not be registered
+ * both as ProxyHandler and as listener of the same records, or the changes will be published twice.
+ * 
+ * Properties only subscribe to the feed while they have listeners or a valid cached value, and are only weakly
+ * referenced. The subscriptions of garbage-collected properties are removed on the next subscription or publication.
+ * Neither the records nor their record-bases are kept alive by the feed.
+ * 
+ * @author doe300
+ */
+public final class AttributeChangeFeed implements ProxyHandler, PropertyChangeListener
+{
+	private static final AttributeChangeFeed INSTANCE = new AttributeChangeFeed();
+	
+	private final ConcurrentMap<AttributeKey, Subscribers> subscriptions;
+	//references to the subscribers garbage-collected since the last cleanup
+	private final ReferenceQueue<AttributeChangeSubscriber> staleSubscribers;
+
+	private AttributeChangeFeed()
+	{
+		this.subscriptions = new ConcurrentHashMap<>(16);
+		this.staleSubscribers = new ReferenceQueue<>();
+	}
+
+	/**
+	 * @return the global feed
+	 */
+	@Nonnull
+	public static AttributeChangeFeed getInstance()
+	{
+		return INSTANCE;
+	}
+
+	void subscribe(@Nonnull final AttributeChangeSubscriber subscriber)
+	{
+		removeStaleSubscribers();
+		//the key stored in the map must not keep the record-base alive
+		final AttributeKey key = new AttributeKey(new WeakReference<>(subscriber.getRecord().getBase()), 
+				subscriber.getRecord().getPrimaryKey(), subscriber.getAttributeName());
+		subscriptions.compute( key, (final AttributeKey k, Subscribers subscribers) ->
+		{
+			if(subscribers == null)
+			{
+				subscribers = new Subscribers(k);
+			}
+			for(final SubscriberReference ref : subscribers.references)
+			{
+				if(ref.get() == subscriber)
+				{
+					return subscribers;
+				}
+			}
+			subscribers.references.add( new SubscriberReference(subscriber, subscribers, staleSubscribers));
+			return subscribers;
+		});
+	}
+
+	void unsubscribe(@Nonnull final AttributeChangeSubscriber subscriber)
+	{
+		final AttributeKey key = new AttributeKey(subscriber.getRecord().getBase(), subscriber.getRecord().getPrimaryKey(),
+				subscriber.getAttributeName());
+		subscriptions.computeIfPresent( key, (final AttributeKey k, final Subscribers subscribers) ->
+		{
+			subscribers.references.removeIf( (final SubscriberReference ref) -> ref.get() == null || ref.get() == subscriber);
+			return subscribers.references.isEmpty() ? null : subscribers;
+		});
+	}
+
+	/**
+	 * Removes the references to all subscribers garbage-collected meanwhile and the keys without any subscribers left
+	 */
+	private void removeStaleSubscribers()
+	{
+		Reference<? extends AttributeChangeSubscriber> ref;
+		while((ref = staleSubscribers.poll()) != null)
+		{
+			final SubscriberReference stale = ( SubscriberReference ) ref;
+			//the key is the very key stored in the map, so it is found even if its record-base is already collected
+			subscriptions.computeIfPresent( stale.subscribers.key, (final AttributeKey k, final Subscribers subscribers) ->
+			{
+				subscribers.references.remove( stale );
+				return subscribers.references.isEmpty() ? null : subscribers;
+			});
+		}
+	}
+
+	/**
+	 * @return the number of attributes with subscriptions
+	 */
+	int getSubscribedAttributeCount()
+	{
+		removeStaleSubscribers();
+		return subscriptions.size();
+	}
+
+	/**
+	 * @param base the record-base
+	 * @param primaryKey the primary-key of the record
+	 * @param attributeName the name of the attribute
+	 * @return whether anyone is subscribed to changes of the given attribute
+	 */
+	public boolean hasSubscribers(@Nonnull final RecordBase<?> base, final int primaryKey, @Nonnull final String attributeName)
+	{
+		return !subscriptions.isEmpty() && subscriptions.containsKey( new AttributeKey(base, primaryKey, attributeName));
+	}
+
+	/**
+	 * Notifies all subscribers about the change of the attribute
+	 * 
+	 * @param base the record-base
+	 * @param primaryKey the primary-key of the record
+	 * @param attributeName the name of the changed attribute
+	 * @param oldValue the previous value
+	 * @param newValue the new value
+	 */
+	public void publish(@Nonnull final RecordBase<?> base, final int primaryKey, @Nonnull final String attributeName,
+			@Nullable final Object oldValue, @Nullable final Object newValue)
+	{
+		publish( null, base, primaryKey, attributeName, oldValue, newValue );
+	}
+
+	/**
+	 * Notifies all subscribers except the source about the change of its attribute
+	 * 
+	 * @param source the subscriber which changed the attribute
+	 * @param oldValue the previous value
+	 * @param newValue the new value
+	 */
+	void publish(@Nonnull final AttributeChangeSubscriber source, @Nullable final Object oldValue, @Nullable final Object newValue)
+	{
+		publish( source, source.getRecord().getBase(), source.getRecord().getPrimaryKey(), source.getAttributeName(),
+				oldValue, newValue);
+	}
+
+	private void publish(@Nullable final AttributeChangeSubscriber source, @Nonnull final RecordBase<?> base, final int primaryKey,
+			@Nonnull final String attributeName, @Nullable final Object oldValue, @Nullable final Object newValue)
+	{
+		removeStaleSubscribers();
+		if(subscriptions.isEmpty())
+		{
+			return;
+		}
+		final Subscribers subscribers = subscriptions.get( new AttributeKey(base, primaryKey, attributeName));
+		if(subscribers == null)
+		{
+			return;
+		}
+		for(final SubscriberReference ref : subscribers.references)
+		{
+			final AttributeChangeSubscriber subscriber = ref.get();
+			if(subscriber != null && subscriber != source)
+			{
+				subscriber.attributeChanged( oldValue, newValue );
+			}
+		}
+	}
+
+	@Override
+	public void propertyChange( PropertyChangeEvent evt )
+	{
+		if(evt.getSource() instanceof ActiveRecord && evt.getPropertyName() != null)
+		{
+			final ActiveRecord record = ( ActiveRecord ) evt.getSource();
+			publish( record.getBase(), record.getPrimaryKey(), evt.getPropertyName(), evt.getOldValue(), evt.getNewValue());
+		}
+	}
+
+	@Override
+	public boolean handlesMethod( ActiveRecord record, Method method, Object[] args ) throws IllegalArgumentException
+	{
+		return false;
+	}
+
+	@Override
+	public <T extends ActiveRecord> Object invoke( ActiveRecord record, RecordHandler<T> handler, Method method,
+			Object[] args ) throws IllegalArgumentException
+	{
+		throw new UnsupportedOperationException("Method '" + method.getName() + "' not implemented!");
+	}
+
+	@Override
+	public Object setAttributeHook( ActiveRecord record, String attributeName, Object value )
+	{
+		//only read the old value, if anyone is interested
+		if(hasSubscribers( record.getBase(), record.getPrimaryKey(), attributeName ))
+		{
+			final ChangeMetricsCollector metrics = ChangeMetrics.getCollector();
+			if(metrics != null)
+			{
+				metrics.oldValueRead();
+			}
+			final Object oldValue = record.getBase().getStore().getValue( record.getBase(), record.getPrimaryKey(), attributeName);
+			publish( record.getBase(), record.getPrimaryKey(), attributeName, oldValue, value );
+		}
+		return value;
+	}
+
+	/**
+	 * Key identifying an attribute of a record, the record-base is compared by identity.
+	 * 
+	 * Keys stored in the map only reference the record-base weakly, keys only used for look-ups reference it directly.
+	 */
+	private static final class AttributeKey
+	{
+		private final RecordBase<?> base;
+		private final WeakReference<RecordBase<?>> weakBase;
+		private final int primaryKey;
+		private final String attributeName;
+		private final int hash;
+
+		AttributeKey(@Nonnull final RecordBase<?> base, final int primaryKey, @Nonnull final String attributeName)
+		{
+			this(base, null, primaryKey, attributeName);
+		}
+
+		AttributeKey(@Nonnull final WeakReference<RecordBase<?>> weakBase, final int primaryKey, @Nonnull final String attributeName)
+		{
+			this(null, weakBase, primaryKey, attributeName);
+		}
+
+		private AttributeKey(@Nullable final RecordBase<?> base, @Nullable final WeakReference<RecordBase<?>> weakBase,
+				final int primaryKey, @Nonnull final String attributeName)
+		{
+			this.base = base;
+			this.weakBase = weakBase;
+			this.primaryKey = primaryKey;
+			this.attributeName = attributeName;
+			//the hash must not change, when the record-base is collected
+			this.hash = (31 * System.identityHashCode( getBase() ) + primaryKey) * 31 + attributeName.hashCode();
+		}
+
+		@Nullable
+		private RecordBase<?> getBase()
+		{
+			return weakBase != null ? weakBase.get() : base;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals( Object obj )
+		{
+			if(obj == this)
+			{
+				return true;
+			}
+			if(!(obj instanceof AttributeKey))
+			{
+				return false;
+			}
+			final AttributeKey other = ( AttributeKey ) obj;
+			final RecordBase<?> recordBase = getBase();
+			return hash == other.hash && primaryKey == other.primaryKey && recordBase != null && 
+					recordBase == other.getBase() && attributeName.equals( other.attributeName);
+		}
+	}
+
+	/**
+	 * The subscribers of a single attribute
+	 */
+	private static final class Subscribers
+	{
+		//the key this instance is stored with
+		private final AttributeKey key;
+		private final CopyOnWriteArrayList<SubscriberReference> references;
+
+		Subscribers(@Nonnull final AttributeKey key)
+		{
+			this.key = key;
+			this.references = new CopyOnWriteArrayList<>();
+		}
+	}
+
+	/**
+	 * Weak reference to a subscriber, enqueued when the subscriber is garbage-collected
+	 */
+	private static final class SubscriberReference extends WeakReference<AttributeChangeSubscriber>
+	{
+		private final Subscribers subscribers;
+
+		SubscriberReference(@Nonnull final AttributeChangeSubscriber subscriber, @Nonnull final Subscribers subscribers, 
+				@Nonnull final ReferenceQueue<AttributeChangeSubscriber> queue)
+		{
+			super(subscriber, queue);
+			this.subscribers = subscribers;
+		}
+	}
+}
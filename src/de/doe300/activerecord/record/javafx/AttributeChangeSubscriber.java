@@ -0,0 +1,59 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package de.doe300.activerecord.record.javafx;
+
+import de.doe300.activerecord.record.ActiveRecord;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Subscriber to the {@link AttributeChangeFeed}, notified about changes of a single attribute of a single record
+ * 
+ * @author doe300
+ */
+interface AttributeChangeSubscriber
+{
+	/**
+	 * @return the record this subscriber is mapped to
+	 */
+	@Nonnull
+	public ActiveRecord getRecord();
+	
+	/**
+	 * @return the name of the attribute this subscriber is mapped to
+	 */
+	@Nonnull
+	public String getAttributeName();
+	
+	/**
+	 * Called when the attribute was changed by someone else than this subscriber.
+	 * NOTE: This method may be called before the new value is written into the record-store and from any thread.
+	 * 
+	 * @param oldValue the previous value
+	 * @param newValue the new value
+	 */
+	public void attributeChanged(@Nullable final Object oldValue, @Nullable final Object newValue);
+}
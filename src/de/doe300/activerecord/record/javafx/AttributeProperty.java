@@ -25,19 +25,39 @@
 package de.doe300.activerecord.record.javafx;
 
 import de.doe300.activerecord.record.ActiveRecord;
+import de.doe300.activerecord.record.bean.AbstractJavaBeanRecord;
+import de.doe300.activerecord.record.bean.SkipUnchangedWrites;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import javafx.application.Platform;
 import javafx.beans.InvalidationListener;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.Property;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
- * Property to map a single attribute of an {@link ActiveRecord}
+ * Property to map a single attribute of an {@link ActiveRecord}.
+ * 
+ * While the property has any listeners, it is subscribed to the {@link AttributeChangeFeed} and notifies its listeners
+ * about all changes published there.
+ * 
+ * In caching-mode, the property holds the last value read or written and only re-reads the value from the record-store
+ * after it was {@link #invalidate() invalidated}. While the cached value is valid, the property is subscribed to the
+ * change-feed to update the cached value. Invalidation-listeners are then only notified, if the value was
+ * valid before, as with the lazy properties of JavaFX.
+ * 
+ * If {@link #setDeliverOnFXThread(boolean) enabled}, changes made on any other thread than the FX Application Thread
+ * are delivered to the listeners on the FX Application Thread. All changes until the next delivery are coalesced into
+ * a single notification with the first old and the latest new value. The cached value is then also updated with the
+ * notification, so the state of the property is only changed on the FX Application Thread. Reading the value on other
+ * threads then never fills the cache.
+ * 
  * @author doe300
  * @param <T>
  */
@@ -52,16 +72,162 @@ public class AttributeProperty<T> extends ObjectProperty<T> implements Property<
 	//for bindings
 	private ObservableValue<? extends T> ov;
 	private final Set<Property<T>> bindings;
+	private ChangeListener<T> bidirectionalListener;
+	//whether the bidirectionally bound properties are currently updated, to break the feedback-loop
+	private boolean updatingBindings;
+	
+	private boolean skipUnchangedWrites;
+	
+	//subscription to the change-feed, only while there are listeners
+	private AttributeChangeSubscriber subscriber;
+	//the value the attribute is changed to by a change published in the feed, while notifying the listeners
+	private volatile Value<T> changingValue;
+	
+	//for caching-mode, the cached value is null while it is not valid. Since the value can be read on any thread, the
+	//value and its validity are published together
+	private volatile boolean caching;
+	private volatile Value<T> cachedValue;
+	
+	//for delivery on the FX Application Thread
+	private volatile FXDelivery fxDelivery;
 
 	public AttributeProperty(@Nonnull final ActiveRecord record, @Nonnull final String attributeName, @Nonnull final Class<T> attributeType )
+	{
+		this(record, attributeName, attributeType, false);
+	}
+
+	/**
+	 * @param record the record to map
+	 * @param attributeName the name of the attribute to map
+	 * @param attributeType the type of the attribute
+	 * @param caching whether to cache the value of the attribute
+	 */
+	public AttributeProperty(@Nonnull final ActiveRecord record, @Nonnull final String attributeName, @Nonnull final Class<T> attributeType,
+			final boolean caching)
 	{
 		this.record = record;
 		this.attributeName = attributeName;
 		this.attributeType = attributeType;
+		this.caching = caching;
 		changeListeners = new ArrayList<>(5);
 		invalidationListeners = new ArrayList<>(5);
 		
 		bindings = new HashSet<>(5);
+		skipUnchangedWrites = record.getBase().getRecordType().isAnnotationPresent( SkipUnchangedWrites.class );
+	}
+
+	/**
+	 * Creates a property in caching-mode, initialized with the value from the snapshot (if it contains the attribute)
+	 * 
+	 * @param snapshot the snapshot of the record to map
+	 * @param attributeName the name of the attribute to map
+	 * @param attributeType the type of the attribute
+	 */
+	public AttributeProperty(@Nonnull final RecordSnapshot snapshot, @Nonnull final String attributeName, 
+			@Nonnull final Class<T> attributeType)
+	{
+		this(snapshot.getRecord(), attributeName, attributeType, true);
+		prefetch( snapshot );
+	}
+
+	/**
+	 * @return whether the value of the attribute is cached
+	 */
+	public boolean isCaching()
+	{
+		return caching;
+	}
+
+	/**
+	 * Enables or disables caching the value of the attribute. 
+	 * Disabling the caching-mode drops the cached value.
+	 * 
+	 * @param caching whether to cache the value of the attribute
+	 */
+	public void setCaching(final boolean caching)
+	{
+		this.caching = caching;
+		if(!caching)
+		{
+			cachedValue = null;
+			updateSubscription();
+		}
+	}
+
+	/**
+	 * @return whether writing a value equal to the current value is skipped
+	 * @see SkipUnchangedWrites
+	 */
+	public boolean isSkipUnchangedWrites()
+	{
+		return skipUnchangedWrites;
+	}
+
+	/**
+	 * Enables or disables skipping the write and the notification for values equal to the current value. 
+	 * By default, this is enabled for record-types annotated with {@link SkipUnchangedWrites}.
+	 * 
+	 * @param skipUnchangedWrites whether to skip writing unchanged values
+	 */
+	public void setSkipUnchangedWrites(final boolean skipUnchangedWrites)
+	{
+		this.skipUnchangedWrites = skipUnchangedWrites;
+	}
+
+	/**
+	 * @return whether changes made on other threads are delivered on the FX Application Thread
+	 */
+	public boolean isDeliverOnFXThread()
+	{
+		return fxDelivery != null;
+	}
+
+	/**
+	 * @param deliverOnFXThread whether to deliver changes made on other threads on the FX Application Thread
+	 */
+	public void setDeliverOnFXThread(final boolean deliverOnFXThread)
+	{
+		if(deliverOnFXThread && fxDelivery == null)
+		{
+			fxDelivery = new FXDelivery();
+		}
+		else if(!deliverOnFXThread)
+		{
+			fxDelivery = null;
+		}
+	}
+
+	/**
+	 * Enables the caching-mode and takes the value of the attribute from the snapshot, if it contains the attribute.
+	 * The value is then served from the cache until the property is invalidated.
+	 * 
+	 * @param snapshot the snapshot of the mapped record
+	 */
+	public void prefetch(@Nonnull final RecordSnapshot snapshot)
+	{
+		if(snapshot.getRecord() != record)
+		{
+			throw new IllegalArgumentException("Snapshot is for another record");
+		}
+		caching = true;
+		if(snapshot.contains( attributeName ))
+		{
+			updateCache( attributeType.cast( snapshot.getValue( attributeName )));
+		}
+	}
+
+	/**
+	 * Marks the value of this property as invalid, e.g. after the attribute was changed directly in the record-store.
+	 * In caching-mode, the value is re-read on the next access.
+	 */
+	public void invalidate()
+	{
+		if(!caching || cachedValue != null)
+		{
+			cachedValue = null;
+			updateSubscription();
+			fireInvalidated();
+		}
 	}
 
 	@Override
@@ -92,6 +258,52 @@ public class AttributeProperty<T> extends ObjectProperty<T> implements Property<
 		return ov!= null;
 	}
 
+	/**
+	 * Binds this property and the other property to each other. This property is set to the other's value and all
+	 * further changes of either property are written to the other one.
+	 * 
+	 * The other property is strongly referenced until {@link #unbindBidirectional(javafx.beans.property.Property) unbound}.
+	 * 
+	 * @param other the property to bind to
+	 */
+	@Override
+	public void bindBidirectional( Property<T> other )
+	{
+		if(other == null)
+		{
+			throw new NullPointerException();
+		}
+		if(other == this)
+		{
+			throw new IllegalArgumentException("Cannot bind property to itself");
+		}
+		if(!bindings.add( other ))
+		{
+			return;
+		}
+		if(bidirectionalListener == null)
+		{
+			bidirectionalListener = (final ObservableValue<? extends T> observable, final T oldValue, final T newValue) ->
+			{
+				if(!updatingBindings)
+				{
+					set( newValue );
+				}
+			};
+		}
+		set( other.getValue());
+		other.addListener( bidirectionalListener );
+	}
+
+	@Override
+	public void unbindBidirectional( Property<T> other )
+	{
+		if(other != null && bindings.remove( other ))
+		{
+			other.removeListener( bidirectionalListener );
+		}
+	}
+
 	@Override
 	public Object getBean()
 	{
@@ -108,47 +320,369 @@ public class AttributeProperty<T> extends ObjectProperty<T> implements Property<
 	public void addListener(ChangeListener<? super T> cl )
 	{
 		changeListeners.add( cl );
+		updateSubscription();
 	}
 
 	@Override
 	public void removeListener(ChangeListener<? super T> cl )
 	{
 		changeListeners.remove( cl );
+		updateSubscription();
 	}
 
 	@Override
 	public void addListener( InvalidationListener il )
 	{
 		invalidationListeners.add( il );
+		updateSubscription();
 	}
 
 	@Override
 	public void removeListener( InvalidationListener il )
 	{
 		invalidationListeners.remove( il );
+		updateSubscription();
 	}
 
 	@Override
 	public void changed(ObservableValue<? extends T> ov, T oldVal, T newVal )
 	{
-		record.getBase().getStore().setValue( record.getBase(), record.getPrimaryKey(), attributeName, newVal);
+		if(skipUnchangedWrites && Objects.equals( get(), newVal))
+		{
+			return;
+		}
+		writeAttribute( record, attributeName, newVal);
+		notifyChange( oldVal, newVal );
+		//while bound, the old value of the observable is the old value of the attribute
+		publishChange( oldVal, newVal );
 	}
 
 	@Override
 	public T get()
 	{
+		final Value<T> changing = changingValue;
+		if(changing != null)
+		{
+			//the change is not yet written to the store
+			return changing.value;
+		}
+		if(caching)
+		{
+			final Value<T> cached = cachedValue;
+			if(cached != null)
+			{
+				return cached.value;
+			}
+			final T value = readValue();
+			if(fxDelivery == null || Platform.isFxApplicationThread())
+			{
+				cachedValue = new Value<>(value);
+				updateSubscription();
+			}
+			return value;
+		}
+		return readValue();
+	}
+
+	private T readValue()
+	{
+		return getAttribute( record, attributeName, attributeType );
+	}
+
+	/**
+	 * Reads the value of an attribute without creating a property.
+	 * Pending changes of {@link AbstractJavaBeanRecord AbstractJavaBeanRecords} in write-behind mode are served.
+	 * 
+	 * @param <T> the type of the attribute
+	 * @param record the record to read from
+	 * @param attributeName the name of the attribute
+	 * @param attributeType the type of the attribute
+	 * @return the current value of the attribute
+	 */
+	@Nullable
+	public static <T> T getAttribute(@Nonnull final ActiveRecord record, @Nonnull final String attributeName, 
+			@Nonnull final Class<T> attributeType)
+	{
+		if(record instanceof AbstractJavaBeanRecord)
+		{
+			return (( AbstractJavaBeanRecord ) record).readAttribute( attributeName, attributeType );
+		}
 		return attributeType.cast( record.getBase().getStore().getValue( record.getBase(), record.getPrimaryKey(), attributeName));
 	}
 
+	private static void writeAttribute(@Nonnull final ActiveRecord record, @Nonnull final String attributeName, 
+			@Nullable final Object value)
+	{
+		if(record instanceof AbstractJavaBeanRecord)
+		{
+			//defers the write, if the record is in write-behind mode
+			(( AbstractJavaBeanRecord ) record).writeAttribute( attributeName, value );
+			return;
+		}
+		record.getBase().getStore().setValue( record.getBase(), record.getPrimaryKey(), attributeName, value);
+	}
+
+	/**
+	 * Writes the value of an attribute without creating a property.
+	 * The change is still published to the properties subscribed to the {@link AttributeChangeFeed}
+	 * 
+	 * @param record the record to write to
+	 * @param attributeName the name of the attribute
+	 * @param value the new value
+	 */
+	public static void setAttribute(@Nonnull final ActiveRecord record, @Nonnull final String attributeName, @Nullable final Object value)
+	{
+		final AttributeChangeFeed feed = AttributeChangeFeed.getInstance();
+		if(!feed.hasSubscribers( record.getBase(), record.getPrimaryKey(), attributeName))
+		{
+			writeAttribute( record, attributeName, value);
+			return;
+		}
+		final Object oldValue = getAttribute( record, attributeName, Object.class );
+		writeAttribute( record, attributeName, value);
+		feed.publish( record.getBase(), record.getPrimaryKey(), attributeName, oldValue, value );
+	}
+
 	@Override
 	public void set( T newValue )
 	{
 		T oldValue = getValue();
-		record.getBase().getStore().setValue( record.getBase(), record.getPrimaryKey(), attributeName, newValue);
+		if(skipUnchangedWrites && Objects.equals( oldValue, newValue))
+		{
+			return;
+		}
+		writeAttribute( record, attributeName, newValue);
+		notifyChange( oldValue, newValue );
+		publishChange( oldValue, newValue );
+	}
+
+	/**
+	 * Notifies the listeners immediately or on the FX Application Thread
+	 * 
+	 * @param oldValue the old value
+	 * @param newValue the new value
+	 */
+	private void notifyChange(final T oldValue, final T newValue)
+	{
+		final FXDelivery delivery = fxDelivery;
+		//also queue changes on the FX Application Thread while older changes are pending, to keep them in order
+		if(delivery != null && (!Platform.isFxApplicationThread() || delivery.hasPending()))
+		{
+			delivery.add( oldValue, newValue );
+			return;
+		}
+		fireChanged( oldValue, newValue );
+	}
+
+	private void fireChanged(final T oldValue, final T newValue)
+	{
+		if(updateCache( newValue ))
+		{
+			fireInvalidated();
+		}
 		for(ChangeListener<? super T> l: changeListeners)
 		{
 			l.changed( this, oldValue, newValue);
 		}
+		updateBindings( newValue );
+	}
+
+	private void updateBindings(final T newValue)
+	{
+		if(bindings.isEmpty() || updatingBindings)
+		{
+			return;
+		}
+		updatingBindings = true;
+		try
+		{
+			for(final Property<T> other : bindings)
+			{
+				if(!Objects.equals( other.getValue(), newValue))
+				{
+					other.setValue( newValue );
+				}
+			}
+		}
+		finally
+		{
+			updatingBindings = false;
+		}
+	}
+
+	/**
+	 * @param newValue the value written
+	 * @return whether the previous value was valid
+	 */
+	private boolean updateCache(final T newValue)
+	{
+		if(!caching)
+		{
+			//there is no cache, so we can't tell whether it was invalidated before
+			return true;
+		}
+		final boolean wasValid = cachedValue != null;
+		cachedValue = new Value<>(newValue);
+		if(!wasValid)
+		{
+			updateSubscription();
+		}
+		return wasValid;
+	}
+
+	private void fireInvalidated()
+	{
+		for(InvalidationListener l : invalidationListeners)
+		{
+			l.invalidated( this );
+		}
+	}
+
+	private void updateSubscription()
+	{
+		//a valid cached value must be kept up-to-date, even without listeners
+		final boolean subscribe = !changeListeners.isEmpty() || !invalidationListeners.isEmpty() || (caching && cachedValue != null);
+		if(subscribe && subscriber == null)
+		{
+			subscriber = new FeedSubscriber();
+			AttributeChangeFeed.getInstance().subscribe( subscriber );
+		}
+		else if(!subscribe && subscriber != null)
+		{
+			AttributeChangeFeed.getInstance().unsubscribe( subscriber );
+			subscriber = null;
+		}
 	}
 
+	private void publishChange(final T oldValue, final T newValue)
+	{
+		if(subscriber != null)
+		{
+			//don't notify ourselves
+			AttributeChangeFeed.getInstance().publish( subscriber, oldValue, newValue );
+		}
+		else
+		{
+			AttributeChangeFeed.getInstance().publish( record.getBase(), record.getPrimaryKey(), attributeName, oldValue, newValue );
+		}
+	}
+
+	/**
+	 * Notifies the listeners of this property about changes published in the {@link AttributeChangeFeed}.
+	 * This subscriber is only referenced by its property, so it is released together with the property
+	 */
+	private final class FeedSubscriber implements AttributeChangeSubscriber
+	{
+		@Override
+		public ActiveRecord getRecord()
+		{
+			return record;
+		}
+
+		@Override
+		public String getAttributeName()
+		{
+			return attributeName;
+		}
+
+		@Override
+		public void attributeChanged( Object oldValue, Object newValue )
+		{
+			final T oldVal = attributeType.cast( oldValue );
+			final T newVal = attributeType.cast( newValue );
+			final FXDelivery delivery = fxDelivery;
+			if(delivery != null && (!Platform.isFxApplicationThread() || delivery.hasPending()))
+			{
+				//the change is marked and the cache is updated when it is delivered on the FX Application Thread
+				delivery.add( oldVal, newVal );
+				return;
+			}
+			fireChanging( oldVal, newVal );
+		}
+	}
+
+	/**
+	 * Notifies the listeners about a change published in the feed, which may not yet be written to the store
+	 * 
+	 * @param oldValue the old value
+	 * @param newValue the new value
+	 */
+	private void fireChanging(final T oldValue, final T newValue)
+	{
+		final Value<T> previous = changingValue;
+		changingValue = new Value<>(newValue);
+		try
+		{
+			fireChanged( oldValue, newValue );
+		}
+		finally
+		{
+			changingValue = previous;
+		}
+	}
+
+	/**
+	 * Immutable holder for a value, which may be <code>null</code>
+	 * 
+	 * @param <T> the type of the value
+	 */
+	private static final class Value<T>
+	{
+		private final T value;
+
+		Value(@Nullable final T value)
+		{
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Pending change to be delivered on the FX Application Thread
+	 */
+	private final class FXDelivery implements Runnable
+	{
+		private boolean pending;
+		private T oldValue;
+		private T newValue;
+
+		synchronized boolean hasPending()
+		{
+			return pending;
+		}
+
+		void add(final T oldVal, final T newVal)
+		{
+			synchronized(this)
+			{
+				if(!pending)
+				{
+					pending = true;
+					oldValue = oldVal;
+				}
+				newValue = newVal;
+			}
+			FXThreadDispatcher.schedule( this );
+		}
+
+		@Override
+		public void run()
+		{
+			final T oldVal;
+			final T newVal;
+			synchronized(this)
+			{
+				if(!pending)
+				{
+					return;
+				}
+				oldVal = oldValue;
+				newVal = newValue;
+				pending = false;
+				oldValue = null;
+				newValue = null;
+			}
+			//also changes published in the feed may not be written to the store yet
+			fireChanging( oldVal, newVal );
+		}
+	}
 }
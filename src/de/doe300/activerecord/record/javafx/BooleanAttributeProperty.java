@@ -0,0 +1,146 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.javafx;
+
+import de.doe300.activerecord.record.ActiveRecord;
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javax.annotation.Nonnull;
+
+/**
+ * Property to map a single boolean-attribute of an {@link ActiveRecord}.
+ * 
+ * In contrast to an {@link AttributeProperty}, this property can be used in boolean-bindings and -expressions.
+ * A <code>null</code> value of the attribute is mapped to <code>false</code>, the nullable value can be accessed via
+ * {@link #getAttributeProperty() }.
+ * 
+ * The value is handled as {@link Boolean} object by the wrapped {@link AttributeProperty} and passed as such to 
+ * change-listeners, but boxing a boolean only returns one of the two shared instances.
+ * 
+ * @author doe300
+ * @see AttributeProperty
+ */
+public class BooleanAttributeProperty extends BooleanProperty
+{
+	private final PrimitivePropertyDelegate<Boolean, Boolean> delegate;
+
+	/**
+	 * @param record the record to map
+	 * @param attributeName the name of the attribute to map
+	 */
+	public BooleanAttributeProperty(@Nonnull final ActiveRecord record, @Nonnull final String attributeName)
+	{
+		this(record, attributeName, false);
+	}
+
+	/**
+	 * @param record the record to map
+	 * @param attributeName the name of the attribute to map
+	 * @param caching whether to cache the value of the attribute
+	 * @see AttributeProperty#setCaching(boolean) 
+	 */
+	public BooleanAttributeProperty(@Nonnull final ActiveRecord record, @Nonnull final String attributeName, final boolean caching)
+	{
+		this.delegate = new PrimitivePropertyDelegate<>(this, new AttributeProperty<>(record, attributeName, Boolean.class, caching));
+	}
+
+	/**
+	 * @return the property mapping the (nullable) attribute-value
+	 */
+	@Nonnull
+	public AttributeProperty<Boolean> getAttributeProperty()
+	{
+		return delegate.getAttributeProperty();
+	}
+
+	@Override
+	public boolean get()
+	{
+		final Boolean value = delegate.getAttributeProperty().get();
+		return value == null ? false : value;
+	}
+
+	@Override
+	public void set( boolean value )
+	{
+		delegate.getAttributeProperty().set( value );
+	}
+
+	@Override
+	public void bind( ObservableValue<? extends Boolean> ov )
+	{
+		delegate.bind( ov, (Boolean newVal) -> set( newVal == null ? false : newVal.booleanValue()));
+	}
+
+	@Override
+	public void unbind()
+	{
+		delegate.unbind();
+	}
+
+	@Override
+	public boolean isBound()
+	{
+		return delegate.isBound();
+	}
+
+	@Override
+	public Object getBean()
+	{
+		return delegate.getAttributeProperty().getBean();
+	}
+
+	@Override
+	public String getName()
+	{
+		return delegate.getAttributeProperty().getName();
+	}
+
+	@Override
+	public void addListener( ChangeListener<? super Boolean> listener )
+	{
+		delegate.addListener( listener );
+	}
+
+	@Override
+	public void removeListener( ChangeListener<? super Boolean> listener )
+	{
+		delegate.removeListener( listener );
+	}
+
+	@Override
+	public void addListener( InvalidationListener listener )
+	{
+		delegate.addListener( listener );
+	}
+
+	@Override
+	public void removeListener( InvalidationListener listener )
+	{
+		delegate.removeListener( listener );
+	}
+}
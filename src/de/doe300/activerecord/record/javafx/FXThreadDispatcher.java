@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package de.doe300.activerecord.record.javafx;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javafx.application.Platform;
+import javax.annotation.Nonnull;
+
+/**
+ * Collects pending deliveries from any thread and runs them on the FX Application Thread.
+ * 
+ * At most one drain-task is queued on the FX Application Thread at any time, so bulk-updates from background-threads
+ * do not flood the event-queue. Scheduling the same delivery multiple times before it is drained runs it only once.
+ * 
+ * @author doe300
+ */
+final class FXThreadDispatcher
+{
+	private static final Set<Runnable> PENDING_DELIVERIES = ConcurrentHashMap.newKeySet();
+	private static final AtomicBoolean DRAIN_SCHEDULED = new AtomicBoolean(false);
+
+	private FXThreadDispatcher()
+	{
+	}
+
+	/**
+	 * Schedules the delivery to be run with the next drain on the FX Application Thread
+	 * 
+	 * @param delivery the delivery to run
+	 */
+	static void schedule(@Nonnull final Runnable delivery)
+	{
+		PENDING_DELIVERIES.add( delivery );
+		if(DRAIN_SCHEDULED.compareAndSet( false, true))
+		{
+			Platform.runLater( FXThreadDispatcher::drain );
+		}
+	}
+
+	private static void drain()
+	{
+		//deliveries scheduled from now on need another drain
+		DRAIN_SCHEDULED.set( false );
+		final Iterator<Runnable> it = PENDING_DELIVERIES.iterator();
+		while(it.hasNext())
+		{
+			final Runnable delivery = it.next();
+			it.remove();
+			try
+			{
+				delivery.run();
+			}
+			catch(final RuntimeException ex)
+			{
+				//don't stop running the other deliveries
+				final Thread thread = Thread.currentThread();
+				thread.getUncaughtExceptionHandler().uncaughtException( thread, ex );
+			}
+		}
+	}
+}
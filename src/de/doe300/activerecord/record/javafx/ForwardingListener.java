@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package de.doe300.activerecord.record.javafx;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Listener forwarding notifications to a listener registered on another observable, replacing the source of the
+ * notification with that observable.
+ * 
+ * Two forwarding listeners are equal, if they forward to the same listener, so they can be removed again.
+ * 
+ * @author doe300
+ * @param <T> the type of the observed value
+ */
+final class ForwardingListener<T> implements ChangeListener<T>, InvalidationListener
+{
+	private final ObservableValue<T> source;
+	private final ChangeListener<? super T> changeListener;
+	private final InvalidationListener invalidationListener;
+
+	ForwardingListener(@Nonnull final ObservableValue<T> source, @Nonnull final ChangeListener<? super T> changeListener)
+	{
+		this.source = source;
+		this.changeListener = changeListener;
+		this.invalidationListener = null;
+	}
+
+	ForwardingListener(@Nonnull final ObservableValue<T> source, @Nonnull final InvalidationListener invalidationListener)
+	{
+		this.source = source;
+		this.changeListener = null;
+		this.invalidationListener = invalidationListener;
+	}
+
+	@Override
+	public void changed( ObservableValue<? extends T> observable, T oldValue, T newValue )
+	{
+		if(changeListener != null)
+		{
+			changeListener.changed( source, oldValue, newValue);
+		}
+	}
+
+	@Override
+	public void invalidated( Observable observable )
+	{
+		if(invalidationListener != null)
+		{
+			invalidationListener.invalidated( source );
+		}
+	}
+
+	@Nullable
+	private Object getListener()
+	{
+		return changeListener != null ? changeListener : invalidationListener;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return System.identityHashCode( source ) ^ getListener().hashCode();
+	}
+
+	@Override
+	public boolean equals( Object obj )
+	{
+		if(!(obj instanceof ForwardingListener))
+		{
+			return false;
+		}
+		final ForwardingListener<?> other = ( ForwardingListener<?> ) obj;
+		return source == other.source && getListener().equals( other.getListener());
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.javafx;
+
+import de.doe300.activerecord.record.ActiveRecord;
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javax.annotation.Nonnull;
+
+/**
+ * Property to map a single int-attribute of an {@link ActiveRecord}.
+ * 
+ * In contrast to an {@link AttributeProperty}, this property can be used in int-bindings and -expressions.
+ * A <code>null</code> value of the attribute is mapped to <code>0</code>, the nullable value can be accessed via
+ * {@link #getAttributeProperty() }.
+ * 
+ * This class does not avoid boxing: the value is cached, read and written as {@link Integer} by the wrapped 
+ * {@link AttributeProperty}, and change-listeners receive {@link Number} objects, as required by the JavaFX API. Only
+ * {@link #get() } in caching-mode is allocation-free, since it unboxes the cached object.
+ * 
+ * @author doe300
+ * @see AttributeProperty
+ */
+public class IntegerAttributeProperty extends IntegerProperty
+{
+	private final PrimitivePropertyDelegate<Integer, Number> delegate;
+
+	/**
+	 * @param record the record to map
+	 * @param attributeName the name of the attribute to map
+	 */
+	public IntegerAttributeProperty(@Nonnull final ActiveRecord record, @Nonnull final String attributeName)
+	{
+		this(record, attributeName, false);
+	}
+
+	/**
+	 * @param record the record to map
+	 * @param attributeName the name of the attribute to map
+	 * @param caching whether to cache the value of the attribute
+	 * @see AttributeProperty#setCaching(boolean) 
+	 */
+	public IntegerAttributeProperty(@Nonnull final ActiveRecord record, @Nonnull final String attributeName, final boolean caching)
+	{
+		this.delegate = new PrimitivePropertyDelegate<>(this, new AttributeProperty<>(record, attributeName, Integer.class, caching));
+	}
+
+	/**
+	 * @return the property mapping the (nullable) attribute-value
+	 */
+	@Nonnull
+	public AttributeProperty<Integer> getAttributeProperty()
+	{
+		return delegate.getAttributeProperty();
+	}
+
+	@Override
+	public int get()
+	{
+		final Integer value = delegate.getAttributeProperty().get();
+		return value == null ? 0 : value;
+	}
+
+	@Override
+	public void set( int value )
+	{
+		delegate.getAttributeProperty().set( value );
+	}
+
+	@Override
+	public void bind( ObservableValue<? extends Number> ov )
+	{
+		delegate.bind( ov, (Number newVal) -> set( newVal == null ? 0 : newVal.intValue()));
+	}
+
+	@Override
+	public void unbind()
+	{
+		delegate.unbind();
+	}
+
+	@Override
+	public boolean isBound()
+	{
+		return delegate.isBound();
+	}
+
+	@Override
+	public Object getBean()
+	{
+		return delegate.getAttributeProperty().getBean();
+	}
+
+	@Override
+	public String getName()
+	{
+		return delegate.getAttributeProperty().getName();
+	}
+
+	@Override
+	public void addListener( ChangeListener<? super Number> listener )
+	{
+		delegate.addListener( listener );
+	}
+
+	@Override
+	public void removeListener( ChangeListener<? super Number> listener )
+	{
+		delegate.removeListener( listener );
+	}
+
+	@Override
+	public void addListener( InvalidationListener listener )
+	{
+		delegate.addListener( listener );
+	}
+
+	@Override
+	public void removeListener( InvalidationListener listener )
+	{
+		delegate.removeListener( listener );
+	}
+}
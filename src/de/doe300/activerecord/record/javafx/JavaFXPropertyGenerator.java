@@ -33,24 +33,44 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.LongProperty;
 import javafx.beans.property.Property;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyLongProperty;
 import javafx.beans.property.ReadOnlyProperty;
 import javax.annotation.Generated;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
 import javax.annotation.processing.SupportedSourceVersion;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
 import javax.tools.Diagnostic;
 import javax.tools.JavaFileObject;
 
 /**
  * Annotation-processor to generate JavaFX properties for the record's attributes.
+ * 
+ * The generated <code>prefetchAttributes()</code> reads all generated attributes with a single access to the
+ * record-store and serves the values from the properties until <code>invalidateAttributes()</code> is called. The 
+ * properties are not created by the prefetch, the property of an attribute is only created on the first access to the
+ * attribute and initialized with the prefetched value.
  *
  * @author doe300
  * @see Property
@@ -115,6 +135,13 @@ public class JavaFXPropertyGenerator extends AbstractProcessor
 				writer.append( "import " ).append( ReadOnlyProperty.class.getCanonicalName() ).append( ";\n" );
 				writer.append( "import " ).append( Property.class.getCanonicalName() ).append( ";\n" );
 				writer.append( "import " ).append( AttributeProperty.class.getCanonicalName() ).append( ";\n" );
+				writer.append( "import " ).append( RecordSnapshot.class.getCanonicalName() ).append( ";\n" );
+				for(final PrimitiveProperty primitiveProperty : PrimitiveProperty.values())
+				{
+					writer.append( "import " ).append( primitiveProperty.readOnlyPropertyType.getCanonicalName() ).append( ";\n" );
+					writer.append( "import " ).append( primitiveProperty.propertyType.getCanonicalName() ).append( ";\n" );
+					writer.append( "import " ).append( primitiveProperty.attributePropertyType.getCanonicalName() ).append( ";\n" );
+				}
 				
 				writer.append( "import ").append( Generated.class.getCanonicalName()).append( ";\n");
 				writer.append( "\n");
@@ -128,6 +155,8 @@ public class JavaFXPropertyGenerator extends AbstractProcessor
 
 				writer.append( " {\n\n" );
 
+				//the attribute-properties to prefetch and invalidate together
+				final Map<String, String> attributeProperties = new LinkedHashMap<>(addAttributes.length);
 				//write attribute-methods to file
 				for ( final AddAttribute addAttribute : addAttributes )
 				{
@@ -138,13 +167,25 @@ public class JavaFXPropertyGenerator extends AbstractProcessor
 								+ addAttribute.name() + "' already in use, skipping", recordTypeElement );
 						continue;
 					}
-					final TypeElement classElement = ( TypeElement ) ProcessorUtils.getTypeMirror( processingEnv,
-							addAttribute::type ).asElement();
-
+					final TypeMirror attributeType = getAttributeType( addAttribute );
 					final boolean writeableProperty = addAttribute.hasSetter();
 
-					writer.append( generateProperty( classElement.getQualifiedName().toString(), addAttribute.name(), writeableProperty ) );
+					final PrimitiveProperty primitiveProperty = PrimitiveProperty.forType( processingEnv, attributeType );
+					if(primitiveProperty != null)
+					{
+						writer.append( generatePrimitiveProperty( primitiveProperty, attributeType.getKind().isPrimitive(),
+								addAttribute.name(), writeableProperty ));
+						attributeProperties.put( addAttribute.name(), addAttribute.name() + "Property.getAttributeProperty()");
+					}
+					else
+					{
+						final TypeElement classElement = ( TypeElement ) ProcessorUtils.getTypeMirror( processingEnv,
+								addAttribute::type ).asElement();
+						writer.append( generateProperty( classElement.getQualifiedName().toString(), addAttribute.name(), writeableProperty ) );
+						attributeProperties.put( addAttribute.name(), addAttribute.name() + "Property");
+					}
 				}
+				writer.append( generateSnapshotMethods( attributeProperties ));
 
 				writer.append( "}" );
 			}
@@ -168,42 +209,320 @@ public class JavaFXPropertyGenerator extends AbstractProcessor
 	}
 
 	@Nonnull
-	private static String generateProperty( @Nonnull final String type, @Nonnull final String attributeName, final boolean writeable )
+	private TypeMirror getAttributeType(@Nonnull final AddAttribute addAttribute)
 	{
-		StringBuilder sb = new StringBuilder(1000);
-		//private final AttributeProperty<type> attributeNameProperty = new AttributeProperty<type>(this, "attributeName", type.class);
-		sb.append( "\tprivate final AttributeProperty<").append( type).append( "> ").
-				append( attributeName).append( "Property = new AttributeProperty<>(this, \"").append( attributeName ).
-				append( "\", ").append( type).append( ".class);\n\n");
+		try
+		{
+			final Class<?> type = addAttribute.type();
+			//the class is already compiled
+			if(type.isPrimitive())
+			{
+				return processingEnv.getTypeUtils().getPrimitiveType( TypeKind.valueOf( type.getName().toUpperCase()));
+			}
+			return processingEnv.getElementUtils().getTypeElement( type.getCanonicalName()).asType();
+		}
+		catch(final MirroredTypeException mte)
+		{
+			return mte.getTypeMirror();
+		}
+	}
+
+	@Nonnull
+	private static String generatePrimitiveProperty(@Nonnull final PrimitiveProperty property, final boolean primitiveAttribute,
+			@Nonnull final String attributeName, final boolean writeable)
+	{
+		final String propertyClass = property.attributePropertyType.getSimpleName();
+		final String propertyName = attributeName + "Property";
+		//for wrapper-types, the getter and setter need to support null-values
+		final String valueType = primitiveAttribute ? property.primitiveType.getName() : property.wrapperType.getSimpleName();
+		final String valueAccess = primitiveAttribute ? propertyName : propertyName + ".getAttributeProperty()";
 		
+		StringBuilder sb = new StringBuilder(1000);
+		sb.append( generatePropertyAccessor( propertyClass, (writeable ? property.propertyType : property.readOnlyPropertyType).
+				getSimpleName(), "new " + propertyClass + "(this, \"" + attributeName + "\")", "property.getAttributeProperty()", 
+				attributeName));
 		
-		//public PropertyType<type> attributeNameProperty() {
-		sb.append( "\tpublic ").append( writeable ? "Property<" : "ReadOnlyProperty<").append( type).
-				append( "> ").append( attributeName).append( "Property() {\n");
-		//return attributeNameProperty;
-		sb.append( "\t\treturn ").append( attributeName).append( "Property;\n");
+		//public type getAttributeName() {
+		sb.append( "\tpublic ").append( valueType).append(" get").append( capitalize( attributeName )).append( "() {\n");
+		sb.append( generatePrefetchedPropertyCreation( propertyName ));
+		//if(attributeNameProperty != null) {
+		sb.append( "\t\tif(").append( propertyName).append( " != null) {\n");
+		//return attributeNameProperty.get();
+		sb.append( "\t\t\treturn ").append( valueAccess).append( ".get();\n");
+		//}
+		sb.append( "\t\t}\n");
+		if(primitiveAttribute)
+		{
+			//final Wrapper value = AttributeProperty.getAttribute(this, "attributeName", Wrapper.class);
+			sb.append( "\t\tfinal ").append( property.wrapperType.getSimpleName()).append( " value = ").
+					append( AttributeProperty.class.getSimpleName()).append( ".getAttribute(this, \"").append( attributeName).
+					append( "\", ").append( property.wrapperType.getSimpleName()).append( ".class);\n");
+			//return value == null ? default : value;
+			sb.append( "\t\treturn value == null ? ").append( property.defaultValue).append( " : value;\n");
+		}
+		else
+		{
+			//return AttributeProperty.getAttribute(this, "attributeName", Wrapper.class);
+			sb.append( "\t\treturn ").append( AttributeProperty.class.getSimpleName()).append( ".getAttribute(this, \"").
+					append( attributeName).append( "\", ").append( valueType).append( ".class);\n");
+		}
 		//}
 		sb.append( "\t}\n\n");
 		
+		if(writeable)
+		{
+			sb.append( generateSetter( valueType, attributeName, valueAccess ));
+		}
+		
+		return sb.toString();
+	}
+
+	@Nonnull
+	private static String generateProperty( @Nonnull final String type, @Nonnull final String attributeName, final boolean writeable )
+	{
+		final String propertyName = attributeName + "Property";
+		
+		StringBuilder sb = new StringBuilder(1000);
+		sb.append( generatePropertyAccessor( "AttributeProperty<" + type + ">", (writeable ? "Property<" : "ReadOnlyProperty<") + type + ">",
+				"new AttributeProperty<>(this, \"" + attributeName + "\", " + type + ".class)", "property", attributeName));
+		
 		//public type getAttributeName() {
-		sb.append( "\tpublic ").append( type).append(" get").append( Character.toUpperCase( attributeName.charAt( 0))).
-				append( attributeName.substring( 1)).append( "() {\n");
+		sb.append( "\tpublic ").append( type).append(" get").append( capitalize( attributeName )).append( "() {\n");
+		sb.append( generatePrefetchedPropertyCreation( propertyName ));
+		//if(attributeNameProperty != null) {
+		sb.append( "\t\tif(").append( propertyName).append( " != null) {\n");
 		//return attributeNameProperty.get();
-		sb.append( "\t\treturn ").append( attributeName).append( "Property.get();\n");
+		sb.append( "\t\t\treturn ").append( propertyName).append( ".get();\n");
+		//}
+		sb.append( "\t\t}\n");
+		//return AttributeProperty.getAttribute(this, "attributeName", type.class);
+		sb.append( "\t\treturn AttributeProperty.getAttribute(this, \"").append( attributeName).append( "\", ").append( type).
+				append( ".class);\n");
 		//}
 		sb.append( "\t}\n\n");
 		
 		if(writeable)
 		{
-			//public void setAttributeName(type value){
-			sb.append( "\tpublic void set").append( Character.toUpperCase( attributeName.charAt( 0))).
-				append( attributeName.substring( 1)).append( "(final " ).append( type ).append( " value) {\n");
-			//attributeNameProperty.set(value);
-			sb.append( "\t\t").append( attributeName).append( "Property.set(value);\n");
+			sb.append( generateSetter( type, attributeName, propertyName ));
+		}
+		
+		return sb.toString();
+	}
+
+	/**
+	 * Generates the methods to load all attributes with a single access to the record-store and to invalidate the
+	 * loaded values. The loaded snapshot is kept for the properties not yet created, so the prefetch doesn't create them
+	 * 
+	 * @param attributeProperties the names of the attributes mapped to the expression accessing their AttributeProperty
+	 */
+	@Nonnull
+	private static String generateSnapshotMethods(@Nonnull final Map<String, String> attributeProperties)
+	{
+		StringBuilder sb = new StringBuilder(1000);
+		//private volatile RecordSnapshot prefetchedSnapshot;
+		sb.append( "\tprivate volatile ").append( RecordSnapshot.class.getSimpleName()).append( " prefetchedSnapshot;\n\n");
+		
+		//public void prefetchAttributes() {
+		sb.append( "\tpublic void prefetchAttributes() {\n");
+		//final RecordSnapshot snapshot = RecordSnapshot.load(this, "attributeA", "attributeB");
+		sb.append( "\t\tfinal ").append( RecordSnapshot.class.getSimpleName()).append( " snapshot = ").
+				append( RecordSnapshot.class.getSimpleName()).append( ".load(this");
+		for(final String attributeName : attributeProperties.keySet())
+		{
+			sb.append( ", \"").append( attributeName).append( "\"");
+		}
+		sb.append( ");\n");
+		//prefetchedSnapshot = snapshot;
+		sb.append( "\t\tprefetchedSnapshot = snapshot;\n");
+		for(final Map.Entry<String, String> entry : attributeProperties.entrySet())
+		{
+			//if(attributeNameProperty != null) {
+			sb.append( "\t\tif(").append( entry.getKey()).append( "Property != null) {\n");
+			//attributeNameProperty.prefetch(snapshot);
+			sb.append( "\t\t\t").append( entry.getValue()).append( ".prefetch(snapshot);\n");
 			//}
-			sb.append( "\t}\n\n");
+			sb.append( "\t\t}\n");
 		}
+		//}
+		sb.append( "\t}\n\n");
 		
+		//public void invalidateAttributes() {
+		sb.append( "\tpublic void invalidateAttributes() {\n");
+		//prefetchedSnapshot = null;
+		sb.append( "\t\tprefetchedSnapshot = null;\n");
+		for(final Map.Entry<String, String> entry : attributeProperties.entrySet())
+		{
+			//if(attributeNameProperty != null) {
+			sb.append( "\t\tif(").append( entry.getKey()).append( "Property != null) {\n");
+			//attributeNameProperty.invalidate();
+			sb.append( "\t\t\t").append( entry.getValue()).append( ".invalidate();\n");
+			//}
+			sb.append( "\t\t}\n");
+		}
+		//}
+		sb.append( "\t}\n\n");
+		return sb.toString();
+	}
+
+	/**
+	 * The property is only created on the first call to its accessor, so records not bound to any UI don't need to
+	 * create the properties and their listener-lists at all.
+	 * The field is volatile and only set once, while holding the lock of the record, so concurrent first calls create 
+	 * a single property, and the getter and setter can check the field without locking
+	 */
+	@Nonnull
+	private static String generatePropertyAccessor(@Nonnull final String propertyClass, @Nonnull final String propertyType,
+			@Nonnull final String constructorCall, @Nonnull final String attributePropertyAccess, 
+			@Nonnull final String attributeName)
+	{
+		final String propertyName = attributeName + "Property";
+		StringBuilder sb = new StringBuilder(500);
+		//private volatile PropertyClass attributeNameProperty;
+		sb.append( "\tprivate volatile ").append( propertyClass).append( " ").append( propertyName).append( ";\n\n");
+		
+		//public PropertyType attributeNameProperty() {
+		sb.append( "\tpublic ").append( propertyType).append( " ").append( propertyName).append( "() {\n");
+		//PropertyClass property = attributeNameProperty;
+		sb.append( "\t\t").append( propertyClass).append( " property = ").append( propertyName).append( ";\n");
+		//if(property == null) {
+		sb.append( "\t\tif(property == null) {\n");
+		//synchronized(this) {
+		sb.append( "\t\t\tsynchronized(this) {\n");
+		//property = attributeNameProperty;
+		sb.append( "\t\t\t\tproperty = ").append( propertyName).append( ";\n");
+		//if(property == null) {
+		sb.append( "\t\t\t\tif(property == null) {\n");
+		//property = new PropertyClass(...);
+		sb.append( "\t\t\t\t\tproperty = ").append( constructorCall).append( ";\n");
+		//final RecordSnapshot snapshot = prefetchedSnapshot;
+		sb.append( "\t\t\t\t\tfinal ").append( RecordSnapshot.class.getSimpleName()).append( " snapshot = prefetchedSnapshot;\n");
+		//if(snapshot != null) {
+		sb.append( "\t\t\t\t\tif(snapshot != null) {\n");
+		//property.prefetch(snapshot);
+		sb.append( "\t\t\t\t\t\t").append( attributePropertyAccess).append( ".prefetch(snapshot);\n");
+		//}
+		sb.append( "\t\t\t\t\t}\n");
+		//attributeNameProperty = property;
+		sb.append( "\t\t\t\t\t").append( propertyName).append( " = property;\n");
+		//}
+		sb.append( "\t\t\t\t}\n");
+		//}
+		sb.append( "\t\t\t}\n");
+		//}
+		sb.append( "\t\t}\n");
+		//return property;
+		sb.append( "\t\treturn property;\n");
+		//}
+		sb.append( "\t}\n\n");
+		return sb.toString();
+	}
+
+	/**
+	 * While prefetched values are kept, the getter and setter access the attribute via its property, so the property is
+	 * initialized with the prefetched value and is kept up-to-date with the changes of the attribute
+	 */
+	@Nonnull
+	private static String generatePrefetchedPropertyCreation(@Nonnull final String propertyName)
+	{
+		StringBuilder sb = new StringBuilder(200);
+		//if(attributeNameProperty == null && prefetchedSnapshot != null) {
+		sb.append( "\t\tif(").append( propertyName).append( " == null && prefetchedSnapshot != null) {\n");
+		//attributeNameProperty();
+		sb.append( "\t\t\t").append( propertyName).append( "();\n");
+		//}
+		sb.append( "\t\t}\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Writes via the property, if it was already created, otherwise directly into the record-store
+	 */
+	@Nonnull
+	private static String generateSetter(@Nonnull final String valueType, @Nonnull final String attributeName,
+			@Nonnull final String valueAccess)
+	{
+		final String propertyName = attributeName + "Property";
+		StringBuilder sb = new StringBuilder(500);
+		//public void setAttributeName(type value){
+		sb.append( "\tpublic void set").append( capitalize( attributeName )).append( "(final " ).append( valueType ).append( " value) {\n");
+		sb.append( generatePrefetchedPropertyCreation( propertyName ));
+		//if(attributeNameProperty != null) {
+		sb.append( "\t\tif(").append( propertyName).append( " != null) {\n");
+		//attributeNameProperty.set(value);
+		sb.append( "\t\t\t").append( valueAccess).append( ".set(value);\n");
+		//} else {
+		sb.append( "\t\t} else {\n");
+		//AttributeProperty.setAttribute(this, "attributeName", value);
+		sb.append( "\t\t\tAttributeProperty.setAttribute(this, \"").append( attributeName).append( "\", value);\n");
+		//}
+		sb.append( "\t\t}\n");
+		//}
+		sb.append( "\t}\n\n");
 		return sb.toString();
 	}
+
+	@Nonnull
+	private static String capitalize(@Nonnull final String attributeName)
+	{
+		return Character.toUpperCase( attributeName.charAt( 0)) + attributeName.substring( 1);
+	}
+
+	/**
+	 * The specialized properties for primitive attribute-types and their wrappers
+	 */
+	private enum PrimitiveProperty
+	{
+		INTEGER(int.class, Integer.class, "0", IntegerAttributeProperty.class, IntegerProperty.class, ReadOnlyIntegerProperty.class),
+		LONG(long.class, Long.class, "0L", LongAttributeProperty.class, LongProperty.class, ReadOnlyLongProperty.class),
+		DOUBLE(double.class, Double.class, "0.0", DoubleAttributeProperty.class, DoubleProperty.class, ReadOnlyDoubleProperty.class),
+		BOOLEAN(boolean.class, Boolean.class, "false", BooleanAttributeProperty.class, BooleanProperty.class, ReadOnlyBooleanProperty.class);
+		
+		private final Class<?> primitiveType;
+		private final Class<?> wrapperType;
+		private final String defaultValue;
+		private final Class<?> attributePropertyType;
+		private final Class<?> propertyType;
+		private final Class<?> readOnlyPropertyType;
+
+		private PrimitiveProperty(final Class<?> primitiveType, final Class<?> wrapperType, final String defaultValue,
+				final Class<?> attributePropertyType, final Class<?> propertyType, final Class<?> readOnlyPropertyType)
+		{
+			this.primitiveType = primitiveType;
+			this.wrapperType = wrapperType;
+			this.defaultValue = defaultValue;
+			this.attributePropertyType = attributePropertyType;
+			this.propertyType = propertyType;
+			this.readOnlyPropertyType = readOnlyPropertyType;
+		}
+		
+		@Nullable
+		static PrimitiveProperty forType(@Nonnull final ProcessingEnvironment processingEnv, @Nonnull final TypeMirror type)
+		{
+			final TypeMirror primitiveType;
+			if(type.getKind().isPrimitive())
+			{
+				primitiveType = type;
+			}
+			else
+			{
+				try
+				{
+					primitiveType = processingEnv.getTypeUtils().unboxedType( type );
+				}
+				catch(final IllegalArgumentException iae)
+				{
+					//not a wrapper-type
+					return null;
+				}
+			}
+			for(final PrimitiveProperty property : values())
+			{
+				if(property.primitiveType.getName().equals( primitiveType.toString()))
+				{
+					return property;
+				}
+			}
+			return null;
+		}
+	}
 }
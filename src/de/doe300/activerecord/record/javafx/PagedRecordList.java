@@ -0,0 +1,263 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.javafx;
+
+import de.doe300.activerecord.RecordBase;
+import de.doe300.activerecord.dsl.AndCondition;
+import de.doe300.activerecord.dsl.Comparison;
+import de.doe300.activerecord.dsl.Condition;
+import de.doe300.activerecord.dsl.SimpleCondition;
+import de.doe300.activerecord.dsl.SimpleOrder;
+import de.doe300.activerecord.record.ActiveRecord;
+import de.doe300.activerecord.scope.Scope;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Read-only {@link ObservableList} of the records matching a condition, loading the records in pages on access.
+ * 
+ * Only the {@link #getMaxPages() most recently used} pages are kept, so the memory-usage depends on the rows accessed,
+ * e.g. the rows visible in a <code>TableView</code> or <code>ListView</code>, and not on the number of matching
+ * records. Evicted records (and the properties bound to them) can be garbage-collected and are loaded again on the
+ * next access.
+ * 
+ * The records are ordered by their primary key. A page is loaded by its position relative to the primary key of the last
+ * record of the previous page (keyset-paging), so no preceding records need to be skipped. The key ending every page
+ * is kept, so accessing a page far behind the pages loaded so far only reads the pages in between once.
+ * 
+ * The size and content are not updated automatically, call {@link #refresh()} to reload them after the matching
+ * records have changed. Until then, the list may contain <code>null</code> for records removed from the record-store.
+ * 
+ * As all JavaFX collections, this list is not thread-safe and is meant to be used from the JavaFX application thread.
+ *
+ * @author doe300
+ * @param <T> the type of the records
+ */
+public class PagedRecordList<T extends ActiveRecord> extends ObservableListBase<T>
+{
+	/**
+	 * The number of records in a page by default
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 100;
+	/**
+	 * The number of pages kept by default
+	 */
+	public static final int DEFAULT_MAX_PAGES = 10;
+	
+	private final RecordBase<T> base;
+	@Nullable
+	private final Condition condition;
+	private final int pageSize;
+	private final int maxPages;
+	private final Map<Integer, List<T>> pages;
+	//the primary key of the last record of every page, in the order of the pages
+	private final List<Integer> pageEndKeys;
+	private int size = -1;
+
+	/**
+	 * @param base the record-base to load the records from
+	 * @param condition the condition to match, <code>null</code> for all records. The condition is passed as is to the
+	 * record-base to count and find the records
+	 */
+	public PagedRecordList(@Nonnull final RecordBase<T> base, @Nullable final Condition condition)
+	{
+		this(base, condition, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+	}
+
+	/**
+	 * @param base the record-base to load the records from
+	 * @param condition the condition to match, <code>null</code> for all records. The condition is passed as is to the
+	 * record-base to count and find the records
+	 * @param pageSize the number of records loaded at once
+	 * @param maxPages the maximum number of pages to keep
+	 */
+	public PagedRecordList(@Nonnull final RecordBase<T> base, @Nullable final Condition condition, final int pageSize,
+			final int maxPages)
+	{
+		if(pageSize < 1 || maxPages < 1)
+		{
+			throw new IllegalArgumentException("Page-size and maximum number of pages must be positive");
+		}
+		this.base = base;
+		this.condition = condition;
+		this.pageSize = pageSize;
+		this.maxPages = maxPages;
+		//access-ordered, so the least recently used page is evicted
+		this.pages = new LinkedHashMap<Integer, List<T>>(maxPages + 1, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<Integer, List<T>> eldest )
+			{
+				return size() > PagedRecordList.this.maxPages;
+			}
+		};
+		this.pageEndKeys = new ArrayList<>(maxPages);
+	}
+
+	/**
+	 * @return the number of records loaded at once
+	 */
+	public int getPageSize()
+	{
+		return pageSize;
+	}
+
+	/**
+	 * @return the maximum number of pages kept
+	 */
+	public int getMaxPages()
+	{
+		return maxPages;
+	}
+
+	/**
+	 * @return the number of pages currently loaded
+	 */
+	public int getLoadedPageCount()
+	{
+		return pages.size();
+	}
+
+	@Override
+	public T get( int index )
+	{
+		if(index < 0 || index >= size())
+		{
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size());
+		}
+		final List<T> page = getPage( index / pageSize );
+		final int pageOffset = index % pageSize;
+		//records were removed since the size was determined
+		return pageOffset < page.size() ? page.get( pageOffset ) : null;
+	}
+
+	@Override
+	public int size()
+	{
+		if(size < 0)
+		{
+			size = base.count( condition );
+		}
+		return size;
+	}
+
+	/**
+	 * Discards all loaded pages and the size and notifies the listeners, that the whole content was replaced
+	 */
+	public void refresh()
+	{
+		final int oldSize = size();
+		pages.clear();
+		pageEndKeys.clear();
+		size = -1;
+		final int newSize = size();
+		beginChange();
+		//the removed records are not loaded anymore
+		nextRemove( 0, Collections.<T>nCopies( oldSize, null));
+		nextAdd( 0, newSize );
+		endChange();
+	}
+
+	/**
+	 * Loads a page of records. The default implementation loads the matching records ordered by their primary key, 
+	 * following the last record of the page before the <code>offset</code>. If the last primary keys of the pages up 
+	 * to this page are not yet known, the records of these pages are read in the same query without being kept.
+	 * 
+	 * @param offset the index of the first record to load
+	 * @param limit the maximum number of records to load
+	 * @return the loaded records
+	 */
+	@Nonnull
+	protected List<T> loadPage(final int offset, final int limit)
+	{
+		//start after the last known page before the offset
+		final int pageIndex = Math.min( offset / pageSize, pageEndKeys.size());
+		//the records skipped, including those of the pages up to the offset, whose last key is not yet known
+		final int skipped = offset - pageIndex * pageSize;
+		final List<T> records = loadRecords( pageIndex, skipped + limit );
+		if(records.size() <= skipped)
+		{
+			return Collections.emptyList();
+		}
+		//don't keep the skipped records reachable via the page
+		return skipped == 0 ? records : new ArrayList<>(records.subList( skipped, records.size()));
+	}
+
+	/**
+	 * Loads the records starting at the given page and stores the last keys of all complete pages loaded
+	 * 
+	 * @param pageIndex the index of the first page to load, the last key of the previous page must be known
+	 * @param limit the maximum number of records to load
+	 * @return the records loaded
+	 */
+	@Nonnull
+	private List<T> loadRecords(final int pageIndex, final int limit)
+	{
+		Condition pageCondition = condition;
+		if(pageIndex > 0)
+		{
+			final Condition keyCondition = new SimpleCondition(base.getPrimaryColumn(), pageEndKeys.get( pageIndex - 1), 
+					Comparison.LARGER);
+			pageCondition = condition == null ? keyCondition : AndCondition.andConditions( condition, keyCondition );
+		}
+		final List<T> records;
+		try(final Stream<T> stream = base.findWithScope( new Scope(pageCondition, 
+				SimpleOrder.fromSQLString( base.getPrimaryColumn() + " ASC"), limit)))
+		{
+			records = stream.collect( Collectors.toList());
+		}
+		for(int i = pageIndex; (i - pageIndex + 1) * pageSize <= records.size(); ++i)
+		{
+			if(i == pageEndKeys.size())
+			{
+				pageEndKeys.add( records.get( (i - pageIndex + 1) * pageSize - 1).getPrimaryKey());
+			}
+		}
+		return records;
+	}
+
+	@Nonnull
+	private List<T> getPage(final int pageIndex)
+	{
+		List<T> page = pages.get( pageIndex );
+		if(page == null)
+		{
+			page = loadPage( pageIndex * pageSize, pageSize );
+			pages.put( pageIndex, page );
+		}
+		return page;
+	}
+}
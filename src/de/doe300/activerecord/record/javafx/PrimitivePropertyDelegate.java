@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.javafx;
+
+import java.util.function.Consumer;
+import javafx.beans.InvalidationListener;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javax.annotation.Nonnull;
+
+/**
+ * The implementation shared by the properties mapping an attribute of a primitive type. 
+ * 
+ * Since these properties have to extend the property-class for their primitive type, they can't share a base-class, 
+ * but delegate to this class for everything not depending on the primitive type.
+ * 
+ * The value itself is held by the wrapped {@link AttributeProperty} as object, since it is read from and written to 
+ * the record-store as object and the JavaFX change-listeners of primitive properties observe objects as well.
+ * 
+ * @author doe300
+ * @param <T> the (boxed) type of the attribute
+ * @param <V> the type of the value observed by the primitive property, e.g. {@link Number} for numeric properties
+ */
+final class PrimitivePropertyDelegate<T extends V, V>
+{
+	private final ObservableValue<V> property;
+	private final AttributeProperty<T> attribute;
+	
+	//for bindings
+	private ObservableValue<? extends V> ov;
+	private ChangeListener<V> bindingListener;
+
+	/**
+	 * @param property the primitive property delegating to this object
+	 * @param attribute the property mapping the (nullable) attribute-value
+	 */
+	PrimitivePropertyDelegate(@Nonnull final ObservableValue<V> property, @Nonnull final AttributeProperty<T> attribute)
+	{
+		this.property = property;
+		this.attribute = attribute;
+	}
+
+	@Nonnull
+	AttributeProperty<T> getAttributeProperty()
+	{
+		return attribute;
+	}
+
+	/**
+	 * @param ov the observable to bind to
+	 * @param setter sets the new value of the observable to the primitive property, mapping <code>null</code> values
+	 */
+	void bind(@Nonnull final ObservableValue<? extends V> ov, @Nonnull final Consumer<V> setter)
+	{
+		if(ov == null)
+		{
+			throw new NullPointerException();
+		}
+		unbind();
+		this.ov = ov;
+		this.bindingListener = (ObservableValue<? extends V> o, V oldVal, V newVal) ->
+		{
+			setter.accept( newVal );
+		};
+		ov.addListener( bindingListener );
+	}
+
+	void unbind()
+	{
+		if(ov != null)
+		{
+			ov.removeListener( bindingListener );
+		}
+		ov = null;
+		bindingListener = null;
+	}
+
+	boolean isBound()
+	{
+		return ov != null;
+	}
+
+	void addListener(@Nonnull final ChangeListener<? super V> listener)
+	{
+		attribute.addListener( (ChangeListener<V>)new ForwardingListener<>(property, listener));
+	}
+
+	void removeListener(@Nonnull final ChangeListener<? super V> listener)
+	{
+		attribute.removeListener( (ChangeListener<V>)new ForwardingListener<>(property, listener));
+	}
+
+	void addListener(@Nonnull final InvalidationListener listener)
+	{
+		attribute.addListener( (InvalidationListener)new ForwardingListener<>(property, listener));
+	}
+
+	void removeListener(@Nonnull final InvalidationListener listener)
+	{
+		attribute.removeListener( (InvalidationListener)new ForwardingListener<>(property, listener));
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.javafx;
+
+import de.doe300.activerecord.record.ActiveRecord;
+import de.doe300.activerecord.record.bean.AbstractJavaBeanRecord;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The values of several attributes of a record, read from the record-store at once.
+ * 
+ * The snapshot is not updated, it is used to initialize the values of {@link AttributeProperty caching properties},
+ * which then keep their values up-to-date via the {@link AttributeChangeFeed}.
+ *
+ * @author doe300
+ * @see AttributeProperty#AttributeProperty(de.doe300.activerecord.record.javafx.RecordSnapshot, java.lang.String, java.lang.Class) 
+ */
+public final class RecordSnapshot
+{
+	private final ActiveRecord record;
+	private final Map<String, Object> values;
+
+	private RecordSnapshot( @Nonnull final ActiveRecord record, @Nonnull final Map<String, Object> values )
+	{
+		this.record = record;
+		this.values = values;
+	}
+
+	/**
+	 * Reads the values of all given attributes with a single access to the record-store.
+	 * Pending changes of {@link AbstractJavaBeanRecord AbstractJavaBeanRecords} in write-behind mode are included.
+	 * 
+	 * @param record the record to read the values from
+	 * @param attributeNames the names of the attributes to read
+	 * @return the snapshot of the values
+	 */
+	@Nonnull
+	public static RecordSnapshot load(@Nonnull final ActiveRecord record, @Nonnull final String... attributeNames)
+	{
+		final Map<String, Object> values = attributeNames.length == 0 ? Collections.emptyMap() :
+				record.getBase().getStore().getValues( record.getBase(), record.getPrimaryKey(), attributeNames);
+		if(record instanceof AbstractJavaBeanRecord && (( AbstractJavaBeanRecord ) record).isDirty())
+		{
+			//pending changes are not yet in the record-store
+			final AbstractJavaBeanRecord beanRecord = ( AbstractJavaBeanRecord ) record;
+			final Set<String> dirtyAttributes = beanRecord.getDirtyAttributes();
+			final Map<String, Object> merged = new HashMap<>(values);
+			for(final String name : attributeNames)
+			{
+				if(dirtyAttributes.contains( name ))
+				{
+					merged.put( name, beanRecord.readAttribute( name, Object.class ));
+				}
+			}
+			return new RecordSnapshot(record, merged);
+		}
+		return new RecordSnapshot(record, values);
+	}
+
+	/**
+	 * @return the record the values were read from
+	 */
+	@Nonnull
+	public ActiveRecord getRecord()
+	{
+		return record;
+	}
+
+	/**
+	 * @param attributeName the name of the attribute
+	 * @return whether the value of the attribute was read
+	 */
+	public boolean contains(@Nonnull final String attributeName)
+	{
+		return values.containsKey( attributeName );
+	}
+
+	/**
+	 * @param attributeName the name of the attribute
+	 * @return the value read for the attribute, <code>null</code> if the attribute was not read
+	 */
+	@Nullable
+	public Object getValue(@Nonnull final String attributeName)
+	{
+		return values.get( attributeName );
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.javafx;
+
+import de.doe300.activerecord.record.ActiveRecord;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.TableColumn;
+import javafx.util.Callback;
+import javax.annotation.Nonnull;
+
+/**
+ * Creates cell-value factories for the columns of a table of records, which read all columns of a row with a single
+ * access to the record-store.
+ * 
+ * The adapter keeps one {@link AttributeProperty caching property} per row and column, which is returned for every
+ * request of the cell, so the table does not create a new property (and subscription to the
+ * {@link AttributeChangeFeed}) each time a cell is updated. The first cell requested for a row loads a
+ * {@link RecordSnapshot} with all columns created by this adapter, the other cells of the row are initialized from
+ * this snapshot.
+ * 
+ * Every value of a snapshot is used only once. The next request of a cell, e.g. after scrolling back, loads a new
+ * snapshot and refreshes all properties of the row with it, so no outdated values are shown, even if the attributes
+ * were changed directly in the record.
+ * 
+ * The properties of rows dropped from the adapter, either since more than the maximum number of rows were requested
+ * or by {@link #clear()}, are released: they stop caching and unsubscribe from the change-feed as soon as they have no
+ * more listeners.
+ * 
+ * All cell-value factories of an adapter must belong to the same table and, as the table itself, are not thread-safe.
+ *
+ * @author doe300
+ * @param <S> the type of the records in the table
+ */
+public class RecordTableAdapter<S extends ActiveRecord>
+{
+	/**
+	 * The number of rows with properties kept by default
+	 */
+	public static final int DEFAULT_MAX_ROWS = 256;
+	
+	private final Set<String> columns = new HashSet<>(16);
+	private String[] columnNames = new String[0];
+	private final Map<S, Row> rows;
+
+	public RecordTableAdapter()
+	{
+		this(DEFAULT_MAX_ROWS);
+	}
+
+	/**
+	 * @param maxRows the maximum number of rows to keep the properties for
+	 */
+	public RecordTableAdapter(final int maxRows)
+	{
+		this.rows = new LinkedHashMap<S, Row>(Math.min( maxRows, DEFAULT_MAX_ROWS) + 1, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<S, Row> eldest )
+			{
+				if(size() > maxRows)
+				{
+					eldest.getValue().release();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Creates a cell-value factory for the given attribute. All attributes of the created factories are loaded together.
+	 * 
+	 * @param <T> the type of the attribute
+	 * @param attributeName the name of the attribute to show
+	 * @param attributeType the type of the attribute
+	 * @return the cell-value factory
+	 */
+	@Nonnull
+	public <T> Callback<TableColumn.CellDataFeatures<S, T>, ObservableValue<T>> createCellValueFactory(
+			@Nonnull final String attributeName, @Nonnull final Class<T> attributeType)
+	{
+		if(columns.add( attributeName ))
+		{
+			columnNames = columns.toArray( new String[columns.size()]);
+			//existing snapshots don't contain the new column
+			clear();
+		}
+		return (final TableColumn.CellDataFeatures<S, T> features) -> 
+				getProperty( features.getValue(), attributeName, attributeType );
+	}
+
+	/**
+	 * Releases the properties of all rows, e.g. after the items of the table were replaced
+	 */
+	public void clear()
+	{
+		for(final Row row : rows.values())
+		{
+			row.release();
+		}
+		rows.clear();
+	}
+
+	/**
+	 * @return the number of rows properties are kept for
+	 */
+	int getRowCount()
+	{
+		return rows.size();
+	}
+
+	@Nonnull
+	private <T> AttributeProperty<T> getProperty(@Nonnull final S record, @Nonnull final String attributeName,
+			@Nonnull final Class<T> attributeType)
+	{
+		Row row = rows.get( record );
+		if(row == null || row.snapshot.getRecord() != record)
+		{
+			if(row != null)
+			{
+				row.release();
+			}
+			row = new Row(RecordSnapshot.load( record, columnNames ), columnNames);
+			rows.put( record, row );
+		}
+		else if(!row.unusedColumns.remove( attributeName ))
+		{
+			//the value was already used, so it might be outdated
+			row.refresh( RecordSnapshot.load( record, columnNames ), columnNames );
+		}
+		row.unusedColumns.remove( attributeName );
+		@SuppressWarnings("unchecked")
+		AttributeProperty<T> property = (AttributeProperty<T>) row.properties.get( attributeName );
+		if(property == null)
+		{
+			property = new AttributeProperty<>(row.snapshot, attributeName, attributeType);
+			row.properties.put( attributeName, property );
+		}
+		return property;
+	}
+
+	private static final class Row
+	{
+		private final Map<String, AttributeProperty<?>> properties;
+		private final Set<String> unusedColumns;
+		private RecordSnapshot snapshot;
+
+		Row( @Nonnull final RecordSnapshot snapshot, @Nonnull final String[] columns )
+		{
+			this.properties = new HashMap<>(columns.length * 2);
+			this.unusedColumns = new HashSet<>(columns.length * 2);
+			this.snapshot = snapshot;
+			Collections.addAll( unusedColumns, columns );
+		}
+
+		void refresh(@Nonnull final RecordSnapshot snapshot, @Nonnull final String[] columns)
+		{
+			this.snapshot = snapshot;
+			Collections.addAll( unusedColumns, columns );
+			for(final AttributeProperty<?> property : properties.values())
+			{
+				property.invalidate();
+				property.prefetch( snapshot );
+			}
+		}
+
+		void release()
+		{
+			for(final AttributeProperty<?> property : properties.values())
+			{
+				//drops the cached value and the subscription, once the cell removed its listener
+				property.setCaching( false );
+			}
+			properties.clear();
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Measures the memory-footprint of records with the JOL (Java Object Layout) tool
+ *
+ * @author doe300
+ */
+public class AbstractJavaBeanRecordTest extends Assert
+{
+	
+	public AbstractJavaBeanRecordTest()
+	{
+	}
+
+	@Test
+	public void testFootprintWithoutListeners()
+	{
+		//records are created without a record-base, so the graphs only contain the records themselves
+		final TestJavaBeanPOJO r1 = new TestJavaBeanPOJO(1, null);
+		final TestJavaBeanPOJO r2 = new TestJavaBeanPOJO(2, null);
+		final long recordSize = ClassLayout.parseClass( TestJavaBeanPOJO.class).instanceSize();
+		
+		//any further record only costs its own fields, no listener-storage is allocated.
+		//Both graphs contain an array of the same size as root
+		final long perRecord = GraphLayout.parseInstance( new Object[]{r1, r2}).totalSize() - 
+				GraphLayout.parseInstance( new Object[]{r1, null}).totalSize();
+		assertEquals( recordSize, perRecord);
+		
+		//previously, every record allocated a PropertyChangeSupport
+		final long perRecordBefore = GraphLayout.parseInstance( new Object[]{r1, new PropertyChangeSupport(r1), r2, 
+				new PropertyChangeSupport(r2)}).totalSize() - 
+				GraphLayout.parseInstance( new Object[]{r1, new PropertyChangeSupport(r1), null, null}).totalSize();
+		assertTrue( "Bytes per record before: " + perRecordBefore + ", after: " + perRecord, perRecord < perRecordBefore);
+	}
+
+	@Test
+	public void testFootprintWithListener()
+	{
+		final PropertyChangeListener listener = new TestPropertyChangeListener();
+		final TestJavaBeanPOJO r1 = new TestJavaBeanPOJO(1, null);
+		final TestJavaBeanPOJO r2 = new TestJavaBeanPOJO(2, null);
+		r1.addPropertyChangeListener( listener );
+		final PropertyChangeSupport support = new PropertyChangeSupport(r2);
+		support.addPropertyChangeListener( listener );
+		
+		final long size = GraphLayout.parseInstance( new Object[]{r1, null}).totalSize();
+		final long sizeBefore = GraphLayout.parseInstance( new Object[]{r2, support}).totalSize();
+		assertTrue( "Bytes per record before: " + sizeBefore + ", after: " + size, size < sizeBefore);
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import de.doe300.activerecord.record.ActiveRecord;
+import java.beans.PropertyChangeEvent;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author doe300
+ */
+public class AsyncPropertyChangeListenerTest extends Assert
+{
+	private final Queue<Runnable> tasks = new ArrayDeque<>(10);
+	
+	public AsyncPropertyChangeListenerTest()
+	{
+	}
+
+	@Test
+	public void testOrderedDelivery() throws Exception
+	{
+		final List<PropertyChangeEvent> delivered = Collections.synchronizedList( new ArrayList<>(1000));
+		final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+		final AsyncPropertyChangeListener listener = new AsyncPropertyChangeListener(delivered::add, executor, 16,
+				AsyncPropertyChangeListener.OverflowPolicy.BLOCK);
+		final ActiveRecord r1 = TestRecords.createRecord();
+		final ActiveRecord r2 = TestRecords.createRecord();
+		for(int i = 0; i < 500; ++i)
+		{
+			listener.propertyChange( new PropertyChangeEvent(r1, "age", i, i + 1));
+			listener.propertyChange( new PropertyChangeEvent(r2, "age", i, i + 1));
+		}
+		executor.shutdown();
+		assertTrue( executor.awaitTermination( 10, TimeUnit.SECONDS));
+		assertEquals( 1000, delivered.size());
+		int lastR1 = -1, lastR2 = -1;
+		for(final PropertyChangeEvent event : delivered)
+		{
+			final int value = ( Integer ) event.getOldValue();
+			if(event.getSource() == r1)
+			{
+				assertEquals( lastR1 + 1, value);
+				lastR1 = value;
+			}
+			else
+			{
+				assertEquals( lastR2 + 1, value);
+				lastR2 = value;
+			}
+		}
+	}
+	
+	@Test
+	public void testDropOldest()
+	{
+		final List<PropertyChangeEvent> delivered = new ArrayList<>(10);
+		final AsyncPropertyChangeListener listener = new AsyncPropertyChangeListener(delivered::add, tasks::add, 2,
+				AsyncPropertyChangeListener.OverflowPolicy.DROP_OLDEST);
+		final ActiveRecord r = TestRecords.createRecord();
+		listener.propertyChange( new PropertyChangeEvent(r, "age", 1, 2));
+		listener.propertyChange( new PropertyChangeEvent(r, "name", "a", "b"));
+		listener.propertyChange( new PropertyChangeEvent(r, "age", 2, 3));
+		//the queue is only scheduled once
+		assertEquals( 1, tasks.size());
+		runTasks();
+		assertEquals( 2, delivered.size());
+		assertEquals( "name", delivered.get( 0).getPropertyName());
+		assertEquals( 3, delivered.get( 1).getNewValue());
+	}
+	
+	@Test
+	public void testCoalesce()
+	{
+		final List<PropertyChangeEvent> delivered = new ArrayList<>(10);
+		final AsyncPropertyChangeListener listener = new AsyncPropertyChangeListener(delivered::add, tasks::add, 2,
+				AsyncPropertyChangeListener.OverflowPolicy.COALESCE);
+		final ActiveRecord r = TestRecords.createRecord();
+		listener.propertyChange( new PropertyChangeEvent(r, "age", 1, 2));
+		listener.propertyChange( new PropertyChangeEvent(r, "name", "a", "b"));
+		listener.propertyChange( new PropertyChangeEvent(r, "age", 2, 3));
+		runTasks();
+		assertEquals( 2, delivered.size());
+		//the merged event keeps its position
+		assertEquals( "age", delivered.get( 0).getPropertyName());
+		assertEquals( 1, delivered.get( 0).getOldValue());
+		assertEquals( 3, delivered.get( 0).getNewValue());
+		assertEquals( "name", delivered.get( 1).getPropertyName());
+	}
+	
+	@Test
+	public void testRejectedExecution()
+	{
+		final List<PropertyChangeEvent> delivered = new ArrayList<>(10);
+		final boolean[] reject = {false};
+		final AsyncPropertyChangeListener listener = new AsyncPropertyChangeListener(delivered::add, (Runnable task) ->
+		{
+			if(reject[0])
+			{
+				throw new RejectedExecutionException("rejected");
+			}
+			tasks.add( task );
+		}, 2, AsyncPropertyChangeListener.OverflowPolicy.BLOCK);
+		final ActiveRecord r = TestRecords.createRecord();
+		listener.propertyChange( new PropertyChangeEvent(r, "age", 1, 2));
+		listener.propertyChange( new PropertyChangeEvent(r, "age", 2, 3));
+		reject[0] = true;
+		//the queue is already scheduled, the event is delivered by the task
+		runTasks();
+		assertEquals( 2, delivered.size());
+		
+		//the rejected events are delivered on the calling thread and the queue does not stall
+		listener.propertyChange( new PropertyChangeEvent(r, "age", 3, 4));
+		assertEquals( 3, delivered.size());
+		listener.propertyChange( new PropertyChangeEvent(r, "age", 4, 5));
+		listener.propertyChange( new PropertyChangeEvent(r, "age", 5, 6));
+		assertEquals( 5, delivered.size());
+		
+		reject[0] = false;
+		listener.propertyChange( new PropertyChangeEvent(r, "age", 6, 7));
+		assertEquals( 1, tasks.size());
+		runTasks();
+		assertEquals( 6, delivered.size());
+		for(int i = 0; i < delivered.size(); ++i)
+		{
+			assertEquals( i + 1, delivered.get( i).getOldValue());
+		}
+	}
+	
+	private void runTasks()
+	{
+		Runnable task;
+		while((task = tasks.poll()) != null)
+		{
+			task.run();
+		}
+	}
+}
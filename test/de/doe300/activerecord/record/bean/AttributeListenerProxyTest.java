@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author doe300
+ */
+public class AttributeListenerProxyTest extends Assert
+{
+	public AttributeListenerProxyTest()
+	{
+	}
+
+	@Test
+	public void testFilter()
+	{
+		final TestPropertyChangeListener l = new TestPropertyChangeListener();
+		final AttributeListenerProxy proxy = new AttributeListenerProxy("age", l);
+		proxy.propertyChange( new PropertyChangeEvent(this, "name", "Adam", "Eve"));
+		assertEquals( 0, l.getCount());
+		proxy.propertyChange( new PropertyChangeEvent(this, "age", 1, 2));
+		assertEquals( 1, l.getCount());
+	}
+
+	@Test
+	public void testRemoveFromPlainList()
+	{
+		//a list not knowing about listener-proxies
+		final List<PropertyChangeListener> listeners = new ArrayList<>(4);
+		final TestPropertyChangeListener l = new TestPropertyChangeListener();
+		listeners.add( new AttributeListenerProxy("age", l));
+		assertFalse( listeners.remove( new AttributeListenerProxy("name", l)));
+		assertTrue( listeners.remove( new AttributeListenerProxy("age", l)));
+		assertTrue( listeners.isEmpty());
+	}
+
+	@Test
+	public void testListenerList()
+	{
+		//the list registers the listener for the attribute itself
+		final PropertyChangeListenerList list = new PropertyChangeListenerList();
+		final TestPropertyChangeListener l = new TestPropertyChangeListener();
+		assertTrue( list.add( new AttributeListenerProxy("age", l)));
+		assertTrue( list.contains( "age", l));
+		assertFalse( list.hasListeners( "name"));
+		assertTrue( list.remove( new AttributeListenerProxy("age", l)));
+		assertFalse( list.hasListeners( "age"));
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import de.doe300.activerecord.RecordBase;
+import de.doe300.activerecord.RecordCore;
+import de.doe300.activerecord.TestSuite;
+import de.doe300.activerecord.record.ActiveRecord;
+import java.beans.PropertyChangeEvent;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author doe300
+ */
+public class ChangeHistoryTest extends Assert
+{
+	private static RecordCore core;
+	private static RecordBase<TestJavaBeanPOJO> base;
+	
+	public ChangeHistoryTest()
+	{
+	}
+	
+	@BeforeClass
+	public static void setUpClass() throws Exception
+	{
+		core = RecordCore.fromDatabase( TestSuite.con, true);
+		core.createTable( TestJavaBeanRecord.class);
+		base = core.getBase( TestJavaBeanPOJO.class);
+	}
+	
+	@AfterClass
+	public static void tearDownClass() throws Exception
+	{
+		core.dropTable( TestJavaBeanRecord.class);
+	}
+
+	@Test
+	public void testMerge()
+	{
+		final ChangeHistory history = new ChangeHistory(10, 60_000);
+		final ActiveRecord record = TestRecords.createRecord();
+		history.record( record, "name", null, "A");
+		history.record( record, "name", "A", "Ad");
+		history.record( record, "name", "Ad", "Adam");
+		assertEquals( 1, history.getUndoCount());
+		history.record( record, "age", null, 23);
+		assertEquals( 2, history.getUndoCount());
+		history.markBoundary();
+		history.record( record, "age", 23, 24);
+		assertEquals( 3, history.getUndoCount());
+		//changing back to the original value removes the merged change
+		history.record( record, "age", 24, 23);
+		assertEquals( 2, history.getUndoCount());
+		//unchanged values are not recorded
+		history.record( record, "age", 23, 23);
+		assertEquals( 2, history.getUndoCount());
+		history.clear();
+		assertFalse( history.canUndo());
+		assertFalse( history.canRedo());
+	}
+
+	@Test
+	public void testCapacity()
+	{
+		final ChangeHistory history = new ChangeHistory(100, 0);
+		final ActiveRecord record = TestRecords.createRecord();
+		for(int i = 0; i < 1000; ++i)
+		{
+			history.record( record, "age", i, i + 1);
+		}
+		assertEquals( 100, history.getUndoCount());
+		assertEquals( 100, history.getCapacity());
+	}
+
+	@Test
+	public void testUndoRedo()
+	{
+		final ChangeHistory history = new ChangeHistory();
+		final TestPropertyChangeListener listener = new TestPropertyChangeListener();
+		final TestJavaBeanPOJO r = base.createRecord();
+		r.addPropertyChangeListener( history );
+		r.setName( "Adam");
+		r.setAge( 23);
+		history.markBoundary();
+		r.setName( "Eve");
+		assertEquals( 3, history.getUndoCount());
+		r.addPropertyChangeListener( listener );
+		
+		assertTrue( history.undo());
+		assertEquals( "Adam", r.getName());
+		assertEquals( 1, listener.getCount());
+		assertTrue( history.undo());
+		assertNull( base.getStore().getValue( base, r.getPrimaryKey(), "age"));
+		assertEquals( 1, history.getUndoCount());
+		assertEquals( 2, history.getRedoCount());
+		
+		assertTrue( history.redo());
+		assertEquals( 23, r.getAge());
+		assertTrue( history.redo());
+		assertEquals( "Eve", r.getName());
+		assertEquals( 4, listener.getCount());
+		assertFalse( history.redo());
+		//changes made while undoing are not recorded
+		assertEquals( 3, history.getUndoCount());
+		
+		assertTrue( history.undo());
+		r.setAge( 42);
+		//a new change discards the redo-history
+		assertFalse( history.canRedo());
+		assertEquals( 3, history.getUndoCount());
+	}
+
+
+	@Test
+	public void testApplyViaSetter()
+	{
+		final ChangeHistory history = new ChangeHistory();
+		final List<Object> written = new ArrayList<>(2);
+		final ActiveRecord record = TestRecords.createRecord( (Object proxy, Method method, Object[] args) -> 
+		{
+			if("setName".equals( method.getName()))
+			{
+				//the history is not locked while writing and firing
+				assertFalse( Thread.holdsLock( history ));
+				written.add( args[0] );
+				//fired by the proxy-handler of the record while writing, within a batch only delivered on close
+				if(!PropertyChangeBatch.collect( proxy, "name", "Eve", args[0], history))
+				{
+					history.propertyChange( new PropertyChangeEvent(proxy, "name", "Eve", args[0]));
+				}
+				return null;
+			}
+			throw new UnsupportedOperationException(method.getName());
+		});
+		history.record( record, "name", "Adam", "Eve");
+		
+		assertTrue( history.undo());
+		assertEquals( Collections.singletonList( "Adam"), written);
+		assertEquals( 1, history.getRedoCount());
+		
+		try(final PropertyChangeBatch batch = PropertyChangeBatch.begin())
+		{
+			assertTrue( history.redo());
+		}
+		assertEquals( Arrays.asList( "Adam", "Eve"), written);
+		//the change delivered when closing the batch is not recorded either
+		assertEquals( 1, history.getUndoCount());
+		assertEquals( 0, history.getRedoCount());
+		
+		//suppression ends with the batch
+		history.propertyChange( new PropertyChangeEvent(record, "age", 1, 2));
+		assertEquals( 2, history.getUndoCount());
+	}
+
+	@Test
+	public void testUndoProxy()
+	{
+		final ChangeHistory history = new ChangeHistory();
+		final TestPropertyChangeListener listener = new TestPropertyChangeListener();
+		final TestJavaBeanRecord r = core.getBase( TestJavaBeanRecord.class, new PropertyChangeProxyHandler(null)).
+				createRecord();
+		r.addPropertyChangeListener( history );
+		r.setName( "Adam");
+		r.addPropertyChangeListener( listener );
+		
+		assertTrue( history.undo());
+		assertNull( r.getName());
+		//fired once by the proxy-handler
+		assertEquals( 1, listener.getCount());
+		assertEquals( 0, history.getUndoCount());
+	}
+}
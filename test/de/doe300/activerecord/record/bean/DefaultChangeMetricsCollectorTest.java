@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import java.beans.PropertyChangeListener;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author doe300
+ */
+public class DefaultChangeMetricsCollectorTest extends Assert
+{
+	private DefaultChangeMetricsCollector metrics;
+	
+	public DefaultChangeMetricsCollectorTest()
+	{
+	}
+	
+	@Before
+	public void setUp()
+	{
+		metrics = new DefaultChangeMetricsCollector();
+		ChangeMetrics.setCollector( metrics );
+	}
+	
+	@After
+	public void tearDown()
+	{
+		ChangeMetrics.setCollector( null );
+	}
+
+	@Test
+	public void testFiredEvents()
+	{
+		final TestPropertyChangeListener listener = new TestPropertyChangeListener();
+		final PropertyChangeListenerList list = new PropertyChangeListenerList();
+		list.add( listener );
+		list.add( "name", listener );
+		list.fire( this, "name", "Adam", "Eve");
+		list.fire( this, "age", 1, 2);
+		//equal values are not fired
+		list.fire( this, "age", 2, 2);
+		assertEquals( 2, metrics.getFiredEvents());
+		assertEquals( 3, listener.getCount());
+		assertArrayEquals( new String[]{TestPropertyChangeListener.class.getName()}, metrics.getListenerNames());
+		assertEquals( 3, metrics.getListenerNotifications( TestPropertyChangeListener.class.getName()));
+		
+		metrics.reset();
+		assertEquals( 0, metrics.getFiredEvents());
+		assertEquals( 0, metrics.getListenerNames().length);
+	}
+
+	@Test
+	public void testLatencyHistogram()
+	{
+		final PropertyChangeListener listener = new TestPropertyChangeListener();
+		for(int i = 0; i < 90; i++)
+		{
+			metrics.listenerNotified( listener, 100);
+		}
+		for(int i = 0; i < 10; i++)
+		{
+			metrics.listenerNotified( listener, 5000);
+		}
+		final String name = TestPropertyChangeListener.class.getName();
+		assertEquals( 100, metrics.getListenerNotifications( name ));
+		assertEquals( 590.0, metrics.getListenerMeanNanos( name ), 0.001);
+		assertEquals( 128, metrics.getListenerPercentileNanos( name, 50));
+		assertEquals( 128, metrics.getListenerPercentileNanos( name, 90));
+		assertEquals( 8192, metrics.getListenerPercentileNanos( name, 99));
+		assertEquals( 0, metrics.getListenerPercentileNanos( "unknown", 99));
+	}
+}
@@ -26,9 +26,14 @@ package de.doe300.activerecord.record.bean;
 import de.doe300.activerecord.RecordBase;
 import de.doe300.activerecord.RecordCore;
 import de.doe300.activerecord.TestSuite;
+import de.doe300.activerecord.record.RecordType;
+import java.beans.PropertyChangeEvent;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -66,7 +71,8 @@ public class JavaBeanRecordTest extends Assert
 	{
 		return Arrays.asList(
 			new Object[]{TestJavaBeanRecord.class},
-			new Object[]{TestJavaBeanPOJO.class}
+			new Object[]{TestJavaBeanPOJO.class},
+			new Object[]{TestJavaBeanRecordBean.class}
 		);
 	}
 	
@@ -76,6 +82,15 @@ public class JavaBeanRecordTest extends Assert
 		core.dropTable( TestJavaBeanRecord.class);
 	}
 
+	@Test
+	public void testTableName()
+	{
+		//the generated record-type must be mapped to the same table as its interface
+		assertEquals( TestJavaBeanRecord.class.getAnnotation( RecordType.class), 
+				base.getRecordType().getAnnotation( RecordType.class));
+		assertEquals( core.getBase( TestJavaBeanRecord.class).getTableName(), base.getTableName());
+	}
+
 	@Test
 	public void testAddRemoveListeners()
 	{
@@ -99,5 +114,240 @@ public class JavaBeanRecordTest extends Assert
 		r.setAge( 112);
 		assertEquals(count + 2, listener.getCount());
 	}
+
+	@Test
+	public void testBatch()
+	{
+		int count = listener.getCount();
+		TestJavaBeanRecord r = base.createRecord();
+		r.addPropertyChangeListener( listener );
+		try(PropertyChangeBatch batch = PropertyChangeBatch.begin())
+		{
+			r.setAge( 1);
+			r.setAge( 2);
+			r.setName( "Adam");
+			try(PropertyChangeBatch inner = PropertyChangeBatch.begin())
+			{
+				r.setName( "Eve");
+			}
+			assertTrue( PropertyChangeBatch.isBatchActive());
+			assertEquals( count, listener.getCount());
+		}
+		assertFalse( PropertyChangeBatch.isBatchActive());
+		//one event per changed attribute
+		assertEquals( count + 2, listener.getCount());
+	}
+
+	@Test
+	public void testAttributeListeners()
+	{
+		final TestPropertyChangeListener nameListener = new TestPropertyChangeListener();
+		final TestPropertyChangeListener ageListener = new TestPropertyChangeListener();
+		TestJavaBeanRecord r = base.createRecord();
+		r.addPropertyChangeListener( "name", nameListener );
+		r.addPropertyChangeListener( (String name) -> name.startsWith( "a"), ageListener );
+		r.setName( "Adam");
+		r.setAge( 23);
+		assertEquals( 1, nameListener.getCount());
+		assertEquals( 1, ageListener.getCount());
+		
+		r.removePropertyChangeListener( "name", nameListener );
+		r.removePropertyChangeListener( ageListener );
+		r.setName( "Eve");
+		r.setAge( 24);
+		assertEquals( 1, nameListener.getCount());
+		assertEquals( 1, ageListener.getCount());
+	}
+
+	@Test
+	public void testWriteBehind()
+	{
+		final TestJavaBeanRecord r = base.createRecord();
+		if(!(r instanceof AbstractJavaBeanRecord))
+		{
+			//proxied records are written by the store directly
+			return;
+		}
+		final AbstractJavaBeanRecord record = ( AbstractJavaBeanRecord ) r;
+		final List<PropertyChangeEvent> events = new ArrayList<>(2);
+		r.setName( "Adam");
+		r.addPropertyChangeListener( events::add );
+		record.setWriteBehind( true );
+		r.setName( "Eve");
+		assertTrue( record.isDirty());
+		assertEquals( Collections.singleton( "name"), record.getDirtyAttributes());
+		//pending value is served locally, but not yet written
+		assertEquals( "Eve", r.getName());
+		assertEquals( "Adam", base.getStore().getValue( base, r.getPrimaryKey(), "name"));
+		r.setName( "Bob");
+		assertEquals( 2, events.size());
+		assertEquals( "Adam", events.get( 0).getOldValue());
+		assertEquals( "Eve", events.get( 0).getNewValue());
+		assertEquals( "Eve", events.get( 1).getOldValue());
+		assertEquals( "Bob", events.get( 1).getNewValue());
+		
+		record.flushChanges();
+		assertFalse( record.isDirty());
+		assertEquals( "Bob", base.getStore().getValue( base, r.getPrimaryKey(), "name"));
+		
+		r.setAge( 42);
+		record.setWriteBehind( false );
+		assertFalse( record.isDirty());
+		assertEquals( 42, base.getStore().getValue( base, r.getPrimaryKey(), "age"));
+	}
+
+	@Test
+	public void testFailedFlush()
+	{
+		final TestJavaBeanRecord r = base.createRecord();
+		if(!(r instanceof AbstractJavaBeanRecord))
+		{
+			//proxied records are written by the store directly
+			return;
+		}
+		final AbstractJavaBeanRecord record = ( AbstractJavaBeanRecord ) r;
+		r.setName( "Adam");
+		record.setWriteBehind( true );
+		r.setName( "Eve");
+		record.writeAttribute( "noSuchColumn", 42);
+		try
+		{
+			record.flushChanges();
+			fail( "Flushing unknown column succeeded");
+		}
+		catch(final RuntimeException e)
+		{
+			//expected
+		}
+		//the changes are still pending
+		assertTrue( record.isDirty());
+		assertEquals( new HashSet<>(Arrays.asList( "name", "noSuchColumn")), record.getDirtyAttributes());
+		assertEquals( "Eve", r.getName());
+		assertEquals( "Adam", base.getStore().getValue( base, r.getPrimaryKey(), "name"));
+	}
+
+	@Test
+	public void testWriteAfterFailedFlush()
+	{
+		final TestJavaBeanRecord r = base.createRecord();
+		if(!(r instanceof AbstractJavaBeanRecord))
+		{
+			//proxied records are written by the store directly
+			return;
+		}
+		final AbstractJavaBeanRecord record = ( AbstractJavaBeanRecord ) r;
+		r.setAge( 10);
+		try(WriteBehindScope scope = WriteBehindScope.begin())
+		{
+			r.setName( "Eve");
+			record.writeAttribute( "noSuchColumn", 42);
+		}
+		catch(final RuntimeException e)
+		{
+			//expected
+		}
+		assertTrue( record.isDirty());
+		//outside of the scope, writes are not deferred anymore, but retry the pending changes
+		try
+		{
+			r.setAge( 11);
+			fail( "Writing with failed pending changes succeeded");
+		}
+		catch(final RuntimeException e)
+		{
+			//expected
+		}
+		assertEquals( new HashSet<>(Arrays.asList( "name", "noSuchColumn", "age")), record.getDirtyAttributes());
+		assertEquals( 11, r.getAge());
+		assertEquals( 10, base.getStore().getValue( base, r.getPrimaryKey(), "age"));
+		
+		record.discardChanges();
+		assertFalse( record.isDirty());
+		r.setAge( 12);
+		assertFalse( record.isDirty());
+		assertEquals( 12, base.getStore().getValue( base, r.getPrimaryKey(), "age"));
+	}
+
+	@Test
+	public void testWriteBehindScope()
+	{
+		final TestJavaBeanRecord r1 = base.createRecord();
+		final TestJavaBeanRecord r2 = base.createRecord();
+		if(!(r1 instanceof AbstractJavaBeanRecord))
+		{
+			//proxied records are written by the store directly
+			return;
+		}
+		r1.setAge( 10);
+		r2.setAge( 20);
+		try(WriteBehindScope scope = WriteBehindScope.begin())
+		{
+			r1.setAge( 11);
+			r2.setAge( 21);
+			try(WriteBehindScope inner = WriteBehindScope.begin())
+			{
+				r1.setName( "Adam");
+			}
+			assertTrue( WriteBehindScope.isScopeActive());
+			assertTrue( (( AbstractJavaBeanRecord ) r1).isDirty());
+			assertEquals( 11, r1.getAge());
+			assertEquals( 10, base.getStore().getValue( base, r1.getPrimaryKey(), "age"));
+			assertEquals( 20, base.getStore().getValue( base, r2.getPrimaryKey(), "age"));
+		}
+		assertFalse( WriteBehindScope.isScopeActive());
+		assertFalse( (( AbstractJavaBeanRecord ) r1).isDirty());
+		assertFalse( (( AbstractJavaBeanRecord ) r2).isDirty());
+		assertEquals( 11, base.getStore().getValue( base, r1.getPrimaryKey(), "age"));
+		assertEquals( "Adam", base.getStore().getValue( base, r1.getPrimaryKey(), "name"));
+		assertEquals( 21, base.getStore().getValue( base, r2.getPrimaryKey(), "age"));
+	}
+
+	@Test
+	public void testAttributeChangeListener()
+	{
+		final TestJavaBeanRecord r = base.createRecord();
+		if(!(r instanceof AbstractJavaBeanRecord))
+		{
+			//proxied records only support PropertyChangeListeners
+			return;
+		}
+		final AbstractJavaBeanRecord record = ( AbstractJavaBeanRecord ) r;
+		final List<Object> changes = new ArrayList<>(4);
+		final int[] primitiveChanges = new int[1];
+		final AttributeChangeListener l = new AttributeChangeListener()
+		{
+			@Override
+			public void onChange( JavaBeanRecord source, String attributeName, Object oldValue, Object newValue )
+			{
+				changes.add( attributeName );
+				changes.add( newValue );
+			}
+
+			@Override
+			public void onIntChange( JavaBeanRecord source, String attributeName, int oldValue, int newValue )
+			{
+				++primitiveChanges[0];
+				changes.add( attributeName );
+				changes.add( newValue );
+			}
+		};
+		r.setAge( 1);
+		record.addAttributeChangeListener( l );
+		//the listener is only added once
+		record.addAttributeChangeListener( l );
+		r.setAge( 2);
+		r.setAge( 2);
+		r.setName( "Adam");
+		assertEquals( Arrays.asList( "age", 2, "name", "Adam"), changes);
+		if(r instanceof TestJavaBeanRecordBean)
+		{
+			//generated setters for primitive attributes don't box the values
+			assertEquals( 1, primitiveChanges[0]);
+		}
+		
+		record.removeAttributeChangeListener( l );
+		r.setAge( 3);
+		assertEquals( 4, changes.size());
+	}
 	
 }
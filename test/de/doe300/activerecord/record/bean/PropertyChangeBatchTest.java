@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import java.beans.PropertyChangeEvent;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author doe300
+ */
+public class PropertyChangeBatchTest extends Assert
+{
+	
+	public PropertyChangeBatchTest()
+	{
+	}
+
+	@Test
+	public void testCoalesce()
+	{
+		final Object source = new Object();
+		final List<PropertyChangeEvent> events = new ArrayList<>(2);
+		assertFalse( PropertyChangeBatch.collect( source, "name", "a", "b", events::add));
+		try(PropertyChangeBatch batch = PropertyChangeBatch.begin())
+		{
+			assertTrue( PropertyChangeBatch.collect( source, "name", "a", "b", events::add));
+			assertTrue( PropertyChangeBatch.collect( source, "name", "b", "c", events::add));
+			//changed back to the original value
+			assertTrue( PropertyChangeBatch.collect( source, "age", 1, 2, events::add));
+			assertTrue( PropertyChangeBatch.collect( source, "age", 2, 1, events::add));
+			assertTrue( events.isEmpty());
+		}
+		assertEquals( 1, events.size());
+		assertEquals( "a", events.get( 0).getOldValue());
+		assertEquals( "c", events.get( 0).getNewValue());
+	}
+
+	@Test
+	public void testLastTargetNotified()
+	{
+		final Object source = new Object();
+		final List<PropertyChangeEvent> first = new ArrayList<>(1);
+		final List<PropertyChangeEvent> last = new ArrayList<>(1);
+		try(PropertyChangeBatch batch = PropertyChangeBatch.begin())
+		{
+			PropertyChangeBatch.collect( source, "name", "a", "b", first::add);
+			PropertyChangeBatch.collect( source, "name", "b", "c", last::add);
+		}
+		assertTrue( first.isEmpty());
+		assertEquals( 1, last.size());
+	}
+
+	@Test
+	public void testFailingListener()
+	{
+		final Thread thread = Thread.currentThread();
+		final Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+		final List<Throwable> errors = new ArrayList<>(1);
+		final List<PropertyChangeEvent> events = new ArrayList<>(1);
+		thread.setUncaughtExceptionHandler( (Thread t, Throwable e) -> errors.add( e ));
+		try
+		{
+			final PropertyChangeBatch batch = PropertyChangeBatch.begin();
+			PropertyChangeBatch.collect( new Object(), "name", "a", "b", (PropertyChangeEvent evt) -> 
+			{
+				throw new IllegalStateException("failing listener");
+			});
+			PropertyChangeBatch.collect( new Object(), "name", "a", "b", events::add);
+			batch.close();
+			
+			//the failure is reported and the remaining changes are still delivered
+			assertEquals( 1, errors.size());
+			assertTrue( errors.get( 0) instanceof IllegalStateException);
+			assertEquals( 1, events.size());
+			assertFalse( PropertyChangeBatch.isBatchActive());
+		}
+		finally
+		{
+			thread.setUncaughtExceptionHandler( handler );
+		}
+	}
+}
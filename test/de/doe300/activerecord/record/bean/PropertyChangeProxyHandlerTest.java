@@ -0,0 +1,310 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import de.doe300.activerecord.RecordBase;
+import de.doe300.activerecord.RecordCore;
+import de.doe300.activerecord.TestSuite;
+import de.doe300.activerecord.record.ActiveRecord;
+import java.beans.PropertyChangeListener;
+import java.lang.reflect.Method;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author doe300
+ */
+public class PropertyChangeProxyHandlerTest extends Assert
+{
+	private static final int NUM_WRITES = 100;
+	private static RecordCore core;
+	private static CountingProxyHandler handler;
+	private static RecordBase<TestJavaBeanRecord> base;
+	
+	public PropertyChangeProxyHandlerTest()
+	{
+	}
+	
+	@BeforeClass
+	public static void setUpClass() throws Exception
+	{
+		core = RecordCore.fromDatabase( TestSuite.con, true);
+		core.createTable( TestJavaBeanRecord.class);
+		handler = new CountingProxyHandler();
+		base = core.getBase( TestJavaBeanRecord.class, handler);
+	}
+	
+	@AfterClass
+	public static void tearDownClass() throws Exception
+	{
+		core.dropTable( TestJavaBeanRecord.class);
+	}
+
+	@Test
+	public void testHandlesMethod() throws Exception
+	{
+		final TestJavaBeanRecord r = base.createRecord();
+		assertTrue( handler.handlesMethod( r, JavaBeanRecord.class.getMethod( "firePropertyChange", String.class,
+				Object.class, Object.class), null));
+		assertTrue( handler.handlesMethod( r, JavaBeanRecord.class.getMethod( "addPropertyChangeListener", 
+				PropertyChangeListener.class), null));
+		assertFalse( handler.handlesMethod( r, TestJavaBeanRecord.class.getMethod( "getAge"), null));
+		assertFalse( handler.handlesMethod( r, Object.class.getMethod( "toString"), null));
+	}
+
+	@Test
+	public void testResolveProxyMethods()
+	{
+		final PropertyChangeProxyHandler proxyHandler = new PropertyChangeProxyHandler(null);
+		final TestJavaBeanRecord r = (TestJavaBeanRecord) TestRecords.createRecord( (Object proxy, Method method, 
+				Object[] args) -> 
+		{
+			if(proxyHandler.handlesMethod( (ActiveRecord) proxy, method, args))
+			{
+				return proxyHandler.invoke( (ActiveRecord) proxy, null, method, args);
+			}
+			throw new UnsupportedOperationException(method.getName());
+		});
+		final TestPropertyChangeListener l = new TestPropertyChangeListener();
+		r.addPropertyChangeListener( "age", l);
+		r.firePropertyChange( "age", 1, 2);
+		r.firePropertyChange( "name", "Adam", "Eve");
+		r.removePropertyChangeListener( "age", l);
+		r.firePropertyChange( "age", 2, 3);
+		assertEquals( 1, l.getCount());
+		
+		//the proxy passes the same Method-instances on every call, which are resolved only once
+		final int resolved = PropertyChangeProxyHandler.getResolvedMethodCount();
+		r.addPropertyChangeListener( "age", l);
+		r.firePropertyChange( "age", 3, 4);
+		r.removePropertyChangeListener( "age", l);
+		assertEquals( 2, l.getCount());
+		assertEquals( resolved, PropertyChangeProxyHandler.getResolvedMethodCount());
+	}
+
+	@Test
+	public void testSetAttributeHookWithoutListeners()
+	{
+		final TestJavaBeanRecord r = base.createRecord();
+		final int readsBefore = handler.getOldValueReads();
+		for(int i = 0; i < NUM_WRITES; ++i)
+		{
+			r.setAge( i );
+		}
+		//no store-reads at all for the old values
+		assertEquals( readsBefore, handler.getOldValueReads());
+		assertEquals( NUM_WRITES - 1, r.getAge());
+	}
+	
+	@Test
+	public void testSetAttributeHookWithListeners()
+	{
+		final TestJavaBeanRecord r = base.createRecord();
+		final TestPropertyChangeListener listener = new TestPropertyChangeListener();
+		r.addPropertyChangeListener( listener );
+		final int readsBefore = handler.getOldValueReads();
+		for(int i = 0; i < NUM_WRITES; ++i)
+		{
+			r.setAge( i );
+		}
+		assertEquals( readsBefore + NUM_WRITES, handler.getOldValueReads());
+		assertEquals( NUM_WRITES, listener.getCount());
+		
+		r.removePropertyChangeListener( listener );
+		r.setAge( -1 );
+		assertEquals( readsBefore + NUM_WRITES, handler.getOldValueReads());
+	}
+	
+	@Test
+	public void testGlobalListeners()
+	{
+		final TestJavaBeanRecord r1 = base.createRecord();
+		final TestJavaBeanRecord r2 = base.createRecord();
+		final TestPropertyChangeListener listener = new TestPropertyChangeListener();
+		final int recordsBefore = handler.getRegisteredRecordCount();
+		handler.addGlobalListener( listener );
+		try
+		{
+			r1.setAge( 1 );
+			r2.setAge( 2 );
+			assertEquals( 2, listener.getCount());
+			//no listener-lists are created for records only notifying global listeners
+			assertTrue( handler.getRegisteredRecordCount() <= recordsBefore);
+			
+			//listener is notified only once
+			r1.addPropertyChangeListener( listener );
+			r1.setAge( 3 );
+			assertEquals( 3, listener.getCount());
+			
+			//global listener is removed for this record only
+			r2.removePropertyChangeListener( listener );
+			r2.setAge( 4 );
+			r1.setAge( 4 );
+			assertEquals( 4, listener.getCount());
+		}
+		finally
+		{
+			handler.removeGlobalListener( listener );
+		}
+		r1.setAge( 5 );
+		r2.setAge( 5 );
+		base.createRecord().setAge( 5 );
+		//only the listener added to the record directly is still notified
+		assertEquals( 5, listener.getCount());
+	}
+	
+	@Test
+	public void testRemoveGlobalListenerForAttribute()
+	{
+		final TestJavaBeanRecord r1 = base.createRecord();
+		final TestJavaBeanRecord r2 = base.createRecord();
+		final TestPropertyChangeListener listener = new TestPropertyChangeListener();
+		handler.addGlobalListener( listener );
+		try
+		{
+			//global listener for all attributes is removed for this attribute of this record only
+			r1.removePropertyChangeListener( "age", listener );
+			r1.setAge( 1 );
+			assertEquals( 0, listener.getCount());
+			r1.setName( "Adam");
+			r2.setAge( 1 );
+			assertEquals( 2, listener.getCount());
+			
+			//re-adding notifies the listener only once
+			r1.addPropertyChangeListener( "age", listener );
+			r1.setAge( 2 );
+			assertEquals( 3, listener.getCount());
+		}
+		finally
+		{
+			handler.removeGlobalListener( listener );
+		}
+	}
+	
+	@Test
+	public void testExcludedGlobalListenerSkipsOldValue()
+	{
+		final TestJavaBeanRecord r1 = base.createRecord();
+		final TestJavaBeanRecord r2 = base.createRecord();
+		final TestPropertyChangeListener listener = new TestPropertyChangeListener();
+		handler.addGlobalListener( listener );
+		try
+		{
+			r1.removePropertyChangeListener( listener );
+			r2.removePropertyChangeListener( "age", listener );
+			final int readsBefore = handler.getOldValueReads();
+			//the only listener is excluded for these records, so the old value is not read
+			r1.setAge( 1 );
+			r2.setAge( 1 );
+			assertEquals( readsBefore, handler.getOldValueReads());
+			assertEquals( 0, listener.getCount());
+			//but still for the attributes not excluded
+			r2.setName( "Adam");
+			assertEquals( readsBefore + 1, handler.getOldValueReads());
+			assertEquals( 1, listener.getCount());
+		}
+		finally
+		{
+			handler.removeGlobalListener( listener );
+		}
+	}
+
+	@Test
+	public void testRemoveGlobalAttributeListener()
+	{
+		final TestJavaBeanRecord r1 = base.createRecord();
+		final TestJavaBeanRecord r2 = base.createRecord();
+		final TestPropertyChangeListener listener = new TestPropertyChangeListener();
+		handler.addGlobalListener( "age", listener );
+		try
+		{
+			//global listener for the attribute is removed for this record only
+			r1.removePropertyChangeListener( "age", listener );
+			r1.setAge( 1 );
+			assertEquals( 0, listener.getCount());
+			r2.setAge( 1 );
+			assertEquals( 1, listener.getCount());
+			
+			//a listener for another attribute is not affected
+			r1.removePropertyChangeListener( "name", listener );
+			r2.setAge( 2 );
+			assertEquals( 2, listener.getCount());
+		}
+		finally
+		{
+			handler.removeGlobalListener( "age", listener );
+		}
+	}
+	
+	@Test
+	public void testListenerAddedDuringBatch()
+	{
+		final TestJavaBeanRecord r = base.createRecord();
+		final TestPropertyChangeListener globalListener = new TestPropertyChangeListener();
+		final TestPropertyChangeListener recordListener = new TestPropertyChangeListener();
+		handler.addGlobalListener( "age", globalListener );
+		try
+		{
+			try(PropertyChangeBatch batch = PropertyChangeBatch.begin())
+			{
+				r.setAge( 1 );
+				//the record had no own listeners when the change was collected
+				r.addPropertyChangeListener( recordListener );
+				r.setAge( 2 );
+			}
+			assertEquals( 1, globalListener.getCount());
+			assertEquals( 1, recordListener.getCount());
+		}
+		finally
+		{
+			handler.removeGlobalListener( "age", globalListener );
+		}
+	}
+	
+	private static class CountingProxyHandler extends PropertyChangeProxyHandler
+	{
+		private int oldValueReads = 0;
+
+		CountingProxyHandler()
+		{
+			super( null );
+		}
+
+		@Override
+		protected Object getOldValue( ActiveRecord record, String attributeName )
+		{
+			++oldValueReads;
+			return super.getOldValue( record, attributeName );
+		}
+		
+		int getOldValueReads()
+		{
+			return oldValueReads;
+		}
+	}
+}
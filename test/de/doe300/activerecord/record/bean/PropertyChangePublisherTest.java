@@ -0,0 +1,197 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import de.doe300.activerecord.record.bean.AsyncPropertyChangeListener.OverflowPolicy;
+import java.beans.PropertyChangeEvent;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author doe300
+ */
+public class PropertyChangePublisherTest extends Assert
+{
+	private final Queue<Runnable> tasks = new ArrayDeque<>(10);
+	
+	public PropertyChangePublisherTest()
+	{
+	}
+
+	@Test
+	public void testDemand()
+	{
+		final PropertyChangePublisher publisher = new PropertyChangePublisher(tasks::add, 16, OverflowPolicy.BLOCK);
+		final TestSubscriber subscriber = new TestSubscriber();
+		publisher.subscribe( subscriber );
+		assertNotNull( subscriber.subscription );
+		assertEquals( 1, publisher.getSubscriberCount());
+		
+		for(int i = 0; i < 3; ++i)
+		{
+			publisher.propertyChange( new PropertyChangeEvent(this, "age", i, i + 1));
+		}
+		runTasks();
+		assertEquals( 0, subscriber.received.size());
+		
+		subscriber.subscription.request( 1 );
+		runTasks();
+		assertEquals( 1, subscriber.received.size());
+		
+		subscriber.subscription.request( 5 );
+		runTasks();
+		assertEquals( 3, subscriber.received.size());
+		for(int i = 0; i < 3; ++i)
+		{
+			assertEquals( i, subscriber.received.get( i ).getOldValue());
+		}
+		
+		subscriber.subscription.cancel();
+		assertEquals( 0, publisher.getSubscriberCount());
+		publisher.propertyChange( new PropertyChangeEvent(this, "age", 3, 4));
+		runTasks();
+		assertEquals( 3, subscriber.received.size());
+	}
+
+	@Test
+	public void testDropOldest()
+	{
+		final PropertyChangePublisher publisher = new PropertyChangePublisher(tasks::add, 2, OverflowPolicy.DROP_OLDEST);
+		final TestSubscriber subscriber = new TestSubscriber();
+		publisher.subscribe( subscriber );
+		for(int i = 0; i < 5; ++i)
+		{
+			publisher.propertyChange( new PropertyChangeEvent(this, "age", i, i + 1));
+		}
+		subscriber.subscription.request( Long.MAX_VALUE );
+		runTasks();
+		assertEquals( 2, subscriber.received.size());
+		assertEquals( 3, subscriber.received.get( 0 ).getOldValue());
+		assertEquals( 4, subscriber.received.get( 1 ).getOldValue());
+	}
+
+	@Test
+	public void testComplete()
+	{
+		final PropertyChangePublisher publisher = new PropertyChangePublisher(tasks::add, 16, OverflowPolicy.COALESCE);
+		final TestSubscriber subscriber = new TestSubscriber();
+		publisher.subscribe( subscriber );
+		publisher.propertyChange( new PropertyChangeEvent(this, "age", 0, 1));
+		publisher.close();
+		runTasks();
+		//buffered events are delivered before completing
+		assertFalse( subscriber.completed );
+		subscriber.subscription.request( 1 );
+		runTasks();
+		assertEquals( 1, subscriber.received.size());
+		assertTrue( subscriber.completed );
+		
+		final TestSubscriber lateSubscriber = new TestSubscriber();
+		publisher.subscribe( lateSubscriber );
+		runTasks();
+		assertTrue( lateSubscriber.completed );
+	}
+
+	@Test
+	public void testInvalidRequest()
+	{
+		final PropertyChangePublisher publisher = new PropertyChangePublisher(tasks::add, 16, OverflowPolicy.BLOCK);
+		final TestSubscriber subscriber = new TestSubscriber();
+		publisher.subscribe( subscriber );
+		subscriber.subscription.request( 0 );
+		runTasks();
+		assertTrue( subscriber.error instanceof IllegalArgumentException);
+		assertEquals( 0, publisher.getSubscriberCount());
+	}
+
+	@Test
+	public void testRejectedExecution()
+	{
+		final PropertyChangePublisher publisher = new PropertyChangePublisher((Runnable task) -> 
+		{
+			throw new RejectedExecutionException("rejected");
+		}, 16, OverflowPolicy.BLOCK);
+		final TestSubscriber subscriber = new TestSubscriber();
+		publisher.subscribe( subscriber );
+		subscriber.subscription.request( 2 );
+		//the events are delivered on the calling thread and the subscription does not stall
+		publisher.propertyChange( new PropertyChangeEvent(this, "age", 0, 1));
+		assertEquals( 1, subscriber.received.size());
+		publisher.propertyChange( new PropertyChangeEvent(this, "age", 1, 2));
+		publisher.propertyChange( new PropertyChangeEvent(this, "age", 2, 3));
+		assertEquals( 2, subscriber.received.size());
+		subscriber.subscription.request( 1 );
+		assertEquals( 3, subscriber.received.size());
+		publisher.close();
+		assertTrue( subscriber.completed );
+	}
+	
+	private void runTasks()
+	{
+		Runnable task;
+		while((task = tasks.poll()) != null)
+		{
+			task.run();
+		}
+	}
+	
+	private static class TestSubscriber implements ChangeFlow.Subscriber<PropertyChangeEvent>
+	{
+		private final List<PropertyChangeEvent> received = new ArrayList<>(10);
+		private ChangeFlow.Subscription subscription;
+		private boolean completed;
+		private Throwable error;
+
+		@Override
+		public void onSubscribe( ChangeFlow.Subscription subscription )
+		{
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext( PropertyChangeEvent item )
+		{
+			received.add( item );
+		}
+
+		@Override
+		public void onError( Throwable throwable )
+		{
+			error = throwable;
+		}
+
+		@Override
+		public void onComplete()
+		{
+			completed = true;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import de.doe300.activerecord.record.ActiveRecord;
+import java.beans.PropertyChangeListener;
+import java.lang.reflect.Method;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author doe300
+ */
+public class RecordRegistryTest extends Assert
+{
+	private static final int NUM_RECORDS = 100_000;
+	private static final int NUM_ROUNDS = 10;
+	
+	public RecordRegistryTest()
+	{
+	}
+	
+	@Test
+	public void testGetRemove()
+	{
+		final RecordRegistry<String> registry = new RecordRegistry<>();
+		final ActiveRecord record = TestRecords.createRecord();
+		assertNull( registry.get( record));
+		assertEquals( "value", registry.computeIfAbsent( record, (ActiveRecord r) -> "value"));
+		assertEquals( "value", registry.computeIfAbsent( record, (ActiveRecord r) -> "other"));
+		assertNull( registry.get( TestRecords.createRecord()));
+		assertEquals( 1, registry.size());
+		assertEquals( "value", registry.remove( record));
+		assertEquals( 0, registry.size());
+	}
+
+	@Test
+	public void testRegistryStaysFlat() throws Exception
+	{
+		final RecordRegistry<Object> registry = new RecordRegistry<>();
+		for(int i = 0; i < NUM_RECORDS; ++i)
+		{
+			registry.computeIfAbsent( TestRecords.createRecord(), (ActiveRecord r) -> new Object());
+		}
+		assertTrue( awaitCollection( registry::size ) < NUM_RECORDS / 10);
+	}
+	
+	@Test
+	public void testHandlerReleasesRecords() throws Exception
+	{
+		final PropertyChangeProxyHandler handler = new PropertyChangeProxyHandler(null);
+		final Method addListener = JavaBeanRecord.class.getMethod( "addPropertyChangeListener", PropertyChangeListener.class);
+		final PropertyChangeListener listener = new TestPropertyChangeListener();
+		
+		long usedAfterFirstRound = 0;
+		long usedAfterLastRound = 0;
+		for(int round = 0; round < NUM_ROUNDS; ++round)
+		{
+			for(int i = 0; i < NUM_RECORDS; ++i)
+			{
+				final ActiveRecord record = TestRecords.createRecord();
+				assertTrue( handler.handlesMethod( record, addListener, new Object[]{listener}));
+				handler.invoke( record, null, addListener, new Object[]{listener});
+			}
+			assertTrue( awaitCollection( handler::getRegisteredRecordCount ) < NUM_RECORDS / 10);
+			usedAfterLastRound = getUsedMemory();
+			if(round == 0)
+			{
+				usedAfterFirstRound = usedAfterLastRound;
+			}
+		}
+		//the listener-lists of all records created would take far more than 5MB
+		assertTrue( usedAfterLastRound - usedAfterFirstRound < 5 * 1024 * 1024);
+	}
+	
+	private static long getUsedMemory()
+	{
+		System.gc();
+		final Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+	private static int awaitCollection(final java.util.function.IntSupplier sizeSupplier) throws InterruptedException
+	{
+		for(int i = 0; i < 20 && sizeSupplier.getAsInt() >= NUM_RECORDS / 10; ++i)
+		{
+			System.gc();
+			Thread.sleep( 50 );
+		}
+		return sizeSupplier.getAsInt();
+	}
+}
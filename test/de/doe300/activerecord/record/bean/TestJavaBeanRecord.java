@@ -33,6 +33,7 @@ import java.beans.PropertyChangeListener;
  * @author doe300
  */
 @RecordType(defaultColumns = {"id", "name", "age"}, typeName = "javaBeans")
+@GenerateJavaBean
 public interface TestJavaBeanRecord extends JavaBeanRecord
 {
 	public String getName();
@@ -0,0 +1,66 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean;
+
+import de.doe300.activerecord.record.ActiveRecord;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import javax.annotation.Nonnull;
+
+/**
+ * Creates records not backed by any record-store, for tests only requiring the identity of a record
+ *
+ * @author doe300
+ */
+final class TestRecords
+{
+	private TestRecords()
+	{
+	}
+
+	/**
+	 * @return a new record, whose methods all throw an {@link UnsupportedOperationException}
+	 */
+	@Nonnull
+	static ActiveRecord createRecord()
+	{
+		return createRecord( (Object proxy, Method method, Object[] args) -> 
+		{
+			throw new UnsupportedOperationException(method.getName());
+		});
+	}
+
+	/**
+	 * @param handler the handler implementing the methods of the record
+	 * @return a new {@link TestJavaBeanRecord} implemented by the given handler
+	 */
+	@Nonnull
+	static ActiveRecord createRecord(@Nonnull final InvocationHandler handler)
+	{
+		return ( ActiveRecord ) Proxy.newProxyInstance( TestRecords.class.getClassLoader(), 
+				new Class<?>[]{TestJavaBeanRecord.class}, handler);
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.bean.journal;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author doe300
+ */
+public class ChangeJournalTest extends Assert
+{
+	private Path directory;
+	
+	public ChangeJournalTest()
+	{
+	}
+	
+	@Before
+	public void setUp() throws IOException
+	{
+		directory = Files.createTempDirectory( "journal");
+	}
+	
+	@After
+	public void tearDown() throws IOException
+	{
+		try(final Stream<Path> files = Files.walk( directory ))
+		{
+			for(final Path file : files.sorted( Comparator.reverseOrder()).collect( Collectors.toList()))
+			{
+				Files.delete( file );
+			}
+		}
+	}
+
+	@Test
+	public void testAppendAndRead() throws IOException
+	{
+		final Timestamp timestamp = new Timestamp(123456789);
+		timestamp.setNanos( 42 );
+		try(final ChangeJournal journal = new ChangeJournal(directory, 128, 1, true))
+		{
+			journal.append( "Person", 1, "name", null, "Adam");
+			journal.append( "Person", 1, "age", 1, 2L);
+			journal.append( "Person", 2, "balance", new BigDecimal("1.5"), 2.5);
+			journal.append( "Person", 2, "created", timestamp, new byte[]{1, 2, 3});
+			for(int i = 0; i < 20; ++i)
+			{
+				journal.append( "Person", 3, "counter", i, i + 1);
+			}
+		}
+		//the small segments need to be rolled over
+		assertTrue( JournalCodec.listSegments( directory ).size() > 1);
+		
+		final List<JournalEntry> entries = new ChangeJournalReader(directory).stream().collect( Collectors.toList());
+		assertEquals( 24, entries.size());
+		assertEquals( "Person", entries.get( 0 ).getRecordType());
+		assertEquals( 1, entries.get( 0 ).getPrimaryKey());
+		assertEquals( "name", entries.get( 0 ).getAttributeName());
+		assertNull( entries.get( 0 ).getOldValue());
+		assertEquals( "Adam", entries.get( 0 ).getNewValue());
+		assertEquals( 1, entries.get( 1 ).getOldValue());
+		assertEquals( 2L, entries.get( 1 ).getNewValue());
+		assertEquals( new BigDecimal("1.5"), entries.get( 2 ).getOldValue());
+		assertEquals( 2.5, entries.get( 2 ).getNewValue());
+		assertEquals( timestamp, entries.get( 3 ).getOldValue());
+		assertArrayEquals( new byte[]{1, 2, 3}, ( byte[] ) entries.get( 3 ).getNewValue());
+		for(int i = 0; i < 20; ++i)
+		{
+			assertEquals( i, entries.get( 4 + i ).getOldValue());
+		}
+	}
+
+	@Test
+	public void testReopen() throws IOException
+	{
+		try(final ChangeJournal journal = new ChangeJournal(directory))
+		{
+			journal.append( "Person", 1, "name", null, "Adam");
+		}
+		try(final ChangeJournal journal = new ChangeJournal(directory))
+		{
+			journal.append( "Person", 1, "name", "Adam", "Eve");
+			journal.commit();
+		}
+		assertEquals( 1, JournalCodec.listSegments( directory ).size());
+		assertEquals( 2, new ChangeJournalReader(directory).stream().count());
+	}
+
+	@Test
+	public void testTornEntry() throws IOException
+	{
+		try(final ChangeJournal journal = new ChangeJournal(directory, 1024, 1, true))
+		{
+			journal.append( "Person", 1, "name", null, "Adam");
+			journal.append( "Person", 1, "name", "Adam", "Eve");
+			journal.append( "Person", 1, "name", "Eve", "Mallory");
+		}
+		//corrupt the data of the second entry, as if it was only partially written
+		final Path segment = JournalCodec.listSegments( directory ).get( 0);
+		try(final FileChannel channel = FileChannel.open( segment, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			final MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_WRITE, 0, channel.size());
+			final int second = JournalCodec.HEADER_SIZE + JournalCodec.ENTRY_HEADER_SIZE + 
+					buffer.getInt( JournalCodec.HEADER_SIZE);
+			final int corrupted = second + JournalCodec.ENTRY_HEADER_SIZE + 2;
+			buffer.put( corrupted, (byte) ~buffer.get( corrupted ));
+			buffer.force();
+		}
+		//the reader stops at the invalid entry
+		List<JournalEntry> entries = new ChangeJournalReader(directory).stream().collect( Collectors.toList());
+		assertEquals( 1, entries.size());
+		assertEquals( "Adam", entries.get( 0 ).getNewValue());
+		
+		//the writer discards the invalid entry and everything after it
+		try(final ChangeJournal journal = new ChangeJournal(directory, 1024, 1, true))
+		{
+			journal.append( "Person", 1, "name", "Adam", "Carol");
+		}
+		entries = new ChangeJournalReader(directory).stream().collect( Collectors.toList());
+		assertEquals( 2, entries.size());
+		assertEquals( "Carol", entries.get( 1 ).getNewValue());
+	}
+
+	@Test
+	public void testStateAsOf() throws IOException
+	{
+		try(final ChangeJournal journal = new ChangeJournal(directory))
+		{
+			journal.append( "Person", 1, "name", "Adam", "Eve");
+			journal.append( "Person", 2, "name", "Bob", "Carol");
+			journal.append( "Person", 1, "name", "Eve", "Mallory");
+			journal.append( "Person", 1, "age", 20, 21);
+		}
+		final ChangeJournalReader reader = new ChangeJournalReader(directory);
+		final Map<String, Object> latest = reader.getStateAsOf( "Person", 1, Long.MAX_VALUE);
+		assertEquals( 2, latest.size());
+		assertEquals( "Mallory", latest.get( "name"));
+		assertEquals( 21, latest.get( "age"));
+		
+		final Map<String, Object> initial = reader.getStateAsOf( "Person", 1, Long.MIN_VALUE);
+		assertEquals( "Adam", initial.get( "name"));
+		assertEquals( 20, initial.get( "age"));
+		
+		assertTrue( reader.getStateAsOf( "Other", 1, Long.MAX_VALUE).isEmpty());
+	}
+
+	@Test
+	public void testRestrictedDeserialization() throws IOException
+	{
+		try(final ChangeJournal journal = new ChangeJournal(directory))
+		{
+			journal.append( "Person", 1, "birthday", null, LocalDate.of( 2000, 1, 1));
+			journal.append( "Person", 1, "tags", null, Arrays.asList( "a", "b"));
+		}
+		final List<JournalEntry> entries = new ChangeJournalReader(directory).stream().collect( Collectors.toList());
+		assertEquals( LocalDate.of( 2000, 1, 1), entries.get( 0 ).getNewValue());
+		assertEquals( Arrays.asList( "a", "b"), entries.get( 1 ).getNewValue());
+		
+		assertTrue( JournalCodec.isSerializableClass( int[][].class));
+		assertTrue( JournalCodec.isSerializableClass( Timestamp.class));
+		assertFalse( JournalCodec.isSerializableClass( Payload.class));
+		assertFalse( JournalCodec.isSerializableClass( java.lang.reflect.Proxy.class));
+	}
+
+	@Test
+	public void testUnsupportedValues() throws IOException
+	{
+		try(final ChangeJournal journal = new ChangeJournal(directory))
+		{
+			journal.append( "Person", 1, "payload", null, new Payload());
+			journal.append( "Person", 1, "name", new Object(), "Adam");
+			journal.append( "Person", 1, "age", 20, Arrays.asList( new Object()));
+		}
+		final ChangeJournalReader reader = new ChangeJournalReader(directory);
+		final List<JournalEntry> entries = reader.stream().collect( Collectors.toList());
+		//not allowed to be deserialized
+		assertSame( JournalEntry.UNSUPPORTED_VALUE, entries.get( 0 ).getNewValue());
+		//not serializable
+		assertSame( JournalEntry.UNSUPPORTED_VALUE, entries.get( 1 ).getOldValue());
+		assertEquals( "Adam", entries.get( 1 ).getNewValue());
+		assertSame( JournalEntry.UNSUPPORTED_VALUE, entries.get( 2 ).getNewValue());
+		
+		final Map<String, Object> latest = reader.getStateAsOf( "Person", 1, Long.MAX_VALUE);
+		assertEquals( 1, latest.size());
+		assertEquals( "Adam", latest.get( "name"));
+		final Map<String, Object> initial = reader.getStateAsOf( "Person", 1, Long.MIN_VALUE);
+		assertEquals( 2, initial.size());
+		assertNull( initial.get( "payload"));
+		assertEquals( 20, initial.get( "age"));
+	}
+
+	private static final class Payload implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+	}
+}
@@ -25,6 +25,9 @@ package de.doe300.activerecord.record.javafx;
 
 import de.doe300.activerecord.RecordCore;
 import de.doe300.activerecord.TestSuite;
+import de.doe300.activerecord.record.ActiveRecord;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
 import javafx.beans.property.Property;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
@@ -149,10 +152,172 @@ public class AttributePropertyTest extends Assert implements ChangeListener<Stri
 		assertNotEquals( "George", changedValue);
 	}
 
+	@Test
+	public void testExternalChange()
+	{
+		final AttributeProperty<String> otherNameProperty = new AttributeProperty<>(record, "name", String.class);
+		changedValue = null;
+		nameProperty.addListener( this);
+		otherNameProperty.set( "Paul");
+		assertEquals( "Paul", changedValue);
+		
+		AttributeChangeFeed.getInstance().publish( record.getBase(), record.getPrimaryKey(), "name", "Paul", "John");
+		assertEquals( "John", changedValue);
+		
+		nameProperty.removeListener( this);
+		otherNameProperty.set( "Mary");
+		assertEquals( "John", changedValue);
+	}
+
 	@Test
 	public void testInvalidationListener()
 	{
-		//TODO
+		final int[] invalidations = {0};
+		final InvalidationListener listener = (Observable o) -> ++invalidations[0];
+		final AttributeProperty<String> cachedProperty = new AttributeProperty<>(record, "name", String.class, true);
+		cachedProperty.addListener( listener );
+		cachedProperty.set( "Bert");
+		assertEquals( 1, invalidations[0]);
+		
+		AttributeChangeFeed.getInstance().publish( record.getBase(), record.getPrimaryKey(), "name", "Bert", "Ernie");
+		assertEquals( 2, invalidations[0]);
+		assertEquals( "Ernie", cachedProperty.get());
+		
+		cachedProperty.invalidate();
+		assertEquals( 3, invalidations[0]);
+		//already invalid
+		cachedProperty.invalidate();
+		assertEquals( 3, invalidations[0]);
+		//re-read from the store
+		assertEquals( record.getName(), cachedProperty.get());
+		cachedProperty.invalidate();
+		assertEquals( 4, invalidations[0]);
+		
+		cachedProperty.removeListener( listener );
+	}
+
+	@Test
+	public void testCaching()
+	{
+		final AttributeProperty<String> cachedProperty = new AttributeProperty<>(record, "name", String.class, true);
+		assertTrue( cachedProperty.isCaching());
+		cachedProperty.set( "Bob");
+		record.setName( "Alice");
+		//written directly, without notifying the property
+		assertEquals( "Bob", cachedProperty.get());
+		cachedProperty.invalidate();
+		assertEquals( "Alice", cachedProperty.get());
+		cachedProperty.setCaching( false );
+		record.setName( "Carol");
+		assertEquals( "Carol", cachedProperty.get());
+	}
+
+	@Test
+	public void testPrefetch()
+	{
+		record.setName( "Dave");
+		record.setAge( 7);
+		final RecordSnapshot snapshot = RecordSnapshot.load( record, "name", "age");
+		final AttributeProperty<String> cachedProperty = new AttributeProperty<>(record, "name", String.class);
+		cachedProperty.prefetch( snapshot );
+		assertTrue( cachedProperty.isCaching());
+		assertEquals( "Dave", cachedProperty.get());
+		
+		//changes published in the feed update the cached value, even without listeners
+		nameProperty.set( "Erin");
+		assertEquals( "Erin", cachedProperty.get());
+	}
+
+	@Test
+	public void testPrefetchInvalidate()
+	{
+		record.setName( "Frank");
+		final AttributeProperty<String> cachedProperty = new AttributeProperty<>(record, "name", String.class);
+		cachedProperty.prefetch( RecordSnapshot.load( record, "name"));
+		
+		//written directly into the record-store, without notifying the property
+		record.getBase().getStore().setValue( record.getBase(), record.getPrimaryKey(), "name", "Grace");
+		assertEquals( "Frank", cachedProperty.get());
+		cachedProperty.invalidate();
+		assertEquals( "Grace", cachedProperty.get());
+		//stays in caching-mode after being invalidated
+		assertTrue( cachedProperty.isCaching());
+		record.setName( "Heidi");
+		assertEquals( "Grace", cachedProperty.get());
+	}
+
+	@Test
+	public void testSkipUnchangedWrites()
+	{
+		final AttributeProperty<String> property = new AttributeProperty<>(record, "name", String.class);
+		assertFalse( property.isSkipUnchangedWrites());
+		property.setSkipUnchangedWrites( true );
+		property.set( "Grace");
+		final int[] changes = new int[1];
+		final ChangeListener<String> listener = (final ObservableValue<? extends String> observable, final String oldValue,
+				final String newValue) -> changes[0]++;
+		property.addListener( listener );
+		property.set( "Grace");
+		assertEquals( 0, changes[0]);
+		property.set( "Heidi");
+		assertEquals( 1, changes[0]);
+		property.removeListener( listener );
+	}
+
+	@Test
+	public void testBindBidirectional()
+	{
+		final AttributeProperty<String> property = new AttributeProperty<>(record, "name", String.class);
+		final Property<String> other = new SimpleStringProperty("Ivan");
+		property.bindBidirectional( other );
+		assertEquals( "Ivan", property.get());
+		assertEquals( "Ivan", record.getName());
+		
+		other.setValue( "Judy");
+		assertEquals( "Judy", property.get());
+		property.set( "Mallory");
+		assertEquals( "Mallory", other.getValue());
+		
+		property.unbindBidirectional( other );
+		other.setValue( "Oscar");
+		assertEquals( "Mallory", property.get());
+	}
+
+	@Test
+	public void testStaleSubscriptions() throws InterruptedException
+	{
+		final AttributeChangeFeed feed = AttributeChangeFeed.getInstance();
+		final int subscribedBefore = feed.getSubscribedAttributeCount();
+		for(int i = 0; i < 1000; ++i)
+		{
+			//never unsubscribed and the attributes are never changed again
+			final String attributeName = "attribute" + i;
+			feed.subscribe( new AttributeChangeSubscriber()
+			{
+				@Override
+				public ActiveRecord getRecord()
+				{
+					return record;
+				}
+
+				@Override
+				public String getAttributeName()
+				{
+					return attributeName;
+				}
+
+				@Override
+				public void attributeChanged( Object oldValue, Object newValue )
+				{
+				}
+			});
+		}
+		for(int i = 0; i < 20 && feed.getSubscribedAttributeCount() > subscribedBefore + 100; ++i)
+		{
+			System.gc();
+			Thread.sleep( 50 );
+		}
+		assertTrue( feed.getSubscribedAttributeCount() <= subscribedBefore + 100);
 	}
 
 	@Test
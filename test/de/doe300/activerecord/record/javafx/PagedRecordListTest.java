@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.javafx;
+
+import de.doe300.activerecord.RecordBase;
+import de.doe300.activerecord.RecordCore;
+import de.doe300.activerecord.TestSuite;
+import de.doe300.activerecord.dsl.Comparison;
+import de.doe300.activerecord.dsl.SimpleCondition;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author doe300
+ */
+public class PagedRecordListTest extends Assert
+{
+	private static RecordCore core;
+	private static RecordBase<TestPropertyRecord> base;
+	
+	public PagedRecordListTest()
+	{
+	}
+	
+	@BeforeClass
+	public static void setUpClass() throws Exception
+	{
+		core = RecordCore.fromDatabase( TestSuite.con, true);
+		core.createTable( TestPropertyRecord.class);
+		base = core.getBase( TestPropertyRecord.class);
+		for(int i = 0; i < 25; i++)
+		{
+			base.createRecord().setAge( i );
+		}
+	}
+	
+	@AfterClass
+	public static void tearDownClass() throws Exception
+	{
+		core.dropTable( TestPropertyRecord.class);
+	}
+
+	@Test
+	public void testPaging()
+	{
+		final PagedRecordList<TestPropertyRecord> list = new PagedRecordList<>(base, null, 10, 2);
+		assertEquals( base.count( null ), list.size());
+		assertEquals( 0, list.getLoadedPageCount());
+		
+		assertNotNull( list.get( 0 ));
+		assertEquals( 1, list.getLoadedPageCount());
+		assertNotNull( list.get( 24 ));
+		assertEquals( 2, list.getLoadedPageCount());
+		assertNotNull( list.get( 15 ));
+		//the least recently used page is evicted
+		assertEquals( 2, list.getLoadedPageCount());
+		
+		final TestPropertyRecord last = list.get( list.size() - 1);
+		assertSame( last, list.get( list.size() - 1));
+	}
+
+	@Test
+	public void testPrimaryKeyOrder()
+	{
+		final PagedRecordList<TestPropertyRecord> list = new PagedRecordList<>(base, null, 10, 2);
+		//access the last page first, so the pages before are only walked through
+		final TestPropertyRecord last = list.get( list.size() - 1);
+		assertEquals( 1, list.getLoadedPageCount());
+		int previousKey = -1;
+		for(int i = 0; i < list.size(); i++)
+		{
+			assertTrue( list.get( i ).getPrimaryKey() > previousKey);
+			previousKey = list.get( i ).getPrimaryKey();
+		}
+		assertEquals( last.getPrimaryKey(), previousKey);
+	}
+
+	@Test
+	public void testCondition()
+	{
+		final PagedRecordList<TestPropertyRecord> list = new PagedRecordList<>(base, 
+				new SimpleCondition("age", 10, Comparison.LARGER_EQUALS), 4, 2);
+		assertEquals( 15, list.size());
+		for(int i = list.size() - 1; i >= 0; i--)
+		{
+			assertTrue( list.get( i ).getAge() >= 10);
+		}
+		assertEquals( 15, list.stream().distinct().count());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testIndexOutOfBounds()
+	{
+		final PagedRecordList<TestPropertyRecord> list = new PagedRecordList<>(base, null);
+		list.get( list.size() );
+	}
+
+	@Test
+	public void testRefresh()
+	{
+		final PagedRecordList<TestPropertyRecord> list = new PagedRecordList<>(base, null, 10, 2);
+		final int size = list.size();
+		list.get( 0 );
+		base.createRecord();
+		assertEquals( size, list.size());
+		
+		list.refresh();
+		assertEquals( 0, list.getLoadedPageCount());
+		assertEquals( size + 1, list.size());
+	}
+}
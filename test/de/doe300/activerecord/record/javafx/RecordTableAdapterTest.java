@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 doe300.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package de.doe300.activerecord.record.javafx;
+
+import de.doe300.activerecord.RecordCore;
+import de.doe300.activerecord.TestSuite;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.TableColumn;
+import javafx.util.Callback;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author doe300
+ */
+public class RecordTableAdapterTest extends Assert
+{
+	private static RecordCore core;
+	private static TestPropertyRecord record;
+	
+	public RecordTableAdapterTest()
+	{
+	}
+	
+	@BeforeClass
+	public static void setUpClass() throws Exception
+	{
+		core = RecordCore.fromDatabase( TestSuite.con, true);
+		core.createTable( TestPropertyRecord.class);
+		record = core.getBase( TestPropertyRecord.class).createRecord();
+		record.setName( "Adam");
+		record.setAge( 42);
+	}
+	
+	@AfterClass
+	public static void tearDownClass() throws Exception
+	{
+		core.dropTable( TestPropertyRecord.class);
+	}
+
+	@Test
+	public void testSnapshot()
+	{
+		final RecordSnapshot snapshot = RecordSnapshot.load( record, "name");
+		assertSame( record, snapshot.getRecord());
+		assertTrue( snapshot.contains( "name"));
+		assertFalse( snapshot.contains( "age"));
+		assertEquals( "Adam", snapshot.getValue( "name"));
+		
+		final AttributeProperty<String> nameProperty = new AttributeProperty<>(snapshot, "name", String.class);
+		assertTrue( nameProperty.isCaching());
+		assertEquals( "Adam", nameProperty.get());
+	}
+
+	@Test
+	public void testCellValueFactories()
+	{
+		final RecordTableAdapter<TestPropertyRecord> adapter = new RecordTableAdapter<>();
+		final Callback<TableColumn.CellDataFeatures<TestPropertyRecord, String>, ObservableValue<String>> nameFactory =
+				adapter.createCellValueFactory( "name", String.class);
+		final Callback<TableColumn.CellDataFeatures<TestPropertyRecord, Integer>, ObservableValue<Integer>> ageFactory =
+				adapter.createCellValueFactory( "age", Integer.class);
+		
+		final ObservableValue<String> name = nameFactory.call( new TableColumn.CellDataFeatures<>(null, null, record));
+		final ObservableValue<Integer> age = ageFactory.call( new TableColumn.CellDataFeatures<>(null, null, record));
+		assertEquals( "Adam", name.getValue());
+		assertEquals( Integer.valueOf( 42), age.getValue());
+		
+		//changes are not hidden by a previous snapshot
+		record.setName( "Eve");
+		assertEquals( "Eve", nameFactory.call( new TableColumn.CellDataFeatures<>(null, null, record)).getValue());
+	}
+
+	@Test
+	public void testPropertyReuse()
+	{
+		final RecordTableAdapter<TestPropertyRecord> adapter = new RecordTableAdapter<>(1);
+		final Callback<TableColumn.CellDataFeatures<TestPropertyRecord, Integer>, ObservableValue<Integer>> ageFactory =
+				adapter.createCellValueFactory( "age", Integer.class);
+		
+		final ObservableValue<Integer> age = ageFactory.call( new TableColumn.CellDataFeatures<>(null, null, record));
+		record.setAge( 43);
+		//the cell is updated again, the same property is refreshed
+		assertSame( age, ageFactory.call( new TableColumn.CellDataFeatures<>(null, null, record)));
+		assertEquals( Integer.valueOf( 43), age.getValue());
+		assertEquals( 1, adapter.getRowCount());
+		
+		//requesting another row releases the properties of the eldest row
+		final TestPropertyRecord other = core.getBase( TestPropertyRecord.class).createRecord();
+		other.setAge( 7);
+		assertEquals( Integer.valueOf( 7), ageFactory.call( new TableColumn.CellDataFeatures<>(null, null, other)).getValue());
+		assertEquals( 1, adapter.getRowCount());
+		assertFalse( ((AttributeProperty<Integer>) age).isCaching());
+		assertNotSame( age, ageFactory.call( new TableColumn.CellDataFeatures<>(null, null, record)));
+		
+		adapter.clear();
+		assertEquals( 0, adapter.getRowCount());
+		record.setAge( 42);
+	}
+}